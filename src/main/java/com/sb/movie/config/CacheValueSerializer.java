@@ -0,0 +1,105 @@
+package com.sb.movie.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.sb.movie.enums.CacheCodec;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache value serializer writing with the configured {@link CacheCodec}, gzip-compressing values of
+ * at least {@code compressThreshold} bytes (never when the threshold is 0).
+ *
+ * Reads do not depend on the configuration: compressed values are recognized by the gzip magic
+ * bytes and Smile values by their {@code :)} header, anything else is read as JSON. Entries
+ * written before a codec change, or by a node still on the old codec, stay readable.
+ */
+public class CacheValueSerializer implements RedisSerializer<Object> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final CacheCodec codec;
+    private final int compressThreshold;
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper smileMapper;
+
+    /**
+     * @param jsonMapper mapper with the type handling the cached values need; the Smile mapper is
+     *                   derived from it, so both write the same type info
+     */
+    public CacheValueSerializer(CacheCodec codec, int compressThreshold, ObjectMapper jsonMapper) {
+        this.codec = codec;
+        this.compressThreshold = compressThreshold;
+        this.jsonMapper = jsonMapper;
+        // Shared string values turn every repeated @class name into a one or two byte back-reference
+        this.smileMapper = jsonMapper.copyWith(SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build());
+    }
+
+    public CacheCodec getCodec() {
+        return codec;
+    }
+
+    public int getCompressThreshold() {
+        return compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        try {
+            byte[] bytes = (codec == CacheCodec.SMILE ? smileMapper : jsonMapper).writeValueAsBytes(value);
+            return compressThreshold > 0 && bytes.length >= compressThreshold ? gzip(bytes) : bytes;
+        } catch (IOException e) {
+            throw new SerializationException("Could not write " + codec + " cache value", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            if (isGzip(bytes)) {
+                bytes = gunzip(bytes);
+            }
+            return (isSmile(bytes) ? smileMapper : jsonMapper).readValue(bytes, Object.class);
+        } catch (IOException e) {
+            throw new SerializationException("Could not read cache value", e);
+        }
+    }
+
+    private static boolean isGzip(byte[] bytes) {
+        return bytes.length > 2 && bytes[0] == (byte) 0x1f && bytes[1] == (byte) 0x8b;
+    }
+
+    private static boolean isSmile(byte[] bytes) {
+        return bytes.length > 3 && bytes[0] == ':' && bytes[1] == ')' && bytes[2] == '\n';
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        }
+    }
+}
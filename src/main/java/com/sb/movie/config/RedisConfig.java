@@ -7,25 +7,35 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
 import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sb.movie.enums.CacheCodec;
+import com.sb.movie.services.SeatDirectoryService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 @Configuration
 @EnableCaching
@@ -41,6 +51,27 @@ public class RedisConfig {
     @Value("${spring.cache.redis.time-to-live:3600000}") // 1 hour default
     private long defaultTTL;
 
+    @Value("${booking.cache.codec:SMILE}")
+    private CacheCodec cacheCodec;
+
+    @Value("${booking.cache.compress-threshold-bytes:8192}")
+    private int compressThresholdBytes;
+
+    @Value("${booking.cache.l1.enabled:true}")
+    private boolean l1Enabled;
+
+    @Value("${booking.cache.l1.max-size:1000}")
+    private long l1MaxSize;
+
+    @Value("${booking.cache.l1.ttl-seconds:60}")
+    private long l1TtlSeconds;
+
+    @Value("${booking.cache.load-lease-ms:3000}")
+    private long loadLeaseMs;
+
+    @Value("${booking.cache.load-poll-ms:20}")
+    private long loadPollMs;
+
     @Bean
     public JedisConnectionFactory jedisConnectionFactory() {
         log.info("Configuring Redis connection to {}:{}", redisHost, redisPort);
@@ -70,13 +101,24 @@ public class RedisConfig {
         return template;
     }
 
+    /**
+     * Loads each missing cache entry once across all nodes, see {@link SingleFlight}.
+     */
+    @Bean
+    public SingleFlight singleFlight(StringRedisTemplate stringRedisTemplate) {
+        return new SingleFlight(stringRedisTemplate, Duration.ofMillis(loadLeaseMs), Duration.ofMillis(loadPollMs));
+    }
+
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        log.info("Configuring Redis Cache Manager with default TTL: {} ms", defaultTTL);
+    public CacheManager cacheManager(RedisConnectionFactory connectionFactory, StringRedisTemplate stringRedisTemplate,
+                                     ObjectProvider<MeterRegistry> meterRegistry, Environment environment,
+                                     SingleFlight singleFlight) {
+        log.info("Configuring Redis Cache Manager with default TTL: {} ms, codec {}, compressing values from {} bytes",
+                defaultTTL, cacheCodec, compressThresholdBytes);
 
         // Create ObjectMapper for serialization
         ObjectMapper mapper = objectMapper();
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(mapper);
+        CacheValueSerializer serializer = new CacheValueSerializer(cacheCodec, compressThresholdBytes, mapper);
 
         // Default cache configuration
         RedisCacheConfiguration defaultConfig = RedisCacheConfiguration.defaultCacheConfig()
@@ -127,19 +169,81 @@ public class RedisConfig {
         // Shows grouped - 30 minutes
         cacheConfigurations.put("showsGrouped", defaultConfig.entryTtl(Duration.ofMinutes(30)));
 
+        // Show part of the seat views, whose seats come from the seat map (see SeatMapCache)
+        cacheConfigurations.put("showDetails", defaultConfig);
+        cacheConfigurations.put("seatAvailability", defaultConfig);
+
+        // Codec and compression can be overridden with booking.cache.<cache>.codec and .compress-threshold-bytes
+        for (Map.Entry<String, RedisCacheConfiguration> entry : cacheConfigurations.entrySet()) {
+            String prefix = "booking.cache." + entry.getKey() + ".";
+            CacheCodec codec = environment.getProperty(prefix + "codec", CacheCodec.class, cacheCodec);
+            int threshold = environment.getProperty(prefix + "compress-threshold-bytes", Integer.class,
+                    compressThresholdBytes);
+            if (codec != cacheCodec || threshold != compressThresholdBytes) {
+                entry.setValue(entry.getValue().serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(new CacheValueSerializer(codec, threshold, mapper))));
+                log.info("Cache {} uses codec {}, compressing values from {} bytes", entry.getKey(), codec, threshold);
+            }
+        }
+
         log.info("Cache configurations created for: {}", cacheConfigurations.keySet());
 
-        return RedisCacheManager.builder(connectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(connectionFactory)
                 .cacheDefaults(defaultConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
                 .build();
+        if (!l1Enabled) {
+            return redisCacheManager;
+        }
+        // RedisCacheManager is not a bean here, so it needs initializing by hand
+        redisCacheManager.afterPropertiesSet();
+
+        // In-process L1 in front of Redis. Seat views only cache the show part, their seats come from
+        // the seat map; each can be overridden with booking.cache.l1.<cache>.max-size and .ttl-seconds
+        TwoLevelCacheManager.L1Settings l1Defaults = new TwoLevelCacheManager.L1Settings(
+                l1MaxSize, Duration.ofSeconds(l1TtlSeconds));
+        Map<String, TwoLevelCacheManager.L1Settings> l1Configurations = new HashMap<>();
+        l1Configurations.put("showById", new TwoLevelCacheManager.L1Settings(l1MaxSize, Duration.ofSeconds(30)));
+
+        Set<String> cacheNames = new HashSet<>(cacheConfigurations.keySet());
+        cacheNames.addAll(l1Configurations.keySet());
+        for (String cacheName : cacheNames) {
+            TwoLevelCacheManager.L1Settings settings = l1Configurations.getOrDefault(cacheName, l1Defaults);
+            String prefix = "booking.cache.l1." + cacheName + ".";
+            l1Configurations.put(cacheName, new TwoLevelCacheManager.L1Settings(
+                    environment.getProperty(prefix + "max-size", Long.class, settings.getMaxSize()),
+                    Duration.ofSeconds(environment.getProperty(prefix + "ttl-seconds", Long.class,
+                            settings.getTtl().getSeconds()))));
+        }
+
+        return new TwoLevelCacheManager(redisCacheManager, stringRedisTemplate, meterRegistry.getIfAvailable(),
+                l1Defaults, l1Configurations, singleFlight);
+    }
+
+    /**
+     * Delivers L1 invalidations of other nodes to the {@link TwoLevelCacheManager}, and their seat
+     * directory evictions to the {@link SeatDirectoryService}.
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           CacheManager cacheManager,
+                                                                           SeatDirectoryService seatDirectoryService) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (cacheManager instanceof TwoLevelCacheManager twoLevelCacheManager) {
+            container.addMessageListener(twoLevelCacheManager,
+                    new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        }
+        container.addMessageListener(seatDirectoryService, new ChannelTopic(SeatDirectoryService.INVALIDATION_CHANNEL));
+        return container;
     }
 
     /**
      * ObjectMapper configured for Redis serialization
      * Includes support for Java 8 time types and polymorphic types
+     * Also the base of the Smile mapper of {@link CacheValueSerializer}
      */
-    private ObjectMapper objectMapper() {
+    public static ObjectMapper objectMapper() {
         ObjectMapper mapper = new ObjectMapper();
 
         // Register Java 8 time module for LocalDate, LocalDateTime, etc.
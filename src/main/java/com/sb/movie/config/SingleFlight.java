@@ -0,0 +1,161 @@
+package com.sb.movie.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Loads a missing cache entry once, however many requests miss it at the same time.
+ *
+ * Within a node, the first request to miss a key loads it and the others wait for that load. Across
+ * nodes, the loading request first takes a short lease {@code cache-lease:<key>} in Redis; a node
+ * that finds the lease taken polls the shared cache until the value shows up, and only loads it
+ * itself once the lease is gone without one, e.g. because its holder failed. The lease expires on
+ * its own, so a crashed holder delays the other nodes by one lease at most.
+ *
+ * Waiters read the value back from the shared cache rather than taking the loaded object, which
+ * may be a managed entity of the loading request. They get the loaded object itself only when it
+ * was not stored.
+ */
+@Slf4j
+public class SingleFlight {
+
+    private static final String RELEASE_LUA =
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then\n" +
+            "    return redis.call('DEL', KEYS[1])\n" +
+            "end\n" +
+            "return 0";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(RELEASE_LUA, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final Duration lease;
+    private final Duration pollInterval;
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+
+    public SingleFlight(StringRedisTemplate stringRedisTemplate, Duration lease, Duration pollInterval) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.lease = lease;
+        this.pollInterval = pollInterval;
+    }
+
+    /**
+     * Value of {@code key}: from {@code lookup} when the shared cache has it, otherwise from the one
+     * {@code loader} call of all concurrent misses. {@code lookup} returns null on a miss;
+     * {@code loader} is expected to store what it loads where {@code lookup} reads it.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T load(String key, Supplier<T> lookup, Supplier<T> loader) {
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            Object loaded = await(inFlight);
+            T value = lookup.get();
+            return value != null ? value : (T) loaded;
+        }
+
+        try {
+            T value = loadOnce(key, lookup, loader);
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private <T> T loadOnce(String key, Supplier<T> lookup, Supplier<T> loader) {
+        String token = UUID.randomUUID().toString();
+        Boolean leased = lease(key, token);
+        if (Boolean.FALSE.equals(leased)) {
+            T value = awaitOtherNode(key, lookup);
+            if (value != null) {
+                return value;
+            }
+            log.debug("Lease on {} expired without a value, loading it here", key);
+        }
+
+        try {
+            // Another request may have stored it between the miss and the lease
+            T value = lookup.get();
+            return value != null ? value : loader.get();
+        } finally {
+            if (Boolean.TRUE.equals(leased)) {
+                release(key, token);
+            }
+        }
+    }
+
+    private <T> T awaitOtherNode(String key, Supplier<T> lookup) {
+        long deadline = System.nanoTime() + lease.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(pollInterval.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            T value = lookup.get();
+            if (value != null || !leaseHeld(key)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    // Null when Redis cannot be reached: the request then loads without a lease
+    private Boolean lease(String key, String token) {
+        try {
+            return stringRedisTemplate.opsForValue().setIfAbsent(leaseKey(key), token, lease);
+        } catch (Exception e) {
+            log.warn("Failed to take the load lease on {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean leaseHeld(String key) {
+        try {
+            return Boolean.TRUE.equals(stringRedisTemplate.hasKey(leaseKey(key)));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private void release(String key, String token) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(key)), token);
+        } catch (Exception e) {
+            log.warn("Failed to release the load lease on {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static Object await(CompletableFuture<Object> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // The loader's own exception, as the loading request got it
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static String leaseKey(String key) {
+        return "cache-lease:" + key;
+    }
+}
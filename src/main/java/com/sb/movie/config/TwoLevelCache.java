@@ -0,0 +1,159 @@
+package com.sb.movie.config;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * A Redis cache with a Caffeine cache of the same name in front of it.
+ *
+ * The local cache only ever holds values read back from Redis, never the objects handed to
+ * {@link #put}: those may be managed entities with lazy associations, while values read from Redis
+ * are plain deserialized copies that can be shared between requests. Writes and evictions go to
+ * Redis first, then drop the local entry and tell the other nodes to drop theirs.
+ *
+ * Misses of {@link #get(Object, Callable)} are loaded through {@link SingleFlight}, so concurrent
+ * misses of one key run the loader once across all nodes.
+ */
+public class TwoLevelCache implements Cache {
+
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final Cache remote;
+    private final TwoLevelCacheManager manager;
+    private final SingleFlight singleFlight;
+
+    TwoLevelCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> local, Cache remote,
+                  TwoLevelCacheManager manager, SingleFlight singleFlight) {
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.manager = manager;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    public com.github.benmanes.caffeine.cache.Cache<Object, Object> getLocalCache() {
+        return local;
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Object value = local.getIfPresent(localKey(key));
+        if (value != null) {
+            return new SimpleValueWrapper(value);
+        }
+
+        ValueWrapper wrapper = remote.get(key);
+        if (wrapper != null && wrapper.get() != null) {
+            local.put(localKey(key), wrapper.get());
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        return (T) singleFlight.load(name + "::" + key, () -> {
+            ValueWrapper loaded = get(key);
+            return loaded != null ? loaded.get() : null;
+        }, () -> {
+            T value = call(key, valueLoader);
+            // A loaded value is the caller's object, so it only goes to Redis
+            if (value != null) {
+                put(key, value);
+            }
+            return value;
+        });
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        remote.put(key, value);
+        invalidate(key);
+    }
+
+    @Override
+    public void evict(Object key) {
+        remote.evict(key);
+        invalidate(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = remote.evictIfPresent(key);
+        invalidate(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        manager.publishInvalidation(name, null);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = remote.invalidate();
+        local.invalidateAll();
+        manager.publishInvalidation(name, null);
+        return present;
+    }
+
+    /**
+     * Drop a local entry, or every local entry when {@code key} is null, without touching Redis.
+     * Applied when another node changed the entry.
+     */
+    void invalidateLocal(String key) {
+        if (key == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(key);
+        }
+    }
+
+    private static <T> T call(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private void invalidate(Object key) {
+        String localKey = localKey(key);
+        local.invalidate(localKey);
+        manager.publishInvalidation(name, localKey);
+    }
+
+    // Keys travel between nodes as strings, so the local cache is keyed the same way
+    private static String localKey(Object key) {
+        return key.toString();
+    }
+}
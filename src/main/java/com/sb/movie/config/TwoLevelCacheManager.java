@@ -0,0 +1,117 @@
+package com.sb.movie.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache manager that puts a bounded in-process Caffeine cache (L1) in front of every cache of a
+ * Redis cache manager (L2), see {@link TwoLevelCache}.
+ *
+ * L1 entries are dropped on every node whenever an entry changes: each put, evict or clear is
+ * published on the {@code cache:invalidation} channel as {@code nodeId|cacheName|key} (no key for a
+ * clear), and every other node drops its local copy on receipt. Pub/sub delivery is not
+ * guaranteed, so the L1 TTL bounds how long a node may serve an entry changed elsewhere.
+ *
+ * Concurrent misses of a key are loaded once across all nodes, see {@link SingleFlight}.
+ *
+ * L1 gets, hits and evictions are registered with Micrometer as the {@code cache.*} meters of the
+ * cache, tagged {@code tier=l1}.
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "cache:invalidation";
+
+    private final CacheManager remote;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MeterRegistry meterRegistry;
+    private final L1Settings defaults;
+    private final Map<String, L1Settings> settingsByCache;
+    private final SingleFlight singleFlight;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentHashMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remote, StringRedisTemplate stringRedisTemplate, MeterRegistry meterRegistry,
+                                L1Settings defaults, Map<String, L1Settings> settingsByCache, SingleFlight singleFlight) {
+        this.remote = remote;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.meterRegistry = meterRegistry;
+        this.defaults = defaults;
+        this.settingsByCache = settingsByCache;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache remoteCache = remote.getCache(name);
+        if (remoteCache == null) {
+            return null;
+        }
+        return caches.computeIfAbsent(name, cacheName -> createCache(cacheName, remoteCache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remote.getCacheNames();
+    }
+
+    void publishInvalidation(String cacheName, String key) {
+        String message = nodeId + "|" + cacheName + (key != null ? "|" + key : "");
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+        } catch (Exception e) {
+            log.warn("Failed to publish invalidation of cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        TwoLevelCache cache = caches.get(parts[1]);
+        if (cache != null) {
+            cache.invalidateLocal(parts.length == 3 ? parts[2] : null);
+        }
+    }
+
+    private TwoLevelCache createCache(String name, Cache remoteCache) {
+        L1Settings settings = settingsByCache.getOrDefault(name, defaults);
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(settings.getMaxSize())
+                .expireAfterWrite(settings.getTtl())
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, local, name, Tags.of("tier", "l1"));
+        }
+        log.info("Created L1 cache {} with max size {} and TTL {}", name, settings.getMaxSize(), settings.getTtl());
+        return new TwoLevelCache(name, local, remoteCache, this, singleFlight);
+    }
+
+    @lombok.Value
+    public static class L1Settings {
+        long maxSize;
+        Duration ttl;
+    }
+}
@@ -2,17 +2,23 @@ package com.sb.movie.controllers;
 
 import com.sb.movie.entities.Show;
 import com.sb.movie.request.ShowRequest;
+import com.sb.movie.request.ShowScheduleRequest;
 import com.sb.movie.request.ShowUpdateRequest;
 import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatChangesResponse;
+import com.sb.movie.response.SeatSummaryResponse;
 import com.sb.movie.response.ShowDetailsResponse;
+import com.sb.movie.response.ShowScheduleResponse;
 import com.sb.movie.services.ShowService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.sql.Date;
@@ -41,6 +47,21 @@ public class ShowController {
         }
     }
 
+    @PostMapping("/schedule")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Schedule shows over a date range",
+               description = "Create shows for an event at a theater at the given start times on every day from " +
+                           "startDate to endDate inclusive, with seat prices (Admin only). " +
+                           "Fails without creating anything if any of the slots is already taken.")
+    public ResponseEntity<?> scheduleShows(@Valid @RequestBody ShowScheduleRequest scheduleRequest) {
+        try {
+            ShowScheduleResponse schedule = showService.scheduleShows(scheduleRequest);
+            return new ResponseEntity<>(schedule, HttpStatus.CREATED);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get show details",
                description = "Retrieve comprehensive show details including start/end time, venue location, " +
@@ -79,16 +100,55 @@ public class ShowController {
 
     @GetMapping("/{id}/seats")
     @Operation(summary = "Get real-time seat availability",
-               description = "View seat availability with counts and detailed seat status for a show")
-    public ResponseEntity<?> getSeatAvailability(@PathVariable Integer id) {
+               description = "View seat availability with counts and detailed seat status for a show. " +
+                           "The ETag is the seat state version, which rescheduling the show advances as well; send it as " +
+                           "If-None-Match to get 304 Not Modified while neither the seats nor the show changed.")
+    public ResponseEntity<?> getSeatAvailability(@PathVariable Integer id,
+                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
+            if (ifNoneMatch != null) {
+                Long seatVersion = showService.getSeatVersion(id);
+                if (seatVersion != null && seatVersionTag(seatVersion).equals(ifNoneMatch)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(seatVersionTag(seatVersion)).build();
+                }
+            }
             SeatAvailabilityResponse availability = showService.getSeatAvailability(id);
-            return new ResponseEntity<>(availability, HttpStatus.OK);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (availability.getSeatVersion() != null) {
+                response.eTag(seatVersionTag(availability.getSeatVersion()));
+            }
+            return response.body(availability);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
         }
     }
 
+    @GetMapping("/{id}/seats/changes")
+    @Operation(summary = "Get seats changed since a seat state version",
+               description = "Only the seats whose status changed since the given version (the seatVersion of an " +
+                           "earlier response). Returns every seat, with fullSnapshot set, when the client is too far behind.")
+    public ResponseEntity<?> getSeatChanges(@PathVariable Integer id, @RequestParam long since) {
+        try {
+            SeatChangesResponse changes = showService.getSeatChanges(id, since);
+            return new ResponseEntity<>(changes, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
+    @GetMapping("/seats/summary")
+    @Operation(summary = "Get seat availability summaries of many shows",
+               description = "Seat counts and an availability level (AVAILABLE, FILLING_FAST, SOLD_OUT) for each " +
+                           "of the given shows, e.g. ?showIds=1,2,3. Unknown shows are left out.")
+    public ResponseEntity<?> getSeatSummaries(@RequestParam List<Integer> showIds) {
+        try {
+            List<SeatSummaryResponse> summaries = showService.getSeatSummaries(showIds);
+            return new ResponseEntity<>(summaries, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update show", description = "Update show date and time")
     public ResponseEntity<?> updateShow(@PathVariable Integer id, @Valid @RequestBody ShowUpdateRequest showUpdateRequest) {
@@ -111,4 +171,7 @@ public class ShowController {
         }
     }
 
+    private static String seatVersionTag(long seatVersion) {
+        return "\"" + seatVersion + "\"";
+    }
 }
@@ -1,17 +1,22 @@
 package com.sb.movie.controllers;
 
+import com.sb.movie.request.BestSeatsRequest;
 import com.sb.movie.request.SeatLockRequest;
 import com.sb.movie.request.TicketRequest;
+import com.sb.movie.response.QueueStatusResponse;
 import com.sb.movie.response.SeatLockResponse;
 import com.sb.movie.response.TicketHistoryResponse;
 import com.sb.movie.response.TicketResponse;
 import com.sb.movie.services.TicketService;
+import com.sb.movie.services.WaitingRoomService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
@@ -26,12 +31,38 @@ public class TicketController {
     @Autowired
     private TicketService ticketService;
 
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
     @PostMapping("/lock-seats")
     @Operation(summary = "Lock seats temporarily", description = "Lock selected seats for 10 minutes to allow user to complete payment")
-    public ResponseEntity<Object> lockSeats(@Valid @RequestBody SeatLockRequest seatLockRequest) {
+    public ResponseEntity<Object> lockSeats(@Valid @RequestBody SeatLockRequest seatLockRequest,
+                                            @RequestHeader(value = WaitingRoomService.QUEUE_TOKEN_HEADER, required = false) String queueToken) {
+        QueueStatusResponse admission = waitingRoomService.admit(seatLockRequest.getShowId(), getCurrentUserEmail(), queueToken);
+        if (!admission.isAdmitted()) {
+            return queued(admission);
+        }
+
         try {
             SeatLockResponse result = ticketService.lockSeats(seatLockRequest);
-            return new ResponseEntity<>(result, HttpStatus.OK);
+            return withQueueToken(ResponseEntity.status(HttpStatus.OK), admission).body(result);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        }
+    }
+
+    @PostMapping("/lock-best-seats")
+    @Operation(summary = "Lock best available seats", description = "Pick and lock the best N adjacent seats of a seat type in one call")
+    public ResponseEntity<Object> lockBestSeats(@Valid @RequestBody BestSeatsRequest bestSeatsRequest,
+                                                @RequestHeader(value = WaitingRoomService.QUEUE_TOKEN_HEADER, required = false) String queueToken) {
+        QueueStatusResponse admission = waitingRoomService.admit(bestSeatsRequest.getShowId(), getCurrentUserEmail(), queueToken);
+        if (!admission.isAdmitted()) {
+            return queued(admission);
+        }
+
+        try {
+            SeatLockResponse result = ticketService.lockBestSeats(bestSeatsRequest);
+            return withQueueToken(ResponseEntity.status(HttpStatus.OK), admission).body(result);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
@@ -39,15 +70,32 @@ public class TicketController {
 
     @PostMapping("/book")
     @Operation(summary = "Confirm ticket booking", description = "Finalize booking and mark seats as BOOKED (works with or without prior seat lock)")
-    public ResponseEntity<Object> ticketBooking(@Valid @RequestBody TicketRequest ticketRequest) {
+    public ResponseEntity<Object> ticketBooking(@Valid @RequestBody TicketRequest ticketRequest,
+                                                @RequestHeader(value = WaitingRoomService.QUEUE_TOKEN_HEADER, required = false) String queueToken) {
+        QueueStatusResponse admission = waitingRoomService.admit(ticketRequest.getShowId(), getCurrentUserEmail(), queueToken);
+        if (!admission.isAdmitted()) {
+            return queued(admission);
+        }
+
         try {
             TicketResponse result = ticketService.ticketBooking(ticketRequest);
-            return new ResponseEntity<>(result, HttpStatus.CREATED);
+            return withQueueToken(ResponseEntity.status(HttpStatus.CREATED), admission).body(result);
         } catch (Exception e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
 
+    @GetMapping("/queue/{showId}")
+    @Operation(summary = "Poll waiting room", description = "Join or check the waiting room of a show; admitted once the returned token's turn comes")
+    public ResponseEntity<Object> queueStatus(@PathVariable Integer showId,
+                                              @RequestHeader(value = WaitingRoomService.QUEUE_TOKEN_HEADER, required = false) String queueToken) {
+        QueueStatusResponse admission = waitingRoomService.admit(showId, getCurrentUserEmail(), queueToken);
+        if (!admission.isAdmitted()) {
+            return queued(admission);
+        }
+        return withQueueToken(ResponseEntity.status(HttpStatus.OK), admission).body(admission);
+    }
+
     @PostMapping("/release-seats")
     @Operation(summary = "Release locked seats", description = "Manually release locked seats before expiry")
     public ResponseEntity<Object> releaseSeats(@Valid @RequestBody SeatLockRequest seatLockRequest) {
@@ -82,6 +130,18 @@ public class TicketController {
         }
     }
 
+    @GetMapping("/show/{showId}/seat/{seatNo}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Find ticket by seat", description = "Get the ticket that holds a seat of a show (Admin only)")
+    public ResponseEntity<Object> getTicketForSeat(@PathVariable Integer showId, @PathVariable String seatNo) {
+        try {
+            TicketHistoryResponse ticket = ticketService.getTicketForSeat(showId, seatNo);
+            return new ResponseEntity<>(ticket, HttpStatus.OK);
+        } catch (Exception e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.NOT_FOUND);
+        }
+    }
+
     @DeleteMapping("/{ticketId}")
     @Operation(summary = "Cancel ticket", description = "Cancel a ticket and get refund based on cancellation policy")
     public ResponseEntity<Object> cancelTicket(@PathVariable Integer ticketId) {
@@ -94,6 +154,19 @@ public class TicketController {
         }
     }
 
+    private ResponseEntity<Object> queued(QueueStatusResponse admission) {
+        return withQueueToken(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE), admission)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.getRetryAfterSeconds()))
+                .body(admission);
+    }
+
+    private ResponseEntity.BodyBuilder withQueueToken(ResponseEntity.BodyBuilder builder, QueueStatusResponse admission) {
+        if (admission.getQueueToken() != null) {
+            builder.header(WaitingRoomService.QUEUE_TOKEN_HEADER, admission.getQueueToken());
+        }
+        return builder;
+    }
+
     private String getCurrentUserEmail() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         return authentication.getName();
@@ -9,6 +9,8 @@ public class ShowConvertor {
         Show show = Show.builder()
                 .time(showRequest.getShowStartTime())
                 .date(showRequest.getShowDate())
+                .priceOfClassicSeat(showRequest.getPriceOfClassicSeat())
+                .priceOfPremiumSeat(showRequest.getPriceOfPremiumSeat())
                 .build();
 
         return show;
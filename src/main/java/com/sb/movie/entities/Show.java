@@ -19,7 +19,8 @@ import java.util.List;
        uniqueConstraints = @UniqueConstraint(
                name = "unique_theater_date_time",
                columnNames = {"theater_id", "date", "time"}
-       ))
+       ),
+       indexes = @Index(name = "idx_show_seat_id_base", columnList = "seatIdBase"))
 @Data
 @Builder
 @NoArgsConstructor
@@ -35,6 +36,15 @@ public class Show {
 
     private Date date;
 
+    private Integer priceOfClassicSeat;
+
+    private Integer priceOfPremiumSeat;
+
+    // SPARSE seat storage: SHOW_SEATS ids seatIdBase, seatIdBase + 1, ... are reserved for the theater's
+    // seats in layout order. Null for shows whose seats were all created up front.
+    @JsonIgnore
+    private Integer seatIdBase;
+
     @ManyToOne
     @JoinColumn
     @JsonIgnore
@@ -5,12 +5,14 @@ import com.sb.movie.enums.SeatType;
 import jakarta.persistence.*;
 import lombok.Data;
 
+import java.sql.Date;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "SHOW_SEATS", indexes = {
     @Index(name = "idx_show_seat", columnList = "show_showId,seatNo"),
-    @Index(name = "idx_seat_status", columnList = "status")
+    @Index(name = "idx_seat_status", columnList = "status"),
+    @Index(name = "idx_seat_status_locked_at", columnList = "status,lockedAt")
 })
 @Data
 public class ShowSeat {
@@ -43,6 +45,16 @@ public class ShowSeat {
     @JoinColumn(name = "show_showId", nullable = false)
     private Show show;
 
+    // Copy of the show's date, the partition key of SHOW_SEATS
+    private Date showDate;
+
+    @PrePersist
+    void copyShowDate() {
+        if (showDate == null && show != null) {
+            showDate = show.getDate();
+        }
+    }
+
     public Boolean getIsAvailable() {
         return status == SeatStatus.AVAILABLE;
     }
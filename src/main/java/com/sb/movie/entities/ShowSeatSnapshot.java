@@ -0,0 +1,55 @@
+package com.sb.movie.entities;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Seats of a finished show, archived into one row in place of its SHOW_SEATS rows.
+ *
+ * Seats are kept in id order. Ids are stored as runs of consecutive ids, seat numbers comma-joined,
+ * and seat type, price and status as bit-packed codes: per seat an index into the seat types, an
+ * index into the price table and a bit that is set when the seat was booked.
+ * See {@code SeatSnapshotCodec}.
+ */
+@Entity
+@Table(name = "show_seat_snapshots")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShowSeatSnapshot {
+
+    @Id
+    private Integer showId;
+
+    @Column(nullable = false)
+    private Integer seatCount;
+
+    // "firstId:length" per run of consecutive ids, comma-joined
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String seatIdRuns;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String seatNos;
+
+    @Column(nullable = false)
+    private byte[] seatTypes;
+
+    // Distinct seat prices, comma-joined and ascending
+    @Column(nullable = false)
+    private String priceTable;
+
+    @Column(nullable = false)
+    private byte[] priceIndexes;
+
+    @Column(nullable = false)
+    private byte[] bookedSeats;
+
+    @Column(nullable = false)
+    private LocalDateTime archivedAt;
+}
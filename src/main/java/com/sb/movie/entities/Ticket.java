@@ -8,6 +8,8 @@ import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
 @Table(name = "TICKETS")
@@ -25,6 +27,15 @@ public class Ticket {
 
     private String bookedSeats;
 
+    // SHOW_SEATS ids of the booked seats; bookedSeats keeps the seat numbers for display
+    @ElementCollection
+    @CollectionTable(name = "TICKET_SEATS",
+            joinColumns = @JoinColumn(name = "ticket_id"),
+            indexes = @Index(name = "idx_ticket_seat_show_seat", columnList = "show_seat_id"))
+    @Column(name = "show_seat_id")
+    @Builder.Default
+    private List<Integer> seatIds = new ArrayList<>();
+
     @CreationTimestamp
     private Date bookedAt;
 
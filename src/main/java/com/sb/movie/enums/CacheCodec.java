@@ -0,0 +1,6 @@
+package com.sb.movie.enums;
+
+public enum CacheCodec {
+    JSON,   // Default-typed JSON, readable with redis-cli
+    SMILE   // Binary JSON with the same type info; repeated names and @class values are back-referenced (default)
+}
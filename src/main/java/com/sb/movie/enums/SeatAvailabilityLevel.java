@@ -0,0 +1,7 @@
+package com.sb.movie.enums;
+
+public enum SeatAvailabilityLevel {
+    AVAILABLE,     // Plenty of seats left
+    FILLING_FAST,  // Few seats left, see booking.seat-summary.filling-fast-percent
+    SOLD_OUT       // No seat can be locked
+}
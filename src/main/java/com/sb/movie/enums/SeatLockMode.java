@@ -0,0 +1,10 @@
+package com.sb.movie.enums;
+
+public enum SeatLockMode {
+    PESSIMISTIC,      // SELECT ... FOR UPDATE on SHOW_SEATS rows (default)
+    OPTIMISTIC,       // No row locks; @Version conflicts at flush are retried in a new transaction
+    COMPARE_AND_SET,  // Single conditional UPDATE per operation, checked by affected row count
+    MEMORY,           // In-process per-show seat state, written behind to SHOW_SEATS (single node only)
+    MAILBOX,          // Per-show single writer over in-memory state, committed in micro-batches
+    REDIS             // Lua-scripted holds in Redis with TTL; SHOW_SEATS is only written at booking time
+}
@@ -0,0 +1,6 @@
+package com.sb.movie.enums;
+
+public enum ShowSeatStorage {
+    FULL,    // Every theater seat is copied into SHOW_SEATS when the show is created (default)
+    SPARSE   // SHOW_SEATS only gets rows for seats that are held or booked; the rest come from the theater layout
+}
@@ -1,13 +1,16 @@
 package com.sb.movie.repositories;
 
 import com.sb.movie.entities.Show;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.sql.Date;
 import java.sql.Time;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ShowRepository extends JpaRepository<Show, Integer> {
 
@@ -20,6 +23,25 @@ public interface ShowRepository extends JpaRepository<Show, Integer> {
                            @Param("theaterId") Integer theaterId,
                            @Param("date") Date date);
 
+    @Query("SELECT s.seatIdBase AS seatIdBase, t.id AS theaterId, s.date AS showDate, " +
+           "s.priceOfClassicSeat AS priceOfClassicSeat, s.priceOfPremiumSeat AS priceOfPremiumSeat " +
+           "FROM Show s LEFT JOIN s.theater t WHERE s.showId = :showId")
+    Optional<SeatStorageRow> findSeatStorageByShowId(@Param("showId") Integer showId);
+
+    @Query("SELECT s.showId FROM Show s WHERE s.showId IN :showIds")
+    List<Integer> findExistingShowIds(@Param("showIds") Collection<Integer> showIds);
+
+    @Query("SELECT s.showId FROM Show s WHERE s.date >= :date")
+    List<Integer> findShowIdsFromDate(@Param("date") Date date);
+
+    // Finished shows whose seats are not archived yet, paged by show id
+    @Query("SELECT s.showId FROM Show s WHERE s.date < :before AND s.showId > :afterShowId " +
+           "AND NOT EXISTS (SELECT 1 FROM ShowSeatSnapshot snapshot WHERE snapshot.showId = s.showId) " +
+           "ORDER BY s.showId")
+    List<Integer> findShowIdsToArchive(@Param("before") Date before,
+                                       @Param("afterShowId") Integer afterShowId,
+                                       Pageable pageable);
+
     @Query("SELECT COUNT(s) > 0 FROM Show s WHERE " +
            "s.theater.id = :theaterId AND " +
            "s.date = :date AND " +
@@ -28,6 +50,16 @@ public interface ShowRepository extends JpaRepository<Show, Integer> {
                                           @Param("date") Date date,
                                           @Param("time") Time time);
 
+    @Query("SELECT s.date, s.time FROM Show s WHERE " +
+           "s.theater.id = :theaterId AND " +
+           "s.date BETWEEN :startDate AND :endDate AND " +
+           "s.time IN :times " +
+           "ORDER BY s.date, s.time")
+    List<Object[]> findSlotsInRange(@Param("theaterId") Integer theaterId,
+                                    @Param("startDate") Date startDate,
+                                    @Param("endDate") Date endDate,
+                                    @Param("times") Collection<Time> times);
+
     @Query("SELECT COUNT(s) > 0 FROM Show s WHERE " +
            "s.theater.id = :theaterId AND " +
            "s.date = :date AND " +
@@ -37,4 +69,12 @@ public interface ShowRepository extends JpaRepository<Show, Integer> {
                                                        @Param("date") Date date,
                                                        @Param("time") Time time,
                                                        @Param("showId") Integer showId);
+
+    interface SeatStorageRow {
+        Integer getSeatIdBase();
+        Integer getTheaterId();
+        Date getShowDate();
+        Integer getPriceOfClassicSeat();
+        Integer getPriceOfPremiumSeat();
+    }
 }
@@ -2,6 +2,7 @@ package com.sb.movie.repositories;
 
 import com.sb.movie.entities.ShowSeat;
 import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
@@ -9,21 +10,120 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.sql.Date;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * SHOW_SEATS can be partitioned by show date (see {@code ShowSeatPartitionManager}). Queries on the
+ * booking path take the show's date as well, so Postgres only visits the show's partition; a plain
+ * {@code findById} or {@code findAllById} would scan the id index of every partition.
+ */
 public interface ShowSeatRepository extends JpaRepository<ShowSeat, Integer> {
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT ss FROM ShowSeat ss WHERE ss.id IN :seatIds")
-    List<ShowSeat> findAndLockByIds(@Param("seatIds") List<Integer> seatIds);
+    @Query("SELECT ss FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.id IN :seatIds")
+    List<ShowSeat> findAndLockByIds(@Param("showDate") Date showDate, @Param("seatIds") List<Integer> seatIds);
+
+    @Query("SELECT ss FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.id IN :seatIds")
+    List<ShowSeat> findByIds(@Param("showDate") Date showDate, @Param("seatIds") List<Integer> seatIds);
+
+    @Query("SELECT ss FROM ShowSeat ss WHERE ss.show.showId = :showId")
+    List<ShowSeat> findByShowId(@Param("showId") Integer showId);
+
+    @Query("SELECT ss FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId")
+    List<ShowSeat> findByShowId(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    @Query("SELECT ss.id AS id, ss.seatNo AS seatNo, ss.seatType AS seatType, ss.price AS price " +
+           "FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId")
+    List<SeatDirectoryRow> findDirectoryByShowId(@Param("showId") Integer showId,
+                                                 @Param("showDate") Date showDate);
+
+    @Query("SELECT ss FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId " +
+           "AND ss.status = 'LOCKED' AND ss.lockedByUserId = :userId")
+    List<ShowSeat> findLockedSeatsByShowAndUser(@Param("showId") Integer showId,
+                                                @Param("showDate") Date showDate,
+                                                @Param("userId") Integer userId);
 
     @Query("SELECT ss FROM ShowSeat ss WHERE ss.show.showId = :showId AND ss.status = 'AVAILABLE'")
     List<ShowSeat> findAvailableSeatsByShowId(@Param("showId") Integer showId);
 
+    @Query("SELECT ss.id FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId " +
+           "AND ss.status = 'AVAILABLE'")
+    List<Integer> findAvailableSeatIdsByShowId(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    @Query("SELECT ss.id FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId " +
+           "AND ss.status <> 'AVAILABLE'")
+    List<Integer> findUnavailableSeatIdsByShowId(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    @Query("SELECT ss.id AS id, ss.seatNo AS seatNo, ss.status AS status, ss.lockedByUserId AS lockedByUserId " +
+           "FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId AND ss.status <> 'AVAILABLE'")
+    List<SeatStateRow> findUnavailableSeatStatesByShowId(@Param("showId") Integer showId,
+                                                         @Param("showDate") Date showDate);
+
     @Query("SELECT COUNT(ss) FROM ShowSeat ss WHERE ss.show.showId = :showId AND ss.status = 'AVAILABLE'")
     Long countAvailableSeatsByShowId(@Param("showId") Integer showId);
 
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'BOOKED', ss.lockedAt = NULL, ss.lockedByUserId = NULL, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.id IN :seatIds " +
+           "AND ss.status = 'AVAILABLE'")
+    int bookIfAvailable(@Param("showDate") Date showDate, @Param("seatIds") List<Integer> seatIds);
+
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'LOCKED', ss.lockedAt = :lockTime, ss.lockedByUserId = :userId, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.id IN :seatIds " +
+           "AND ss.status = 'AVAILABLE'")
+    int lockIfAvailable(@Param("showDate") Date showDate,
+                        @Param("seatIds") List<Integer> seatIds,
+                        @Param("userId") Integer userId,
+                        @Param("lockTime") LocalDateTime lockTime);
+
+    // Books every seat the user holds for the show, but only if all of them are among the requested seats
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'BOOKED', ss.lockedAt = NULL, ss.lockedByUserId = NULL, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.show.showId = :showId " +
+           "AND ss.status = 'LOCKED' AND ss.lockedByUserId = :userId AND NOT EXISTS (SELECT 1 FROM ShowSeat other " +
+           "WHERE other.showDate = :showDate AND other.show.showId = :showId AND other.status = 'LOCKED' " +
+           "AND other.lockedByUserId = :userId AND other.id NOT IN :seatIds)")
+    int bookHeldSeats(@Param("showId") Integer showId,
+                      @Param("showDate") Date showDate,
+                      @Param("seatIds") List<Integer> seatIds,
+                      @Param("userId") Integer userId);
+
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'AVAILABLE', ss.lockedAt = NULL, ss.lockedByUserId = NULL, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.id IN :seatIds " +
+           "AND ss.status = 'BOOKED'")
+    int releaseBookedSeats(@Param("showDate") Date showDate, @Param("seatIds") List<Integer> seatIds);
+
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'AVAILABLE', ss.lockedAt = NULL, ss.lockedByUserId = NULL, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.id IN :seatIds " +
+           "AND ss.status = 'LOCKED' AND ss.lockedByUserId = :userId")
+    int releaseIfLockedBy(@Param("showDate") Date showDate,
+                          @Param("seatIds") List<Integer> seatIds,
+                          @Param("userId") Integer userId);
+
+    // Scalar projection: reads the current row values even when the entities are already managed
+    @Query("SELECT ss.id AS id, ss.seatNo AS seatNo, ss.status AS status, ss.lockedByUserId AS lockedByUserId " +
+           "FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.id IN :seatIds")
+    List<SeatStateRow> findSeatStatesByIds(@Param("showDate") Date showDate, @Param("seatIds") List<Integer> seatIds);
+
+    // Seats not available, by type and status: stats of a show without loading its seats
+    @Query("SELECT ss.seatType AS seatType, ss.status AS status, COUNT(ss) AS seats FROM ShowSeat ss " +
+           "WHERE ss.showDate = :showDate AND ss.show.showId = :showId AND ss.status <> 'AVAILABLE' " +
+           "GROUP BY ss.seatType, ss.status")
+    List<SeatCountRow> countUnavailableSeatsByType(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    // Same for several shows at once, pruned to the partitions of their dates
+    @Query("SELECT ss.show.showId AS showId, ss.seatType AS seatType, ss.status AS status, COUNT(ss) AS seats " +
+           "FROM ShowSeat ss WHERE ss.showDate IN :showDates AND ss.show.showId IN :showIds " +
+           "AND ss.status <> 'AVAILABLE' GROUP BY ss.show.showId, ss.seatType, ss.status")
+    List<ShowSeatCountRow> countUnavailableSeatsByShows(@Param("showIds") Collection<Integer> showIds,
+                                                        @Param("showDates") Collection<Date> showDates);
+
     @Query("SELECT ss FROM ShowSeat ss WHERE ss.status = 'LOCKED' AND ss.lockedAt < :expiryTime")
     List<ShowSeat> findExpiredLockedSeats(@Param("expiryTime") LocalDateTime expiryTime);
 
@@ -31,4 +131,51 @@ public interface ShowSeatRepository extends JpaRepository<ShowSeat, Integer> {
     @Query("UPDATE ShowSeat ss SET ss.status = 'AVAILABLE', ss.lockedAt = NULL, ss.lockedByUserId = NULL " +
            "WHERE ss.status = 'LOCKED' AND ss.lockedAt < :expiryTime")
     int releaseExpiredLocks(@Param("expiryTime") LocalDateTime expiryTime);
+
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.status = 'AVAILABLE', ss.lockedAt = NULL, ss.lockedByUserId = NULL, " +
+           "ss.version = ss.version + 1 WHERE ss.showDate = :showDate AND ss.show.showId = :showId " +
+           "AND ss.status = 'LOCKED' AND ss.lockedAt < :expiryTime")
+    int releaseExpiredLocksByShow(@Param("showId") Integer showId,
+                                  @Param("showDate") Date showDate,
+                                  @Param("expiryTime") LocalDateTime expiryTime);
+
+    // Holds only exist on seats of shows that have not happened yet, so past partitions are skipped
+    @Query("SELECT DISTINCT ss.show.showId FROM ShowSeat ss WHERE ss.showDate >= :fromDate " +
+           "AND ss.status = 'LOCKED' AND ss.lockedAt < :expiryTime")
+    List<Integer> findShowIdsWithExpiredLocks(@Param("fromDate") Date fromDate,
+                                              @Param("expiryTime") LocalDateTime expiryTime);
+
+    // Moves the seats of a rescheduled show to the partition of its new date
+    @Modifying
+    @Query("UPDATE ShowSeat ss SET ss.showDate = :showDate WHERE ss.show.showId = :showId")
+    int updateShowDate(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    @Modifying
+    @Query("DELETE FROM ShowSeat ss WHERE ss.showDate = :showDate AND ss.show.showId = :showId")
+    int deleteByShowId(@Param("showId") Integer showId, @Param("showDate") Date showDate);
+
+    interface SeatDirectoryRow {
+        Integer getId();
+        String getSeatNo();
+        SeatType getSeatType();
+        Integer getPrice();
+    }
+
+    interface SeatStateRow {
+        Integer getId();
+        String getSeatNo();
+        SeatStatus getStatus();
+        Integer getLockedByUserId();
+    }
+
+    interface SeatCountRow {
+        SeatType getSeatType();
+        SeatStatus getStatus();
+        Long getSeats();
+    }
+
+    interface ShowSeatCountRow extends SeatCountRow {
+        Integer getShowId();
+    }
 }
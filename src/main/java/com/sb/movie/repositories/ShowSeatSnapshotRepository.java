@@ -0,0 +1,7 @@
+package com.sb.movie.repositories;
+
+import com.sb.movie.entities.ShowSeatSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ShowSeatSnapshotRepository extends JpaRepository<ShowSeatSnapshot, Integer> {
+}
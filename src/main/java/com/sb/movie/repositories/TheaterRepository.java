@@ -1,6 +1,7 @@
 package com.sb.movie.repositories;
 
 import com.sb.movie.entities.Theater;
+import com.sb.movie.enums.SeatType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -27,4 +28,14 @@ public interface TheaterRepository extends JpaRepository<Theater, Integer> {
            "t.venue.id = :venueId")
     boolean existsByNameAndVenueId(@Param("name") String name,
                                    @Param("venueId") Integer venueId);
+
+    // Seat layout in the order SPARSE shows reserve their seat ids
+    @Query("SELECT ts.seatNo AS seatNo, ts.seatType AS seatType FROM TheaterSeat ts " +
+           "WHERE ts.theater.id = :theaterId ORDER BY ts.id")
+    List<TheaterSeatRow> findLayoutByTheaterId(@Param("theaterId") Integer theaterId);
+
+    interface TheaterSeatRow {
+        String getSeatNo();
+        SeatType getSeatType();
+    }
 }
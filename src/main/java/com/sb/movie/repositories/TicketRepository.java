@@ -2,10 +2,21 @@ package com.sb.movie.repositories;
 
 import com.sb.movie.entities.Ticket;
 import com.sb.movie.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface TicketRepository extends JpaRepository<Ticket,Integer> {
     List<Ticket> findByUser(User user);
+
+    @Query("SELECT t FROM Ticket t JOIN t.seatIds seatId WHERE seatId = :seatId")
+    Optional<Ticket> findBySeatId(@Param("seatId") Integer seatId);
+
+    // Tickets booked before seat ids were recorded, in id order for keyset paging
+    @Query("SELECT t FROM Ticket t WHERE t.seatIds IS EMPTY AND t.ticketId > :afterTicketId ORDER BY t.ticketId")
+    List<Ticket> findWithoutSeatIds(@Param("afterTicketId") Integer afterTicketId, Pageable pageable);
 }
@@ -0,0 +1,24 @@
+package com.sb.movie.request;
+
+import com.sb.movie.enums.SeatType;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+@Data
+public class BestSeatsRequest {
+    @NotNull(message = "Show ID is required")
+    private Integer showId;
+
+    @NotNull(message = "User ID is required")
+    private Integer userId;
+
+    @NotNull(message = "Number of seats is required")
+    @Min(value = 1, message = "At least one seat must be requested")
+    @Max(value = 10, message = "At most 10 seats can be requested together")
+    private Integer numberOfSeats;
+
+    // Optional; any seat type when not set
+    private SeatType seatType;
+}
@@ -0,0 +1,39 @@
+package com.sb.movie.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.util.List;
+
+@Data
+public class ShowScheduleRequest {
+
+    @NotNull(message = "Event ID is required")
+    private Integer eventId;
+
+    @NotNull(message = "Theater ID is required")
+    private Integer theaterId;
+
+    @NotNull(message = "Start date is required")
+    private Date startDate;
+
+    // Inclusive
+    @NotNull(message = "End date is required")
+    private Date endDate;
+
+    // Start times repeated on every day of the range
+    @NotEmpty(message = "At least one show time is required")
+    private List<@NotNull Time> showTimes;
+
+    @NotNull(message = "Price for premium seats is required")
+    @Min(value = 1, message = "Price for premium seats must be greater than 0")
+    private Integer priceOfPremiumSeat;
+
+    @NotNull(message = "Price for classic seats is required")
+    @Min(value = 1, message = "Price for classic seats must be greater than 0")
+    private Integer priceOfClassicSeat;
+}
@@ -0,0 +1,19 @@
+package com.sb.movie.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QueueStatusResponse {
+    private Integer showId;
+    private boolean admitted;
+    private Long position;
+    private Long retryAfterSeconds;
+    private String queueToken;
+    private String message;
+}
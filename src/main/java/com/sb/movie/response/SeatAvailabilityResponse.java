@@ -10,7 +10,7 @@ import java.sql.Time;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class SeatAvailabilityResponse {
@@ -30,6 +30,9 @@ public class SeatAvailabilityResponse {
     private Integer lockedSeats;
     private Integer bookedSeats;
 
+    // Seat state version the seats are at least as recent as, see GET /api/shows/{id}/seats/changes
+    private Long seatVersion;
+
     // Detailed seat list
     private List<SeatInfo> seats;
 }
@@ -0,0 +1,24 @@
+package com.sb.movie.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatChangesResponse {
+    private Integer showId;
+
+    // Seat state version to ask for changes since next time; null when versions are unavailable
+    private Long seatVersion;
+
+    // True when seats holds every seat of the show rather than only the changed ones
+    private boolean fullSnapshot;
+
+    private List<SeatInfo> seats;
+}
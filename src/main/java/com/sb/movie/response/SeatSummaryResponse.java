@@ -0,0 +1,23 @@
+package com.sb.movie.response;
+
+import com.sb.movie.enums.SeatAvailabilityLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeatSummaryResponse {
+    private Integer showId;
+
+    // Seat statistics
+    private Integer totalSeats;
+    private Integer availableSeats;
+    private Integer lockedSeats;
+    private Integer bookedSeats;
+
+    private SeatAvailabilityLevel availability;
+}
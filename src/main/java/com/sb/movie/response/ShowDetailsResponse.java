@@ -13,7 +13,7 @@ import java.sql.Time;
 import java.util.Map;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class ShowDetailsResponse {
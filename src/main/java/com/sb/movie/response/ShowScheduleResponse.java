@@ -0,0 +1,20 @@
+package com.sb.movie.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ShowScheduleResponse {
+    private Integer eventId;
+    private Integer theaterId;
+    private Integer showsCreated;
+    private Integer seatsCreated;
+    private List<Integer> showIds;
+}
@@ -1,7 +1,6 @@
 package com.sb.movie.services;
 
 import com.sb.movie.config.KafkaConfig;
-import com.sb.movie.events.BookingConfirmedEvent;
 import com.sb.movie.events.BookingFailedEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -19,37 +18,25 @@ public class BookingEventProducer {
     private final KafkaTemplate<String, Object> kafkaTemplate;
 
     /**
-     * Publishes a booking confirmed event to Kafka
+     * Sends an outbox payload to its topic. Used by {@link BookingOutboxRelay}, which waits for
+     * the returned future before marking the outbox row published.
      */
-    public void publishBookingConfirmed(BookingConfirmedEvent event) {
-        log.info("Publishing BookingConfirmedEvent for booking ID: {} to topic: {}",
-                event.getBookingId(), KafkaConfig.BOOKING_CONFIRMED_TOPIC);
+    public CompletableFuture<SendResult<String, Object>> send(String topic, String key, Object payload) {
+        log.debug("Publishing outbox message with key {} to topic: {}", key, topic);
 
-        try {
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
-                    KafkaConfig.BOOKING_CONFIRMED_TOPIC,
-                    event.getBookingReference(),
-                    event
-            );
-
-            future.whenComplete((result, ex) -> {
-                if (ex == null) {
-                    log.info("Successfully published BookingConfirmedEvent for booking ID: {} to partition: {} with offset: {}",
-                            event.getBookingId(),
-                            result.getRecordMetadata().partition(),
-                            result.getRecordMetadata().offset());
-                    log.debug("Event details - User: {}, Event: {}, Seats: {}, Price: {}",
-                            event.getUserEmail(), event.getEventName(),
-                            event.getBookedSeats(), event.getTotalPrice());
-                } else {
-                    log.error("Failed to publish BookingConfirmedEvent for booking ID: {}. Error: {}",
-                            event.getBookingId(), ex.getMessage(), ex);
-                }
-            });
-        } catch (Exception e) {
-            log.error("Exception occurred while publishing BookingConfirmedEvent for booking ID: {}. Error: {}",
-                    event.getBookingId(), e.getMessage(), e);
-        }
+        CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(topic, key, payload);
+        future.whenComplete((result, ex) -> {
+            if (ex == null) {
+                log.info("Successfully published message with key {} to topic {} partition: {} with offset: {}",
+                        key, topic,
+                        result.getRecordMetadata().partition(),
+                        result.getRecordMetadata().offset());
+            } else {
+                log.error("Failed to publish message with key {} to topic {}. Error: {}",
+                        key, topic, ex.getMessage());
+            }
+        });
+        return future;
     }
 
     /**
@@ -0,0 +1,48 @@
+package com.sb.movie.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.movie.config.KafkaConfig;
+import com.sb.movie.entities.OutboxEvent;
+import com.sb.movie.events.BookingConfirmedEvent;
+import com.sb.movie.repositories.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Writes booking events to the outbox table. Must be called inside the booking transaction, so an
+ * event exists exactly when its booking commits; {@link BookingOutboxRelay} publishes it to Kafka.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingOutbox {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void addBookingConfirmed(BookingConfirmedEvent event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize booking confirmed event: " + e.getMessage(), e);
+        }
+
+        outboxEventRepository.save(OutboxEvent.builder()
+                .topic(KafkaConfig.BOOKING_CONFIRMED_TOPIC)
+                .messageKey(event.getBookingReference())
+                .payload(payload)
+                .createdAt(LocalDateTime.now())
+                .attempts(0)
+                .build());
+
+        log.debug("Queued BookingConfirmedEvent for booking ID: {} in the outbox", event.getBookingId());
+    }
+}
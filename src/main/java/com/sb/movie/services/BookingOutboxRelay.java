@@ -0,0 +1,135 @@
+package com.sb.movie.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.movie.entities.OutboxEvent;
+import com.sb.movie.repositories.OutboxEventRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox rows to Kafka off the booking path.
+ *
+ * Each round locks up to {@code booking.outbox.batch-size} unpublished rows with SKIP LOCKED, sends
+ * them all before waiting for any acknowledgement, and marks the acknowledged ones published in one
+ * UPDATE. Rows that were not acknowledged stay unpublished and are retried next round, so delivery
+ * is at least once; consumers can deduplicate on the message key (the booking reference).
+ *
+ * A row that failed {@code booking.outbox.max-attempts} times is no longer relayed, so a message the
+ * broker keeps rejecting does not hold up the rows behind it. It stays in the table, unpublished,
+ * for inspection.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingOutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final BookingEventProducer bookingEventProducer;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${booking.outbox.send-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Value("${booking.outbox.retention-hours:24}")
+    private int retentionHours;
+
+    @Value("${booking.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${booking.outbox.relay-interval-ms:500}")
+    public void relay() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> relayBatch());
+            } while (published != null && published == batchSize);
+        } catch (Exception e) {
+            log.error("Failed to relay outbox events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Published rows are only kept for troubleshooting.
+     */
+    @Scheduled(cron = "0 30 * * * *")
+    public void purgePublished() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        if (deleted != null && deleted > 0) {
+            log.info("Purged {} published outbox events", deleted);
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockUnpublished(batchSize, maxAttempts);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<SendResult<String, Object>>> sends = new ArrayList<>(batch.size());
+        for (OutboxEvent event : batch) {
+            sends.add(send(event));
+        }
+
+        List<Long> publishedIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                sends.get(i).get(remaining, TimeUnit.NANOSECONDS);
+                publishedIds.add(event.getId());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedIds.add(event.getId());
+            } catch (Exception e) {
+                log.warn("Failed to publish outbox event {} to {}: {}", event.getId(), event.getTopic(), e.getMessage());
+                failedIds.add(event.getId());
+            }
+        }
+
+        if (!publishedIds.isEmpty()) {
+            outboxEventRepository.markPublished(publishedIds, LocalDateTime.now());
+        }
+        if (!failedIds.isEmpty()) {
+            outboxEventRepository.recordFailedAttempt(failedIds);
+            long givenUp = outboxEventRepository.countGivenUp(failedIds, maxAttempts);
+            if (givenUp > 0) {
+                log.error("Gave up on {} outbox events after {} failed attempts", givenUp, maxAttempts);
+            }
+        }
+
+        log.debug("Relayed {} of {} outbox events", publishedIds.size(), batch.size());
+        return publishedIds.size();
+    }
+
+    private CompletableFuture<SendResult<String, Object>> send(OutboxEvent event) {
+        try {
+            CompletableFuture<SendResult<String, Object>> future = bookingEventProducer.send(
+                    event.getTopic(), event.getMessageKey(), objectMapper.readTree(event.getPayload()));
+            return future != null ? future
+                    : CompletableFuture.failedFuture(new IllegalStateException("Producer returned no result"));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a booking operation in its own transaction.
+ *
+ * In OPTIMISTIC seat lock mode a version conflict on SHOW_SEATS rolls the transaction back and the
+ * whole operation is retried in a fresh transaction with jittered exponential backoff, up to
+ * {@code booking.optimistic.max-attempts}. Other modes run the operation exactly once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BookingTransactionExecutor {
+
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.seat-lock.mode:PESSIMISTIC}")
+    private SeatLockMode mode;
+
+    @Value("${booking.optimistic.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${booking.optimistic.backoff-ms:10}")
+    private long backoffMs;
+
+    public <T> T execute(Supplier<T> operation) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        // Retrying only makes sense when the attempt owns its transaction
+        boolean retryable = mode == SeatLockMode.OPTIMISTIC
+                && !TransactionSynchronizationManager.isActualTransactionActive();
+        int attempts = retryable ? Math.max(1, maxAttempts) : 1;
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> operation.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= attempts) {
+                    log.warn("Seat update conflict after {} attempt(s): {}", attempt, e.getMessage());
+                    throw new SeatsNotAvailable("Seats are being booked by other users. Please try again");
+                }
+                log.debug("Seat update conflict on attempt {}, retrying", attempt);
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void run(Runnable operation) {
+        execute(() -> {
+            operation.run();
+            return null;
+        });
+    }
+
+    // Equal jitter: half of the exponential delay is fixed, the other half random
+    private void backoff(int attempt) {
+        long delay = backoffMs << Math.min(attempt - 1, 10);
+        long sleepMs = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        try {
+            Thread.sleep(sleepMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SeatsNotAvailable("Booking interrupted. Please try again");
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.sb.movie.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tags on cache entries, so a change evicts only the entries it can affect instead of clearing
+ * the whole cache.
+ *
+ * Each tag of a cache is a Redis set {@code cache-tags:{cacheName}:tag} holding the keys of the
+ * entries carrying it, e.g. {@code cache-tags:{showSearch}:event:5}. Evicting tags removes their
+ * sets and evicts every entry they held, in the cache itself so the L1 copies go too. Tag sets
+ * expire with the cache entries; a key left in a set after its entry expired only costs a
+ * needless evict.
+ *
+ * Tagged entries are stored through {@link #cached}: an entry is tagged before it is stored, so a
+ * tag eviction never misses an entry that is already stored, and its tags are checked again after,
+ * so an eviction that ran in between, before there was anything to evict, evicts it then.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheTagIndex {
+
+    public static final String ANY = "any";
+
+    private static final String TAG_LUA =
+            "for i = 1, #KEYS do\n" +
+            "    redis.call('SADD', KEYS[i], ARGV[1])\n" +
+            "    redis.call('PEXPIRE', KEYS[i], ARGV[2])\n" +
+            "end\n" +
+            "return #KEYS";
+
+    private static final String TAGGED_LUA =
+            "for i = 1, #KEYS do\n" +
+            "    if redis.call('SISMEMBER', KEYS[i], ARGV[1]) == 0 then\n" +
+            "        return 0\n" +
+            "    end\n" +
+            "end\n" +
+            "return 1";
+
+    private static final String EVICT_LUA =
+            "local keys = redis.call('SUNION', unpack(KEYS))\n" +
+            "redis.call('DEL', unpack(KEYS))\n" +
+            "return keys";
+
+    private static final RedisScript<Long> TAG_SCRIPT = new DefaultRedisScript<>(TAG_LUA, Long.class);
+    private static final RedisScript<Long> TAGGED_SCRIPT = new DefaultRedisScript<>(TAGGED_LUA, Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> EVICT_SCRIPT = new DefaultRedisScript<>(EVICT_LUA, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CacheManager cacheManager;
+
+    @Value("${spring.cache.redis.time-to-live:3600000}")
+    private long ttlMillis;
+
+    /**
+     * Entry of {@code key} in the given cache, or the list {@code loader} returns, stored with the
+     * tags {@code tagsOf} gives it unless it is empty.
+     */
+    @SuppressWarnings("unchecked")
+    public <E> List<E> cached(String cacheName, String key, Supplier<List<E>> loader,
+                              Function<List<E>, Collection<String>> tagsOf) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return loader.get();
+        }
+        Cache.ValueWrapper cached = cache.get(key);
+        if (cached != null) {
+            return (List<E>) cached.get();
+        }
+
+        List<E> loaded = loader.get();
+        if (loaded == null || loaded.isEmpty()) {
+            return loaded;
+        }
+        Collection<String> tags = tagsOf.apply(loaded);
+        tag(cacheName, key, tags);
+        cache.put(key, loaded);
+        if (!tagged(cacheName, key, tags)) {
+            log.debug("Tags of entry {} of cache {} were evicted while storing it", key, cacheName);
+            cache.evict(key);
+        }
+        return loaded;
+    }
+
+    /**
+     * Tag the entry of {@code key} in the given cache. A failure is logged; the entry is then only
+     * evicted by its TTL.
+     */
+    public void tag(String cacheName, Object key, Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(TAG_SCRIPT, tagKeys(cacheName, tags), key.toString(), Long.toString(ttlMillis));
+        } catch (Exception e) {
+            log.warn("Failed to tag entry {} of cache {}: {}", key, cacheName, e.getMessage());
+        }
+    }
+
+    // Whether the entry still carries every tag; not when that cannot be told
+    private boolean tagged(String cacheName, String key, Collection<String> tags) {
+        if (tags.isEmpty()) {
+            return true;
+        }
+        try {
+            Long tagged = stringRedisTemplate.execute(TAGGED_SCRIPT, tagKeys(cacheName, tags), key);
+            return tagged != null && tagged == 1;
+        } catch (Exception e) {
+            log.warn("Failed to check tags of entry {} of cache {}: {}", key, cacheName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Evict every entry of the given cache carrying one of the tags, or the whole cache when the
+     * tagged entries cannot be found.
+     */
+    @SuppressWarnings("unchecked")
+    public void evict(String cacheName, Collection<String> tags) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null || tags.isEmpty()) {
+            return;
+        }
+
+        List<Object> keys;
+        try {
+            keys = stringRedisTemplate.execute(EVICT_SCRIPT, tagKeys(cacheName, tags));
+        } catch (Exception e) {
+            log.warn("Failed to evict tags {} of cache {}, clearing it: {}", tags, cacheName, e.getMessage());
+            cache.clear();
+            return;
+        }
+        for (Object key : keys) {
+            cache.evict(key.toString());
+        }
+        log.debug("Evicted {} entries of cache {} tagged {}", keys.size(), cacheName, tags);
+    }
+
+    /**
+     * Evict the tagged entries once the current transaction commits, so they are not loaded again
+     * from data that is about to change.
+     */
+    public void evictAfterCommit(String cacheName, Collection<String> tags) {
+        Set<String> evicted = new LinkedHashSet<>(tags);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(cacheName, evicted);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(cacheName, evicted);
+            }
+        });
+    }
+
+    public static String tag(String kind, Object value) {
+        return kind + ":" + value;
+    }
+
+    // Cities are matched case-insensitively
+    public static String cityTag(String city) {
+        return tag("city", city.toLowerCase(Locale.ROOT));
+    }
+
+    // Same hash tag per cache, so the scripts may touch every tag of it
+    private static List<String> tagKeys(String cacheName, Collection<String> tags) {
+        List<String> keys = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            keys.add("cache-tags:{" + cacheName + "}:" + tag);
+        }
+        return keys;
+    }
+}
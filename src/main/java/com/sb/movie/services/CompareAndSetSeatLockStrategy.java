@@ -0,0 +1,93 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.repositories.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.sql.Date;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * COMPARE_AND_SET mode: holds are taken and released by one conditional UPDATE each, without
+ * reading or locking the seat rows first. The rows are only read to explain a conflict.
+ */
+@Service
+@Slf4j
+public class CompareAndSetSeatLockStrategy extends DatabaseSeatLockStrategy {
+
+    public CompareAndSetSeatLockStrategy(ShowSeatRepository showSeatRepository, SeatDirectoryService seatDirectoryService,
+                                         ShowSeatMaterializer showSeatMaterializer, SeatChangeLog seatChangeLog) {
+        super(showSeatRepository, seatDirectoryService, showSeatMaterializer, seatChangeLog);
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.COMPARE_AND_SET;
+    }
+
+    /**
+     * One UPDATE locks every requested seat that is still AVAILABLE. Fewer affected rows than
+     * requested seats means a conflict; the exception rolls the partial lock back.
+     */
+    @Override
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        materializeSparseSeats(showId, seatIds);
+
+        LocalDateTime lockTime = LocalDateTime.now();
+        Date showDate = showDate(showId);
+        int lockedCount = showSeatRepository.lockIfAvailable(showDate, seatIds, userId, lockTime);
+
+        if (lockedCount != seatIds.size()) {
+            List<ShowSeatRepository.SeatStateRow> rows = showSeatRepository.findSeatStatesByIds(showDate, seatIds);
+            if (rows.size() != seatIds.size()) {
+                throw new IllegalArgumentException("Some seats not found");
+            }
+
+            // Seats locked by this statement now read LOCKED by the user, so report the others
+            ShowSeatRepository.SeatStateRow conflict = rows.stream()
+                    .filter(row -> row.getStatus() != SeatStatus.LOCKED || !userId.equals(row.getLockedByUserId()))
+                    .findFirst()
+                    .orElse(null);
+            if (conflict != null) {
+                throw new IllegalStateException("Seat " + conflict.getSeatNo() +
+                        " is not available (Status: " + conflict.getStatus() + ")");
+            }
+            throw new IllegalStateException("Some of the requested seats are already locked by you");
+        }
+
+        log.info("Successfully locked {} seats for user {}", lockedCount, userId);
+        return new SeatHold(seatIds, seatDirectoryService.directory(showId).totalPrice(seatIds), lockTime);
+    }
+
+    /**
+     * One UPDATE releases the user's LOCKED seats. Seats that are AVAILABLE are ignored as before;
+     * BOOKED seats or seats held by someone else fail the release.
+     */
+    @Override
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        Date showDate = showDate(showId);
+        int releasedCount = showSeatRepository.releaseIfLockedBy(showDate, seatIds, userId);
+
+        if (releasedCount != seatIds.size()) {
+            for (ShowSeatRepository.SeatStateRow row : showSeatRepository.findSeatStatesByIds(showDate, seatIds)) {
+                if (row.getStatus() == SeatStatus.BOOKED) {
+                    throw new IllegalStateException("Cannot release seat " + row.getSeatNo() +
+                            " - it is already BOOKED. Use ticket cancellation instead.");
+                }
+                if (row.getStatus() == SeatStatus.LOCKED) {
+                    throw new IllegalStateException("Seat " + row.getSeatNo() +
+                            " is locked by another user");
+                }
+            }
+        }
+
+        if (releasedCount == 0) {
+            throw new IllegalStateException("No seats were released - seats are not locked by you");
+        }
+        log.info("Successfully released {} seats", releasedCount);
+        return releasedCount;
+    }
+}
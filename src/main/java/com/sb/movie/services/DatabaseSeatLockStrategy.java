@@ -0,0 +1,208 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import com.sb.movie.repositories.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Seat lock modes whose seat status lives in SHOW_SEATS.
+ *
+ * Booking is a single conditional UPDATE: it validates the hold and books exactly the user's held
+ * seats, so the rows are locked once and never read beforehand. Cancellation is one UPDATE keyed
+ * by seat id. Reads go to the show's partition only, and seats of a SPARSE show that have no row
+ * yet read as AVAILABLE.
+ */
+@Slf4j
+public abstract class DatabaseSeatLockStrategy implements SeatLockStrategy {
+
+    protected final ShowSeatRepository showSeatRepository;
+    protected final SeatDirectoryService seatDirectoryService;
+    protected final ShowSeatMaterializer showSeatMaterializer;
+    protected final SeatChangeLog seatChangeLog;
+
+    protected DatabaseSeatLockStrategy(ShowSeatRepository showSeatRepository, SeatDirectoryService seatDirectoryService,
+                                       ShowSeatMaterializer showSeatMaterializer, SeatChangeLog seatChangeLog) {
+        this.showSeatRepository = showSeatRepository;
+        this.seatDirectoryService = seatDirectoryService;
+        this.showSeatMaterializer = showSeatMaterializer;
+        this.seatChangeLog = seatChangeLog;
+    }
+
+    @Override
+    public SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        int bookedCount = showSeatRepository.bookHeldSeats(showId, showDate(showId), seatIds, userId);
+
+        if (bookedCount != seatIds.size()) {
+            // Only reached on failure; the exception rolls back whatever the UPDATE did book
+            throw bookingFailure(showId, seatIds, userId);
+        }
+
+        log.info("Successfully confirmed booking for {} seats", bookedCount);
+        return new SeatHold(seatIds, seatDirectoryService.directory(showId).totalPrice(seatIds), null);
+    }
+
+    @Override
+    public void cancel(Integer showId, List<Integer> seatIds) {
+        int releasedCount = showSeatRepository.releaseBookedSeats(showDate(showId), seatIds);
+        log.info("Returned {} booked seats to AVAILABLE", releasedCount);
+    }
+
+    @Override
+    public int releaseExpired(Integer showId, LocalDateTime expiryTime) {
+        int releasedCount = showSeatRepository.releaseExpiredLocksByShow(showId, showDate(showId), expiryTime);
+        if (releasedCount > 0) {
+            // Which seats were released is not known; clients reload the whole seat map
+            seatChangeLog.resetAfterCompletion(showId);
+        }
+        return releasedCount;
+    }
+
+    @Override
+    public List<Integer> findShowsWithHoldsBefore(LocalDateTime expiryTime) {
+        // A hold outlives its show by at most the lock timeout, so yesterday's shows are still swept
+        return showSeatRepository.findShowIdsWithExpiredLocks(Date.valueOf(LocalDate.now().minusDays(1)), expiryTime);
+    }
+
+    @Override
+    public Map<Integer, SeatStatus> unavailableSeats(SeatDirectory directory) {
+        Map<Integer, SeatStatus> unavailable = new HashMap<>();
+        for (ShowSeatRepository.SeatStateRow row
+                : showSeatRepository.findUnavailableSeatStatesByShowId(directory.getShowId(), directory.getShowDate())) {
+            unavailable.put(row.getId(), row.getStatus());
+        }
+        return unavailable;
+    }
+
+    /**
+     * The database only returns the number of held and booked seats per type, without loading them.
+     */
+    @Override
+    public void countUnavailableSeats(SeatDirectory directory, SeatCounts counts) {
+        for (ShowSeatRepository.SeatCountRow row
+                : showSeatRepository.countUnavailableSeatsByType(directory.getShowId(), directory.getShowDate())) {
+            counts.add(row.getSeatType(), row.getStatus(), row.getSeats().intValue());
+        }
+    }
+
+    /**
+     * One grouped query for all shows.
+     */
+    @Override
+    public void countUnavailableSeats(Map<Integer, SeatDirectory> directories, Map<Integer, SeatCounts> counts) {
+        if (directories.isEmpty()) {
+            return;
+        }
+
+        Set<Date> showDates = directories.values().stream()
+                .map(SeatDirectory::getShowDate)
+                .collect(Collectors.toSet());
+        for (ShowSeatRepository.ShowSeatCountRow row
+                : showSeatRepository.countUnavailableSeatsByShows(directories.keySet(), showDates)) {
+            SeatCounts showCounts = counts.get(row.getShowId());
+            if (showCounts != null) {
+                showCounts.add(row.getSeatType(), row.getStatus(), row.getSeats().intValue());
+            }
+        }
+    }
+
+    @Override
+    public Set<Integer> availableSeatIds(SeatDirectory directory) {
+        if (directory.isSparse()) {
+            // Layout minus the seats held or booked
+            Set<Integer> available = new HashSet<>(directory.allSeatIds());
+            available.removeAll(showSeatRepository.findUnavailableSeatIdsByShowId(
+                    directory.getShowId(), directory.getShowDate()));
+            return available;
+        }
+        return new HashSet<>(showSeatRepository.findAvailableSeatIdsByShowId(
+                directory.getShowId(), directory.getShowDate()));
+    }
+
+    @Override
+    public Function<ShowSeat, SeatStatus> seatStatusView(Integer showId, List<ShowSeat> seats) {
+        return ShowSeat::getStatus;
+    }
+
+    /**
+     * Every operation either changes all its seats or fails, so a commit leaves them at newStatus.
+     */
+    @Override
+    public void recordChange(Integer showId, List<Integer> seatIds, SeatStatus newStatus) {
+        seatChangeLog.recordAfterCompletion(showId, seatIds, seatId -> newStatus);
+    }
+
+    /**
+     * Explains why {@link ShowSeatRepository#bookHeldSeats} booked fewer seats than requested.
+     * Either the user holds seats outside the request, in which case nothing was booked, or some
+     * requested seats are not held by the user.
+     */
+    protected RuntimeException bookingFailure(Integer showId, List<Integer> seatIds, Integer userId) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        List<ShowSeat> lockedSeats = showSeatRepository.findLockedSeatsByShowAndUser(
+                showId, directory.getShowDate(), userId);
+        if (!lockedSeats.isEmpty()) {
+            String lockedSeatNumbers = lockedSeats.stream()
+                    .map(ShowSeat::getSeatNo)
+                    .collect(Collectors.joining(", "));
+            return new IllegalStateException(
+                String.format("You have %d seats locked (%s). You must book all locked seats together. " +
+                             "Either book all %d seats or release them first.",
+                             lockedSeats.size(), lockedSeatNumbers, lockedSeats.size()));
+        }
+
+        Map<Integer, ShowSeatRepository.SeatStateRow> rows = showSeatRepository
+                .findSeatStatesByIds(directory.getShowDate(), seatIds).stream()
+                .collect(Collectors.toMap(ShowSeatRepository.SeatStateRow::getId, Function.identity()));
+        // A seat of a SPARSE show without a row was never held, which reads as AVAILABLE
+        boolean allFound = seatIds.stream()
+                .allMatch(id -> rows.containsKey(id) || (directory.isSparse() && directory.seatNo(id) != null));
+        if (!allFound) {
+            return new SeatsNotAvailable("Some seats not found");
+        }
+
+        // Seats booked by the UPDATE read BOOKED as well, so only the others can be named
+        List<String> unavailableSeats = new ArrayList<>();
+        for (Integer seatId : seatIds) {
+            ShowSeatRepository.SeatStateRow row = rows.get(seatId);
+            if (row == null) {
+                unavailableSeats.add(directory.seatNo(seatId) + " (not locked)");
+            } else if (row.getStatus() == SeatStatus.LOCKED) {
+                unavailableSeats.add(row.getSeatNo() + " (locked by another user)");
+            } else if (row.getStatus() != SeatStatus.BOOKED) {
+                unavailableSeats.add(row.getSeatNo() + " (not locked)");
+            }
+        }
+        return new SeatsNotAvailable(
+            "Cannot book seats. You must lock seats first using /lock-seats endpoint. " +
+            "Problem seats: " + (unavailableSeats.isEmpty()
+                    ? "already booked" : String.join(", ", unavailableSeats)));
+    }
+
+    protected void materializeSparseSeats(Integer showId, List<Integer> seatIds) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        if (directory.isSparse()) {
+            showSeatMaterializer.materialize(directory, seatIds);
+        }
+    }
+
+    /**
+     * Partition key of the show's seats, so seat queries only visit the show's partition.
+     */
+    protected Date showDate(Integer showId) {
+        return seatDirectoryService.directory(showId).getShowDate();
+    }
+}
@@ -14,11 +14,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.annotation.CachePut;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -27,10 +28,10 @@ import java.util.List;
 public class EventServiceImpl implements EventService {
 
     private final EventRepository eventRepository;
+    private final CacheTagIndex cacheTagIndex;
 
     @Override
     @Transactional
-    @CacheEvict(value = "eventSearch", allEntries = true)
     public Event addEvent(EventRequest eventRequest) {
         log.info("Adding new event: {}", eventRequest.getName());
 
@@ -46,6 +47,8 @@ public class EventServiceImpl implements EventService {
 
         Event event = EventConvertor.eventDtoToEvent(eventRequest);
         Event saved = eventRepository.save(event);
+        // A new event has no shows yet, so only searches on its own attributes can gain it
+        cacheTagIndex.evictAfterCommit("eventSearch", attributeTags(saved));
 
         log.info("Event '{}' added successfully with ID: {}", saved.getName(), saved.getId());
         return saved;
@@ -62,27 +65,24 @@ public class EventServiceImpl implements EventService {
 
     @Override
     @Transactional(readOnly = true)
-    @Cacheable(value = "eventSearch",
-               key = "#name + '_' + #city + '_' + #eventType + '_' + #genre + '_' + #language + '_' + #showDate + '_' + #releaseDate",
-               unless = "#result == null || #result.isEmpty()")
     public List<Event> searchEvents(String name, String city, EventType eventType, Genre genre, Language language, Date showDate, Date releaseDate) {
-        log.debug("Searching events with filters - name: {}, city: {}, type: {}, genre: {}, language: {}, showDate: {}, releaseDate: {}",
-                  name, city, eventType, genre, language, showDate, releaseDate);
-
-        // Convert enums to strings for native query
-        String eventTypeStr = eventType != null ? eventType.name() : null;
-        String genreStr = genre != null ? genre.name() : null;
-        String languageStr = language != null ? language.name() : null;
-
-        return eventRepository.searchEvents(name, city, eventTypeStr, genreStr, languageStr, showDate, releaseDate);
+        String key = name + "_" + city + "_" + eventType + "_" + genre + "_" + language + "_" + showDate + "_" + releaseDate;
+        return cacheTagIndex.cached("eventSearch", key, () -> {
+            log.debug("Searching events with filters - name: {}, city: {}, type: {}, genre: {}, language: {}, showDate: {}, releaseDate: {}",
+                      name, city, eventType, genre, language, showDate, releaseDate);
+
+            // Convert enums to strings for native query
+            String eventTypeStr = eventType != null ? eventType.name() : null;
+            String genreStr = genre != null ? genre.name() : null;
+            String languageStr = language != null ? language.name() : null;
+
+            return eventRepository.searchEvents(name, city, eventTypeStr, genreStr, languageStr, showDate, releaseDate);
+        }, events -> searchTags(events, name, city, eventType, genre, language, showDate, releaseDate));
     }
 
     @Override
     @Transactional
-    @Caching(
-            put = @org.springframework.cache.annotation.CachePut(value = "eventById", key = "#eventId"),
-            evict = @CacheEvict(value = "eventSearch", allEntries = true)
-    )
+    @CachePut(value = "eventById", key = "#eventId")
     public Event updateEvent(Integer eventId, EventUpdateRequest eventUpdateRequest) {
         log.info("Updating event with ID: {}", eventId);
 
@@ -132,6 +132,10 @@ public class EventServiceImpl implements EventService {
         }
 
         Event updated = eventRepository.save(existingEvent);
+        // Searches holding the event, and those its new attributes match
+        List<String> tags = attributeTags(updated);
+        tags.add(CacheTagIndex.tag("event", eventId));
+        cacheTagIndex.evictAfterCommit("eventSearch", tags);
 
         log.info("Event '{}' updated successfully and cache updated", updated.getName());
         return updated;
@@ -139,21 +143,71 @@ public class EventServiceImpl implements EventService {
 
     @Override
     @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "eventById", key = "#eventId"),
-            @CacheEvict(value = "eventSearch", allEntries = true)
-    })
+    @CacheEvict(value = "eventById", key = "#eventId")
     public String deleteEvent(Integer eventId) {
         log.info("Deleting event with ID: {}", eventId);
 
         Event event = getEventById(eventId);
         String eventName = event.getName();
         eventRepository.delete(event);
+        cacheTagIndex.evictAfterCommit("eventSearch", List.of(CacheTagIndex.tag("event", eventId)));
 
         log.info("Event '{}' deleted successfully and cache evicted", eventName);
         return "Event '" + eventName + "' has been deleted successfully";
     }
 
+    /**
+     * Tags of an eventSearch entry: the events it holds, so changes to them evict it, and what an
+     * event or show must have to be added to it. Of the event attributes, one exact filter is
+     * enough, as an event can only match with that value; without one, the name filter or no
+     * filter at all can match any event. The city and show date filters depend on the shows.
+     */
+    private static List<String> searchTags(List<Event> events, String name, String city, EventType eventType,
+                                           Genre genre, Language language, Date showDate, Date releaseDate) {
+        List<String> tags = new ArrayList<>();
+        for (Event event : events) {
+            tags.add(CacheTagIndex.tag("event", event.getId()));
+        }
+        if (eventType != null) {
+            tags.add(CacheTagIndex.tag("type", eventType));
+        } else if (genre != null) {
+            tags.add(CacheTagIndex.tag("genre", genre));
+        } else if (language != null) {
+            tags.add(CacheTagIndex.tag("language", language));
+        } else if (releaseDate != null) {
+            tags.add(CacheTagIndex.tag("release", releaseDate));
+        } else if (name != null || (city == null && showDate == null)) {
+            tags.add(CacheTagIndex.ANY);
+        }
+        if (city != null) {
+            tags.add(CacheTagIndex.cityTag(city));
+        }
+        if (showDate != null) {
+            tags.add(CacheTagIndex.tag("date", showDate));
+        }
+        return tags;
+    }
+
+    /**
+     * Tags of the eventSearch entries an event with these attributes can match without being in
+     * them yet.
+     */
+    private static List<String> attributeTags(Event event) {
+        List<String> tags = new ArrayList<>();
+        tags.add(CacheTagIndex.tag("type", event.getEventType()));
+        if (event.getGenre() != null) {
+            tags.add(CacheTagIndex.tag("genre", event.getGenre()));
+        }
+        if (event.getLanguage() != null) {
+            tags.add(CacheTagIndex.tag("language", event.getLanguage()));
+        }
+        if (event.getReleaseDate() != null) {
+            tags.add(CacheTagIndex.tag("release", event.getReleaseDate()));
+        }
+        tags.add(CacheTagIndex.ANY);
+        return tags;
+    }
+
     /**
      * Validates that genre is only set for event types that support it
      * Genre is only applicable for MOVIE, THEATER, and OPERA events
@@ -0,0 +1,104 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * MAILBOX mode: the same in-process seat state as MEMORY, changed only by the show's single writer
+ * in {@link SeatMailbox}. Commands are awaited here; callers holding a transaction should submit to
+ * the mailbox directly instead, see there.
+ */
+@Service
+@Slf4j
+public class MailboxSeatLockStrategy extends MemorySeatLockStrategy {
+
+    private final SeatMailbox seatMailbox;
+
+    public MailboxSeatLockStrategy(SeatStateEngine seatStateEngine, SeatChangeLog seatChangeLog, SeatMailbox seatMailbox) {
+        super(seatStateEngine, seatChangeLog);
+        this.seatMailbox = seatMailbox;
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.MAILBOX;
+    }
+
+    @Override
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        return seatMailbox.await(seatMailbox.lock(showId, seatIds, userId));
+    }
+
+    /**
+     * The show's writer commits the BOOKED seats on its own. Should the caller's booking
+     * transaction roll back afterwards, the user's hold is put back through the mailbox; it is
+     * released by the reaper's sweep if the user does not book again.
+     */
+    @Override
+    public SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        SeatHold booked = seatMailbox.await(seatMailbox.confirm(showId, seatIds, userId));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        seatMailbox.revertConfirm(showId, seatIds, userId).exceptionally(e -> {
+                            log.error("Failed to restore the hold of user {} on show {}: {}",
+                                    userId, showId, e.getMessage());
+                            return null;
+                        });
+                    }
+                }
+            });
+        }
+        return booked;
+    }
+
+    @Override
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        int releasedCount = seatMailbox.await(seatMailbox.release(showId, seatIds, userId));
+        log.info("Successfully released {} seats through the mailbox", releasedCount);
+        return releasedCount;
+    }
+
+    /**
+     * The mailbox commits on its own, so seats are handed back only once the cancellation commits.
+     */
+    @Override
+    public void cancel(Integer showId, List<Integer> seatIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            seatMailbox.cancel(showId, seatIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                seatMailbox.cancel(showId, seatIds);
+            }
+        });
+    }
+
+    /**
+     * Written and recorded seat by seat by the mailbox. {@link SeatHoldReaper} submits this command
+     * itself so it never waits inside a transaction.
+     */
+    @Override
+    public int releaseExpired(Integer showId, LocalDateTime expiryTime) {
+        return seatMailbox.await(seatMailbox.releaseExpired(showId, expiryTime)).size();
+    }
+
+    /**
+     * Recorded by the mailbox once the change is applied.
+     */
+    @Override
+    public void recordChange(Integer showId, List<Integer> seatIds, SeatStatus newStatus) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * MEMORY mode: holds are taken on the in-process {@link ShowSeatState} of {@link SeatStateEngine},
+ * which is the source of truth for reads. The database may lag it, so the in-memory status wins.
+ */
+@Service
+@Slf4j
+public class MemorySeatLockStrategy implements SeatLockStrategy {
+
+    protected final SeatStateEngine seatStateEngine;
+    protected final SeatChangeLog seatChangeLog;
+
+    public MemorySeatLockStrategy(SeatStateEngine seatStateEngine, SeatChangeLog seatChangeLog) {
+        this.seatStateEngine = seatStateEngine;
+        this.seatChangeLog = seatChangeLog;
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.MEMORY;
+    }
+
+    @Override
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        SeatHold hold = seatStateEngine.lock(showId, seatIds, userId);
+        log.info("Successfully locked {} seats in memory for user {}", seatIds.size(), userId);
+        return hold;
+    }
+
+    @Override
+    public SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        return seatStateEngine.confirm(showId, seatIds, userId);
+    }
+
+    @Override
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        int releasedCount = seatStateEngine.release(showId, seatIds, userId);
+        log.info("Successfully released {} seats in memory", releasedCount);
+        return releasedCount;
+    }
+
+    @Override
+    public void cancel(Integer showId, List<Integer> seatIds) {
+        seatStateEngine.cancel(showId, seatIds);
+    }
+
+    @Override
+    public int releaseExpired(Integer showId, LocalDateTime expiryTime) {
+        int releasedCount = seatStateEngine.state(showId).releaseExpired(expiryTime).size();
+        if (releasedCount > 0) {
+            // Released seats are written behind without being recorded; clients reload the whole seat map
+            seatChangeLog.resetAfterCompletion(showId);
+        }
+        return releasedCount;
+    }
+
+    @Override
+    public List<Integer> findShowsWithHoldsBefore(LocalDateTime expiryTime) {
+        return seatStateEngine.findShowsWithHoldsBefore(expiryTime);
+    }
+
+    @Override
+    public Map<Integer, SeatStatus> unavailableSeats(SeatDirectory directory) {
+        return new HashMap<>(seatStateEngine.state(directory.getShowId()).unavailableSeats());
+    }
+
+    @Override
+    public void countUnavailableSeats(SeatDirectory directory, SeatCounts counts) {
+        seatStateEngine.state(directory.getShowId()).unavailableSeats()
+                .forEach((seatId, status) -> counts.add(directory.seatType(seatId), status, 1));
+    }
+
+    @Override
+    public Set<Integer> availableSeatIds(SeatDirectory directory) {
+        return new HashSet<>(seatStateEngine.state(directory.getShowId()).availableSeatIds());
+    }
+
+    @Override
+    public Function<ShowSeat, SeatStatus> seatStatusView(Integer showId, List<ShowSeat> seats) {
+        ShowSeatState state = seatStateEngine.state(showId);
+        return seat -> {
+            SeatStatus status = state.statusOf(seat.getId());
+            return status != null ? status : seat.getStatus();
+        };
+    }
+
+    /**
+     * The state is the source of truth, so the seats are read back from it.
+     */
+    @Override
+    public void recordChange(Integer showId, List<Integer> seatIds, SeatStatus newStatus) {
+        seatChangeLog.recordAfterCompletion(showId, seatIds, seatStateEngine.state(showId)::statusOf);
+    }
+}
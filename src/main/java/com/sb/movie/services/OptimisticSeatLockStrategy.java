@@ -0,0 +1,40 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.repositories.ShowSeatRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * OPTIMISTIC mode: like PESSIMISTIC, but the seat rows are read without a row lock and the seat
+ * version guards the write.
+ */
+@Service
+public class OptimisticSeatLockStrategy extends PessimisticSeatLockStrategy {
+
+    public OptimisticSeatLockStrategy(ShowSeatRepository showSeatRepository, SeatDirectoryService seatDirectoryService,
+                                      ShowSeatMaterializer showSeatMaterializer, SeatChangeLog seatChangeLog) {
+        super(showSeatRepository, seatDirectoryService, showSeatMaterializer, seatChangeLog);
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.OPTIMISTIC;
+    }
+
+    @Override
+    protected List<ShowSeat> loadForUpdate(Integer showId, List<Integer> seatIds) {
+        return showSeatRepository.findByIds(showDate(showId), seatIds);
+    }
+
+    /**
+     * The seats are flushed right away so a version conflict surfaces here, before the booking
+     * does any further work, and can be retried by {@link BookingTransactionExecutor}.
+     */
+    @Override
+    protected void save(List<ShowSeat> seats) {
+        showSeatRepository.saveAllAndFlush(seats);
+    }
+}
@@ -0,0 +1,109 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.repositories.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * PESSIMISTIC mode: the requested seat rows are locked FOR UPDATE, checked and changed as entities.
+ */
+@Service
+@Slf4j
+public class PessimisticSeatLockStrategy extends DatabaseSeatLockStrategy {
+
+    public PessimisticSeatLockStrategy(ShowSeatRepository showSeatRepository, SeatDirectoryService seatDirectoryService,
+                                       ShowSeatMaterializer showSeatMaterializer, SeatChangeLog seatChangeLog) {
+        super(showSeatRepository, seatDirectoryService, showSeatMaterializer, seatChangeLog);
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.PESSIMISTIC;
+    }
+
+    @Override
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        materializeSparseSeats(showId, seatIds);
+
+        List<ShowSeat> seats = loadForUpdate(showId, seatIds);
+
+        // Verify we found all requested seats
+        if (seats.size() != seatIds.size()) {
+            throw new IllegalArgumentException("Some seats not found");
+        }
+
+        // Check if all seats are available
+        for (ShowSeat seat : seats) {
+            if (seat.getStatus() != SeatStatus.AVAILABLE) {
+                throw new IllegalStateException("Seat " + seat.getSeatNo() +
+                        " is not available (Status: " + seat.getStatus() + ")");
+            }
+        }
+
+        // Lock all seats
+        LocalDateTime lockTime = LocalDateTime.now();
+        for (ShowSeat seat : seats) {
+            seat.setStatus(SeatStatus.LOCKED);
+            seat.setLockedAt(lockTime);
+            seat.setLockedByUserId(userId);
+        }
+
+        save(seats);
+        log.info("Successfully locked {} seats for user {}", seats.size(), userId);
+
+        return new SeatHold(seatIds, totalPrice(seats), lockTime);
+    }
+
+    @Override
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<ShowSeat> seats = showSeatRepository.findByIds(showDate(showId), seatIds);
+        int releasedCount = 0;
+
+        for (ShowSeat seat : seats) {
+            if (seat.getStatus() == SeatStatus.BOOKED) {
+                throw new IllegalStateException("Cannot release seat " + seat.getSeatNo() +
+                        " - it is already BOOKED. Use ticket cancellation instead.");
+            }
+
+            if (seat.getStatus() == SeatStatus.LOCKED &&
+                    seat.getLockedByUserId().equals(userId)) {
+                seat.setStatus(SeatStatus.AVAILABLE);
+                seat.setLockedAt(null);
+                seat.setLockedByUserId(null);
+                releasedCount++;
+            } else if (seat.getStatus() == SeatStatus.LOCKED) {
+                throw new IllegalStateException("Seat " + seat.getSeatNo() +
+                        " is locked by another user");
+            }
+        }
+
+        if (releasedCount == 0) {
+            throw new IllegalStateException("No seats were released - seats are not locked by you");
+        }
+
+        save(seats);
+        log.info("Successfully released {} seats", releasedCount);
+        return releasedCount;
+    }
+
+    // Acquire pessimistic write lock on the seats
+    protected List<ShowSeat> loadForUpdate(Integer showId, List<Integer> seatIds) {
+        return showSeatRepository.findAndLockByIds(showDate(showId), seatIds);
+    }
+
+    protected void save(List<ShowSeat> seats) {
+        showSeatRepository.saveAll(seats);
+    }
+
+    private Integer totalPrice(List<ShowSeat> seats) {
+        return seats.stream()
+                .mapToInt(seat -> seat.getPrice() != null ? seat.getPrice() : 0)
+                .sum();
+    }
+}
@@ -0,0 +1,317 @@
+package com.sb.movie.services;
+
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * All-or-nothing seat holds kept in Redis (REDIS seat lock mode).
+ *
+ * Every held seat is a key {@code seat-hold:{showId}:seatId} holding the user id with a TTL of the
+ * seat lock timeout, so holds expire on their own. A per-user hash {@code seat-hold:{showId}:holds:userId}
+ * maps each seat the user holds for a show to the time its hold expires. Booked seats keep their key
+ * with the marker value {@code B} until the end of the show's day.
+ *
+ * Each operation is a single Lua script, so a hold on a set of seats is atomic. Postgres is only
+ * written at booking time, guarded by a conditional UPDATE, which stays the source of truth.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RedisSeatHoldService {
+
+    public static final String BOOKED_MARKER = "B";
+
+    private static final String HOLD_LUA =
+            "local n = #KEYS - 1\n" +
+            "for i = 1, n do\n" +
+            "    local holder = redis.call('GET', KEYS[i])\n" +
+            "    if holder then\n" +
+            "        return {'CONFLICT', tostring(i), holder}\n" +
+            "    end\n" +
+            "end\n" +
+            "local now = redis.call('TIME')\n" +
+            "local expiresAt = now[1] * 1000 + math.floor(now[2] / 1000) + tonumber(ARGV[2])\n" +
+            "for i = 1, n do\n" +
+            "    redis.call('SET', KEYS[i], ARGV[1], 'PX', ARGV[2])\n" +
+            "    redis.call('HSET', KEYS[n + 1], ARGV[i + 2], string.format('%d', expiresAt))\n" +
+            "end\n" +
+            "redis.call('PEXPIRE', KEYS[n + 1], ARGV[2])\n" +
+            "return {'OK', '0', ''}";
+
+    private static final String VERIFY_LUA =
+            "local n = #KEYS - 1\n" +
+            "local problems = {}\n" +
+            "for i = 1, n do\n" +
+            "    local holder = redis.call('GET', KEYS[i])\n" +
+            "    if holder ~= ARGV[1] then\n" +
+            "        table.insert(problems, i .. '=' .. (holder or ''))\n" +
+            "    end\n" +
+            "end\n" +
+            "if #problems > 0 then\n" +
+            "    return {'NOT_HELD', '0', table.concat(problems, ',')}\n" +
+            "end\n" +
+            "local requested = {}\n" +
+            "for j = 2, #ARGV do\n" +
+            "    requested[ARGV[j]] = true\n" +
+            "end\n" +
+            "local now = redis.call('TIME')\n" +
+            "local nowMillis = now[1] * 1000 + math.floor(now[2] / 1000)\n" +
+            "local holds = redis.call('HGETALL', KEYS[n + 1])\n" +
+            "local others = {}\n" +
+            "for j = 1, #holds, 2 do\n" +
+            "    if not requested[holds[j]] and tonumber(holds[j + 1]) > nowMillis then\n" +
+            "        table.insert(others, holds[j])\n" +
+            "    end\n" +
+            "end\n" +
+            "if #others > 0 then\n" +
+            "    return {'OTHER_HOLDS', '0', table.concat(others, ',')}\n" +
+            "end\n" +
+            "return {'OK', '0', ''}";
+
+    private static final String RELEASE_LUA =
+            "local n = #KEYS - 1\n" +
+            "for i = 1, n do\n" +
+            "    local holder = redis.call('GET', KEYS[i])\n" +
+            "    if holder and holder ~= ARGV[1] then\n" +
+            "        return {'CONFLICT', tostring(i), holder}\n" +
+            "    end\n" +
+            "end\n" +
+            "local released = 0\n" +
+            "for i = 1, n do\n" +
+            "    if redis.call('GET', KEYS[i]) == ARGV[1] then\n" +
+            "        redis.call('DEL', KEYS[i])\n" +
+            "        redis.call('HDEL', KEYS[n + 1], ARGV[i + 1])\n" +
+            "        released = released + 1\n" +
+            "    end\n" +
+            "end\n" +
+            "return {'OK', tostring(released), ''}";
+
+    private static final String MARK_BOOKED_LUA =
+            "local n = #KEYS - 1\n" +
+            "for i = 1, n do\n" +
+            "    redis.call('SET', KEYS[i], 'B', 'PXAT', ARGV[1])\n" +
+            "    redis.call('HDEL', KEYS[n + 1], ARGV[i + 1])\n" +
+            "end\n" +
+            "return {'OK', '0', ''}";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> HOLD_SCRIPT = new DefaultRedisScript<>(HOLD_LUA, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> VERIFY_SCRIPT = new DefaultRedisScript<>(VERIFY_LUA, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RELEASE_SCRIPT = new DefaultRedisScript<>(RELEASE_LUA, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> MARK_BOOKED_SCRIPT = new DefaultRedisScript<>(MARK_BOOKED_LUA, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SeatDirectoryService seatDirectoryService;
+
+    @Value("${booking.seat-lock-timeout:10}")
+    private int seatLockTimeoutMinutes;
+
+    /**
+     * Hold all requested seats for the user, or none of them.
+     */
+    public void hold(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(Long.toString(seatLockTimeoutMinutes * 60_000L));
+        seatIds.forEach(seatId -> args.add(seatId.toString()));
+
+        List<String> result = run(HOLD_SCRIPT, keys(showId, seatIds, userId), args);
+
+        if ("CONFLICT".equals(result.get(0))) {
+            Integer seatId = seatIds.get(Integer.parseInt(result.get(1)) - 1);
+            String status = BOOKED_MARKER.equals(result.get(2)) ? "BOOKED" : "LOCKED";
+            throw new IllegalStateException("Seat " + seatNo(showId, seatId) +
+                    " is not available (Status: " + status + ")");
+        }
+    }
+
+    /**
+     * Verify the user holds every requested seat and no other seat of the show.
+     */
+    public void verifyHold(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        seatIds.forEach(seatId -> args.add(seatId.toString()));
+
+        List<String> result = run(VERIFY_SCRIPT, keys(showId, seatIds, userId), args);
+
+        if ("NOT_HELD".equals(result.get(0))) {
+            List<String> unavailableSeats = new ArrayList<>();
+            for (String problem : result.get(2).split(",")) {
+                String[] parts = problem.split("=", -1);
+                Integer seatId = seatIds.get(Integer.parseInt(parts[0]) - 1);
+                if (BOOKED_MARKER.equals(parts[1])) {
+                    unavailableSeats.add(seatNo(showId, seatId) + " (already booked)");
+                } else if (!parts[1].isEmpty()) {
+                    unavailableSeats.add(seatNo(showId, seatId) + " (locked by another user)");
+                } else {
+                    unavailableSeats.add(seatNo(showId, seatId) + " (not locked)");
+                }
+            }
+            throw new SeatsNotAvailable(
+                "Cannot book seats. You must lock seats first using /lock-seats endpoint. " +
+                "Problem seats: " + String.join(", ", unavailableSeats));
+        }
+
+        if ("OTHER_HOLDS".equals(result.get(0))) {
+            List<Integer> heldSeatIds = new ArrayList<>(seatIds);
+            for (String seatId : result.get(2).split(",")) {
+                heldSeatIds.add(Integer.valueOf(seatId));
+            }
+            String lockedSeatNumbers = heldSeatIds.stream()
+                    .map(seatId -> seatNo(showId, seatId))
+                    .collect(Collectors.joining(", "));
+            throw new IllegalStateException(
+                String.format("You have %d seats locked (%s). You must book all locked seats together. " +
+                             "Either book all %d seats or release them first.",
+                             heldSeatIds.size(), lockedSeatNumbers, heldSeatIds.size()));
+        }
+    }
+
+    /**
+     * Release the user's holds on the requested seats.
+     * @return number of seats released
+     */
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        seatIds.forEach(seatId -> args.add(seatId.toString()));
+
+        List<String> result = run(RELEASE_SCRIPT, keys(showId, seatIds, userId), args);
+
+        if ("CONFLICT".equals(result.get(0))) {
+            Integer seatId = seatIds.get(Integer.parseInt(result.get(1)) - 1);
+            if (BOOKED_MARKER.equals(result.get(2))) {
+                throw new IllegalStateException("Cannot release seat " + seatNo(showId, seatId) +
+                        " - it is already BOOKED. Use ticket cancellation instead.");
+            }
+            throw new IllegalStateException("Seat " + seatNo(showId, seatId) + " is locked by another user");
+        }
+
+        int releasedCount = Integer.parseInt(result.get(1));
+        if (releasedCount == 0) {
+            throw new IllegalStateException("No seats were released - seats are not locked by you");
+        }
+        return releasedCount;
+    }
+
+    /**
+     * Turn the user's holds into booked markers once the booking transaction commits. Markers
+     * expire at the end of the show's day, when the show is finished and its seats are archived.
+     */
+    public void markBookedAfterCommit(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<String> args = new ArrayList<>();
+        args.add(Long.toString(endOfShowDay(showId)));
+        seatIds.forEach(seatId -> args.add(seatId.toString()));
+        afterCommit(() -> run(MARK_BOOKED_SCRIPT, keys(showId, seatIds, userId), args));
+    }
+
+    /**
+     * Drop booked markers of cancelled seats once the cancellation commits.
+     */
+    public void clearAfterCommit(Integer showId, List<Integer> seatIds) {
+        List<String> keys = seatIds.stream()
+                .map(seatId -> seatKey(showId, seatId))
+                .collect(Collectors.toList());
+        afterCommit(() -> stringRedisTemplate.delete(keys));
+    }
+
+    /**
+     * Current hold values (user id or booked marker) of the given seats in one MGET.
+     */
+    public Map<Integer, String> holders(Integer showId, List<Integer> seatIds) {
+        Map<Integer, String> holders = new HashMap<>();
+        if (seatIds.isEmpty()) {
+            return holders;
+        }
+
+        List<String> keys = seatIds.stream()
+                .map(seatId -> seatKey(showId, seatId))
+                .collect(Collectors.toList());
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(keys);
+
+        if (values != null) {
+            for (int i = 0; i < seatIds.size(); i++) {
+                if (values.get(i) != null) {
+                    holders.put(seatIds.get(i), values.get(i));
+                }
+            }
+        }
+        return holders;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<String> run(RedisScript<List> script, List<String> keys, List<String> args) {
+        List result = stringRedisTemplate.execute(script, keys, args.toArray());
+        if (result == null || result.isEmpty()) {
+            throw new IllegalStateException("Seat hold script returned no result");
+        }
+        return (List<String>) result;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    action.run();
+                } catch (Exception e) {
+                    log.error("Failed to update seat holds in Redis after commit: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private List<String> keys(Integer showId, List<Integer> seatIds, Integer userId) {
+        List<String> keys = seatIds.stream()
+                .map(seatId -> seatKey(showId, seatId))
+                .collect(Collectors.toList());
+        keys.add(seatKeyPrefix(showId) + "holds:" + userId);
+        return keys;
+    }
+
+    private long endOfShowDay(Integer showId) {
+        Date showDate = seatDirectoryService.directory(showId).getShowDate();
+        return showDate.toLocalDate().plusDays(1)
+                .atStartOfDay(ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+    }
+
+    private String seatKey(Integer showId, Integer seatId) {
+        return seatKeyPrefix(showId) + seatId;
+    }
+
+    // Hash tag keeps all keys of a show in one slot for a clustered Redis
+    private String seatKeyPrefix(Integer showId) {
+        return "seat-hold:{" + showId + "}:";
+    }
+
+    private String seatNo(Integer showId, Integer seatId) {
+        String seatNo = seatDirectoryService.directory(showId).seatNo(seatId);
+        return seatNo != null ? seatNo : String.valueOf(seatId);
+    }
+}
@@ -0,0 +1,178 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import com.sb.movie.repositories.ShowSeatRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * REDIS mode: holds only exist in {@link RedisSeatHoldService} and SHOW_SEATS is written at
+ * booking time. Holds, and bookings not written to the database yet, are overlaid on the stored
+ * status whenever seats are read.
+ */
+@Service
+@Slf4j
+public class RedisSeatLockStrategy extends DatabaseSeatLockStrategy {
+
+    private final RedisSeatHoldService redisSeatHoldService;
+
+    public RedisSeatLockStrategy(ShowSeatRepository showSeatRepository, SeatDirectoryService seatDirectoryService,
+                                 ShowSeatMaterializer showSeatMaterializer, SeatChangeLog seatChangeLog,
+                                 RedisSeatHoldService redisSeatHoldService) {
+        super(showSeatRepository, seatDirectoryService, showSeatMaterializer, seatChangeLog);
+        this.redisSeatHoldService = redisSeatHoldService;
+    }
+
+    @Override
+    public SeatLockMode mode() {
+        return SeatLockMode.REDIS;
+    }
+
+    /**
+     * A Lua script on per-seat TTL keys, without touching SHOW_SEATS.
+     */
+    @Override
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        rejectStoredUnavailableSeats(showId, seatIds);
+        LocalDateTime lockTime = LocalDateTime.now();
+        redisSeatHoldService.hold(showId, seatIds, userId);
+        log.info("Successfully locked {} seats in Redis for user {}", seatIds.size(), userId);
+        return new SeatHold(seatIds, seatDirectoryService.directory(showId).totalPrice(seatIds), lockTime);
+    }
+
+    /**
+     * The hold is verified in Redis, then the seats are flipped to BOOKED with a single conditional
+     * UPDATE. The row count check is the final guard should Redis have lost a hold.
+     */
+    @Override
+    public SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        redisSeatHoldService.verifyHold(showId, seatIds, userId);
+        materializeSparseSeats(showId, seatIds);
+
+        int bookedCount = showSeatRepository.bookIfAvailable(showDate(showId), seatIds);
+        if (bookedCount != seatIds.size()) {
+            throw new SeatsNotAvailable("Cannot book seats. " + (seatIds.size() - bookedCount) +
+                    " of the requested seats are no longer available");
+        }
+
+        redisSeatHoldService.markBookedAfterCommit(showId, seatIds, userId);
+        log.info("Successfully confirmed booking for {} seats held in Redis", bookedCount);
+
+        return new SeatHold(seatIds, seatDirectoryService.directory(showId).totalPrice(seatIds), null);
+    }
+
+    @Override
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        int releasedCount = redisSeatHoldService.release(showId, seatIds, userId);
+        log.info("Successfully released {} seats in Redis", releasedCount);
+        return releasedCount;
+    }
+
+    @Override
+    public void cancel(Integer showId, List<Integer> seatIds) {
+        super.cancel(showId, seatIds);
+        redisSeatHoldService.clearAfterCommit(showId, seatIds);
+    }
+
+    /**
+     * Holds expire with their keys, so there is nothing to release. Which seats expired is not
+     * known; clients reload the whole seat map.
+     */
+    @Override
+    public int releaseExpired(Integer showId, LocalDateTime expiryTime) {
+        seatChangeLog.resetAfterCompletion(showId);
+        return 0;
+    }
+
+    @Override
+    public List<Integer> findShowsWithHoldsBefore(LocalDateTime expiryTime) {
+        return List.of();
+    }
+
+    @Override
+    public Map<Integer, SeatStatus> unavailableSeats(SeatDirectory directory) {
+        Map<Integer, SeatStatus> unavailable = super.unavailableSeats(directory);
+        redisSeatHoldService.holders(directory.getShowId(), directory.allSeatIds()).forEach((seatId, holder) ->
+                unavailable.merge(seatId, RedisSeatHoldService.BOOKED_MARKER.equals(holder)
+                        ? SeatStatus.BOOKED : SeatStatus.LOCKED, (stored, held) -> stored));
+        return unavailable;
+    }
+
+    @Override
+    public void countUnavailableSeats(SeatDirectory directory, SeatCounts counts) {
+        super.countUnavailableSeats(directory, counts);
+        addRedisHolds(directory, counts);
+    }
+
+    @Override
+    public void countUnavailableSeats(Map<Integer, SeatDirectory> directories, Map<Integer, SeatCounts> counts) {
+        super.countUnavailableSeats(directories, counts);
+        directories.forEach((showId, directory) -> addRedisHolds(directory, counts.get(showId)));
+    }
+
+    @Override
+    public Set<Integer> availableSeatIds(SeatDirectory directory) {
+        Set<Integer> available = super.availableSeatIds(directory);
+        available.removeAll(redisSeatHoldService.holders(directory.getShowId(), new ArrayList<>(available)).keySet());
+        return available;
+    }
+
+    @Override
+    public Function<ShowSeat, SeatStatus> seatStatusView(Integer showId, List<ShowSeat> seats) {
+        List<Integer> seatIds = seats.stream().map(ShowSeat::getId).collect(Collectors.toList());
+        Map<Integer, String> holders = redisSeatHoldService.holders(showId, seatIds);
+        return seat -> {
+            String holder = holders.get(seat.getId());
+            if (seat.getStatus() == SeatStatus.BOOKED || holder == null) {
+                return seat.getStatus();
+            }
+            return RedisSeatHoldService.BOOKED_MARKER.equals(holder) ? SeatStatus.BOOKED : SeatStatus.LOCKED;
+        };
+    }
+
+    /**
+     * Redis only knows a seat is taken while its key lives, so seats SHOW_SEATS has as held or
+     * booked (booked in another mode, or whose booked marker was lost) are refused before the hold
+     * script runs. A SPARSE show has no rows for seats that were never held.
+     */
+    private void rejectStoredUnavailableSeats(Integer showId, List<Integer> seatIds) {
+        showSeatRepository.findSeatStatesByIds(showDate(showId), seatIds).stream()
+                .filter(row -> row.getStatus() != SeatStatus.AVAILABLE)
+                .findFirst()
+                .ifPresent(row -> {
+                    throw new IllegalStateException("Seat " + row.getSeatNo() +
+                            " is not available (Status: " + row.getStatus() + ")");
+                });
+    }
+
+    // REDIS holds, and bookings not written to the database yet, on top of the stored counts
+    private void addRedisHolds(SeatDirectory directory, SeatCounts counts) {
+        Map<Integer, String> holders = redisSeatHoldService.holders(directory.getShowId(), directory.allSeatIds());
+        if (holders.isEmpty()) {
+            return;
+        }
+        // Seats booked in the database are counted already
+        Set<Integer> stored = showSeatRepository
+                .findSeatStatesByIds(directory.getShowDate(), new ArrayList<>(holders.keySet())).stream()
+                .filter(row -> row.getStatus() != SeatStatus.AVAILABLE)
+                .map(ShowSeatRepository.SeatStateRow::getId)
+                .collect(Collectors.toSet());
+        holders.forEach((seatId, holder) -> {
+            if (!stored.contains(seatId)) {
+                counts.add(directory.seatType(seatId),
+                        RedisSeatHoldService.BOOKED_MARKER.equals(holder) ? SeatStatus.BOOKED : SeatStatus.LOCKED, 1);
+            }
+        });
+    }
+}
@@ -0,0 +1,262 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Per-show seat state version, and which seats changed since a given version, kept in Redis so
+ * every node sees the same versions.
+ *
+ * Each show has a hash {@code seat-changes:{showId}:version} with the current {@code version} and
+ * {@code since}, the oldest version from which the changes are complete, and a sorted set
+ * {@code seat-changes:{showId}:seats} holding every changed seat id scored by the version of its
+ * last change. A seat is only in the set once, so the set never outgrows the show.
+ *
+ * A show that never changed is at version 0. The first change seeds the version from the clock,
+ * so versions stay increasing when the keys were lost. Changes are recorded once they are visible
+ * to readers, so a version never claims more than the seat state read after it.
+ *
+ * Changes that come with the new status of their seats also patch the show's seat map of
+ * {@link SeatMapCache}, if it is loaded, in the same script. Changes are recorded once their
+ * transaction completes, which is not always the order they committed in, so a change carries the
+ * version read before it committed: when one of its seats was recorded after that version, the two
+ * changes may be out of order and the seat map is dropped, to be loaded again, instead of patched.
+ * A reset drops the seat map.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatChangeLog {
+
+    private static final String SEED_LUA =
+            "if redis.call('HSETNX', KEYS[1], 'since', ARGV[1]) == 1 then\n" +
+            "    redis.call('HSET', KEYS[1], 'version', ARGV[1])\n" +
+            "end\n" +
+            "local version = redis.call('HINCRBY', KEYS[1], 'version', 1)\n";
+
+    // Arguments are the version the change is based on (empty when recorded in order), then seatId,
+    // or seatId:status code to patch the seat map with
+    private static final String RECORD_LUA = SEED_LUA +
+            "local patch = redis.call('EXISTS', KEYS[3]) == 1\n" +
+            "local base = tonumber(ARGV[2])\n" +
+            "if patch and base then\n" +
+            "    for i = 3, #ARGV do\n" +
+            "        local last = redis.call('ZSCORE', KEYS[2], string.match(ARGV[i], '^(%d+)'))\n" +
+            "        if last and tonumber(last) > base then\n" +
+            "            redis.call('DEL', KEYS[3])\n" +
+            "            patch = false\n" +
+            "            break\n" +
+            "        end\n" +
+            "    end\n" +
+            "end\n" +
+            "for i = 3, #ARGV do\n" +
+            "    local seat, status = string.match(ARGV[i], '^(%d+):?(%a?)$')\n" +
+            "    redis.call('ZADD', KEYS[2], version, seat)\n" +
+            "    if patch and status ~= '' then\n" +
+            "        local old = redis.call('HGET', KEYS[3], seat)\n" +
+            "        if old then\n" +
+            "            redis.call('HINCRBY', KEYS[3], '#' .. old, -1)\n" +
+            "        end\n" +
+            "        if status == 'A' then\n" +
+            "            redis.call('HDEL', KEYS[3], seat)\n" +
+            "        else\n" +
+            "            redis.call('HSET', KEYS[3], seat, status)\n" +
+            "            redis.call('HINCRBY', KEYS[3], '#' .. status, 1)\n" +
+            "        end\n" +
+            "    end\n" +
+            "end\n" +
+            "if patch then\n" +
+            "    redis.call('HSET', KEYS[3], 'version', version)\n" +
+            "end\n" +
+            "return version";
+
+    private static final String RESET_LUA = SEED_LUA +
+            "redis.call('HSET', KEYS[1], 'since', version)\n" +
+            "redis.call('DEL', KEYS[2], KEYS[3])\n" +
+            "return version";
+
+    private static final String CHANGES_LUA =
+            "local state = redis.call('HMGET', KEYS[1], 'version', 'since')\n" +
+            "local version = state[1] or '0'\n" +
+            "local since = state[2] or '0'\n" +
+            "local known = tonumber(ARGV[1])\n" +
+            "if known < tonumber(since) or known > tonumber(version) then\n" +
+            "    return {version, 'FULL', ''}\n" +
+            "end\n" +
+            "local seats = redis.call('ZRANGEBYSCORE', KEYS[2], '(' .. ARGV[1], '+inf')\n" +
+            "return {version, 'DELTA', table.concat(seats, ',')}";
+
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(RECORD_LUA, Long.class);
+    private static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(RESET_LUA, Long.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CHANGES_SCRIPT = new DefaultRedisScript<>(CHANGES_LUA, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * Record a change of the given seats to the given statuses, patching the seat map with them.
+     * Seats with a null status are only recorded. Changes of a show must be recorded in the order
+     * they were made.
+     */
+    public void record(Integer showId, Map<Integer, SeatStatus> statuses) {
+        record(showId, statuses, null);
+    }
+
+    private void record(Integer showId, Map<Integer, SeatStatus> statuses, Long baseVersion) {
+        List<String> args = new ArrayList<>(statuses.size() + 2);
+        args.add(seed());
+        args.add(baseVersion != null ? baseVersion.toString() : "");
+        statuses.forEach((seatId, status) ->
+                args.add(status != null ? seatId + ":" + SeatMapCache.code(status) : seatId.toString()));
+        execute(showId, args);
+    }
+
+    /**
+     * Record a change of the given seats once the current transaction commits, patching the seat
+     * map with the status {@code committedStatus} gives each seat at that point. A rollback records
+     * nothing. The version is read now, before the commit, so a change committed after this one
+     * but recorded before it is noticed.
+     */
+    public void recordAfterCompletion(Integer showId, Collection<Integer> seatIds,
+                                      Function<Integer, SeatStatus> committedStatus) {
+        List<Integer> changed = List.copyOf(seatIds);
+        Long version = version(showId);
+        // Unknown, so any earlier change of the seats counts as a possible reordering
+        long baseVersion = version != null ? version : 0L;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(showId, statuses(changed, committedStatus), baseVersion);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    record(showId, statuses(changed, committedStatus), baseVersion);
+                }
+            }
+        });
+    }
+
+    /**
+     * Record a change of unknown seats of the show: every client gets the full seat map next.
+     */
+    public void reset(Integer showId) {
+        try {
+            stringRedisTemplate.execute(RESET_SCRIPT, keys(showId), seed());
+        } catch (Exception e) {
+            log.error("Failed to reset seat changes of show {}: {}", showId, e.getMessage());
+        }
+    }
+
+    public void resetAfterCompletion(Integer showId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reset(showId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reset(showId);
+            }
+        });
+    }
+
+    public void delete(Integer showId) {
+        try {
+            stringRedisTemplate.delete(keys(showId));
+        } catch (Exception e) {
+            log.warn("Failed to delete seat changes of show {}: {}", showId, e.getMessage());
+        }
+    }
+
+    /**
+     * Current version of the show, or null when Redis cannot be reached.
+     */
+    public Long version(Integer showId) {
+        try {
+            Object version = stringRedisTemplate.opsForHash().get(versionKey(showId), "version");
+            return version != null ? Long.valueOf(version.toString()) : 0L;
+        } catch (Exception e) {
+            log.warn("Failed to read the seat version of show {}: {}", showId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Seats changed after {@code knownVersion}. The result is incomplete when the changes since that
+     * version are not all known, or Redis cannot be reached; the version is then null.
+     */
+    @SuppressWarnings("unchecked")
+    public SeatChanges changesSince(Integer showId, long knownVersion) {
+        List<Object> result;
+        try {
+            result = stringRedisTemplate.execute(CHANGES_SCRIPT, keys(showId), Long.toString(knownVersion));
+        } catch (Exception e) {
+            log.warn("Failed to read seat changes of show {}: {}", showId, e.getMessage());
+            return new SeatChanges(null, false, List.of());
+        }
+
+        long version = Long.parseLong(result.get(0).toString());
+        if (!"DELTA".equals(result.get(1))) {
+            return new SeatChanges(version, false, List.of());
+        }
+        List<Integer> seatIds = new ArrayList<>();
+        String changed = result.get(2).toString();
+        if (!changed.isEmpty()) {
+            for (String seatId : changed.split(",")) {
+                seatIds.add(Integer.valueOf(seatId));
+            }
+        }
+        return new SeatChanges(version, true, seatIds);
+    }
+
+    private void execute(Integer showId, List<String> args) {
+        try {
+            stringRedisTemplate.execute(RECORD_SCRIPT, keys(showId), args.toArray());
+        } catch (Exception e) {
+            log.error("Failed to record seat changes of show {}: {}", showId, e.getMessage());
+        }
+    }
+
+    private static Map<Integer, SeatStatus> statuses(List<Integer> seatIds, Function<Integer, SeatStatus> statusOf) {
+        Map<Integer, SeatStatus> statuses = new LinkedHashMap<>();
+        for (Integer seatId : seatIds) {
+            statuses.put(seatId, statusOf.apply(seatId));
+        }
+        return statuses;
+    }
+
+    private static String seed() {
+        // Clock-based, so a show whose keys were lost starts above every version handed out before
+        return Long.toString(System.currentTimeMillis() * 1000);
+    }
+
+    private static List<String> keys(Integer showId) {
+        return List.of(versionKey(showId), "seat-changes:{" + showId + "}:seats", SeatMapCache.key(showId));
+    }
+
+    static String versionKey(Integer showId) {
+        return "seat-changes:{" + showId + "}:version";
+    }
+
+    @lombok.Value
+    public static class SeatChanges {
+        Long version;       // current version of the show, null when unknown
+        boolean complete;   // whether seatIds holds every seat changed since the known version
+        List<Integer> seatIds;
+    }
+}
@@ -0,0 +1,77 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seat counts of a show by seat type and status.
+ *
+ * Starts from the totals and prices of the show's {@link SeatDirectory} with every seat AVAILABLE;
+ * held and booked seats are then added per type, each moving out of the available count.
+ */
+public final class SeatCounts {
+
+    private final SeatDirectory directory;
+    private final Map<SeatType, int[]> countsByType = new EnumMap<>(SeatType.class);
+
+    public SeatCounts(SeatDirectory directory) {
+        this.directory = directory;
+        for (SeatType type : SeatType.values()) {
+            if (directory.seatTypeCount(type) > 0) {
+                countsByType.put(type, new int[SeatStatus.values().length]);
+            }
+        }
+    }
+
+    /**
+     * Count {@code seats} seats of a type as held or booked.
+     */
+    public void add(SeatType seatType, SeatStatus status, int seats) {
+        if (seatType != null && status != SeatStatus.AVAILABLE && countsByType.containsKey(seatType)) {
+            countsByType.get(seatType)[status.ordinal()] += seats;
+        }
+    }
+
+    /**
+     * Seat types the show has seats of.
+     */
+    public List<SeatType> seatTypes() {
+        return new ArrayList<>(countsByType.keySet());
+    }
+
+    public int total(SeatType seatType) {
+        return directory.seatTypeCount(seatType);
+    }
+
+    public int price(SeatType seatType) {
+        return directory.seatTypePrice(seatType);
+    }
+
+    public int count(SeatType seatType, SeatStatus status) {
+        int[] counts = countsByType.get(seatType);
+        if (counts == null) {
+            return 0;
+        }
+        if (status == SeatStatus.AVAILABLE) {
+            return total(seatType) - counts[SeatStatus.LOCKED.ordinal()] - counts[SeatStatus.BOOKED.ordinal()];
+        }
+        return counts[status.ordinal()];
+    }
+
+    public int total() {
+        return directory.size();
+    }
+
+    public int count(SeatStatus status) {
+        int count = 0;
+        for (SeatType seatType : countsByType.keySet()) {
+            count += count(seatType, status);
+        }
+        return count;
+    }
+}
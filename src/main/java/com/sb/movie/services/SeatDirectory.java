@@ -0,0 +1,235 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.repositories.ShowSeatRepository;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Immutable seat layout of a single show: seat number, id, type and price of every seat.
+ *
+ * The layout of a show never changes after it is created, so one directory can be shared by all
+ * requests. Seat numbers resolve through a hash map, seat ids through a binary search over the
+ * sorted id array; neither touches the database or the show's seat collection.
+ *
+ * The directory also precomputes the row layout used for best-available allocation. Seat numbers
+ * encode row and column as generated by {@code TheaterServiceImpl.addTheater} ("3C" is row 3,
+ * column C); seats whose number does not follow that pattern are left out of the layout.
+ *
+ * A sparse directory belongs to a show with SPARSE seat storage: its ids are reserved, but only
+ * the seats that were ever held have a SHOW_SEATS row.
+ *
+ * The directory also carries the show's date, the partition key of SHOW_SEATS, so seat queries can
+ * be pruned to the show's partition without looking the show up.
+ */
+public final class SeatDirectory {
+
+    private final Integer showId;
+    private final Date showDate;
+    private final boolean sparse;
+    private final int[] seatIds;
+    private final String[] seatNos;
+    private final SeatType[] seatTypes;
+    private final int[] prices;
+    private final Map<String, Integer> positionsBySeatNo;
+    private final Map<SeatType, Integer> seatCountsByType = new EnumMap<>(SeatType.class);
+    private final Map<SeatType, Integer> pricesByType = new EnumMap<>(SeatType.class);
+    private final int[] columns;
+    private final int[] rowNumbers;
+    private final int[][] rows;
+
+    public SeatDirectory(Integer showId, Date showDate, List<? extends ShowSeatRepository.SeatDirectoryRow> rows,
+                         boolean sparse) {
+        List<ShowSeatRepository.SeatDirectoryRow> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparing(ShowSeatRepository.SeatDirectoryRow::getId));
+
+        int size = sorted.size();
+        this.showId = showId;
+        this.showDate = showDate;
+        this.sparse = sparse;
+        this.seatIds = new int[size];
+        this.seatNos = new String[size];
+        this.seatTypes = new SeatType[size];
+        this.prices = new int[size];
+        this.positionsBySeatNo = new HashMap<>(size * 2);
+
+        for (int i = 0; i < size; i++) {
+            ShowSeatRepository.SeatDirectoryRow row = sorted.get(i);
+            seatIds[i] = row.getId();
+            seatNos[i] = row.getSeatNo();
+            seatTypes[i] = row.getSeatType();
+            prices[i] = row.getPrice() != null ? row.getPrice() : 0;
+            positionsBySeatNo.put(row.getSeatNo(), i);
+            if (seatTypes[i] != null) {
+                seatCountsByType.merge(seatTypes[i], 1, Integer::sum);
+                pricesByType.putIfAbsent(seatTypes[i], prices[i]);
+            }
+        }
+
+        // Group positions by row number, each row ordered by column
+        this.columns = new int[size];
+        Map<Integer, List<Integer>> positionsByRow = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            int split = rowPrefixLength(seatNos[i]);
+            if (split == 0 || split == seatNos[i].length()) {
+                columns[i] = -1;
+                continue;
+            }
+            columns[i] = Character.toUpperCase(seatNos[i].charAt(split)) - 'A';
+            positionsByRow.computeIfAbsent(Integer.parseInt(seatNos[i].substring(0, split)), r -> new ArrayList<>())
+                    .add(i);
+        }
+
+        this.rowNumbers = new int[positionsByRow.size()];
+        this.rows = new int[positionsByRow.size()][];
+        int r = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : positionsByRow.entrySet()) {
+            rowNumbers[r] = entry.getKey();
+            rows[r] = entry.getValue().stream()
+                    .sorted(Comparator.comparingInt(position -> columns[position]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            r++;
+        }
+    }
+
+    private static int rowPrefixLength(String seatNo) {
+        int i = 0;
+        while (i < seatNo.length() && i < 9 && Character.isDigit(seatNo.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    public Integer getShowId() {
+        return showId;
+    }
+
+    public Date getShowDate() {
+        return showDate;
+    }
+
+    public int size() {
+        return seatIds.length;
+    }
+
+    public boolean isSparse() {
+        return sparse;
+    }
+
+    /**
+     * Ids of all seats of the show, ascending.
+     */
+    public List<Integer> allSeatIds() {
+        List<Integer> ids = new ArrayList<>(seatIds.length);
+        for (int seatId : seatIds) {
+            ids.add(seatId);
+        }
+        return ids;
+    }
+
+    /**
+     * Seat ids of the requested seat numbers. Unknown seat numbers are skipped.
+     */
+    public List<Integer> seatIds(List<String> requestedSeatNos) {
+        Set<Integer> ids = new LinkedHashSet<>();
+        for (String seatNo : requestedSeatNos) {
+            Integer position = positionsBySeatNo.get(seatNo);
+            if (position != null) {
+                ids.add(seatIds[position]);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    public String seatNo(Integer seatId) {
+        int i = Arrays.binarySearch(seatIds, seatId);
+        return i < 0 ? null : seatNos[i];
+    }
+
+    public SeatType seatType(Integer seatId) {
+        int i = Arrays.binarySearch(seatIds, seatId);
+        return i < 0 ? null : seatTypes[i];
+    }
+
+    public int price(Integer seatId) {
+        int i = Arrays.binarySearch(seatIds, seatId);
+        return i < 0 ? 0 : prices[i];
+    }
+
+    int position(Integer seatId) {
+        return Arrays.binarySearch(seatIds, seatId);
+    }
+
+    int rowCount() {
+        return rows.length;
+    }
+
+    int rowNumber(int row) {
+        return rowNumbers[row];
+    }
+
+    /**
+     * Positions of the seats in a row, ordered by column.
+     */
+    int[] rowPositions(int row) {
+        return rows[row];
+    }
+
+    int column(int position) {
+        return columns[position];
+    }
+
+    /**
+     * Whether the seat at {@code next} directly follows the one at {@code previous} in its row
+     * and has the same seat type.
+     */
+    boolean adjacent(int previous, int next) {
+        return columns[next] == columns[previous] + 1 && seatTypes[next] == seatTypes[previous];
+    }
+
+    int seatIdAt(int position) {
+        return seatIds[position];
+    }
+
+    String seatNoAt(int position) {
+        return seatNos[position];
+    }
+
+    SeatType seatTypeAt(int position) {
+        return seatTypes[position];
+    }
+
+    /**
+     * Number of seats of the given type.
+     */
+    public int seatTypeCount(SeatType seatType) {
+        return seatCountsByType.getOrDefault(seatType, 0);
+    }
+
+    /**
+     * Price of the first seat of the given type, which all seats of the type share unless they
+     * were priced individually.
+     */
+    public int seatTypePrice(SeatType seatType) {
+        return pricesByType.getOrDefault(seatType, 0);
+    }
+
+    public int totalPrice(List<Integer> requestedSeatIds) {
+        int total = 0;
+        for (Integer seatId : requestedSeatIds) {
+            total += price(seatId);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sb.movie.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sb.movie.entities.ShowSeatSnapshot;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.exceptions.ShowDoesNotExists;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.ShowSeatSnapshotRepository;
+import com.sb.movie.repositories.TheaterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-process cache of {@link SeatDirectory} per show, loaded once from SHOW_SEATS with a
+ * projection query. A show's seat layout is fixed at creation; only rescheduling or archiving a
+ * show changes its directory, and evicts it on every node: evictions are published on the
+ * {@code seat-directory:invalidation} channel as {@code nodeId|showId}. Pub/sub delivery is not
+ * guaranteed, so directories are also reloaded {@code booking.seat-directory.ttl-minutes} after
+ * they were loaded.
+ *
+ * Shows with SPARSE seat storage have no complete set of SHOW_SEATS rows; their directory is built
+ * from the theater layout, the show's prices and its reserved id range instead. Finished shows whose
+ * seats were archived get theirs from the {@link ShowSeatSnapshot}.
+ *
+ * The cache holds at most {@code booking.seat-directory.max-shows} directories and drops those not
+ * used for {@code booking.seat-directory.expire-after-access-minutes}. Unknown shows are not cached.
+ */
+@Service
+@Slf4j
+public class SeatDirectoryService implements MessageListener {
+
+    public static final String INVALIDATION_CHANNEL = "seat-directory:invalidation";
+
+    private final ShowSeatRepository showSeatRepository;
+    private final ShowRepository showRepository;
+    private final TheaterRepository theaterRepository;
+    private final ShowSeatSnapshotRepository showSeatSnapshotRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final Cache<Integer, SeatDirectory> directories;
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public SeatDirectoryService(ShowSeatRepository showSeatRepository,
+                                ShowRepository showRepository,
+                                TheaterRepository theaterRepository,
+                                ShowSeatSnapshotRepository showSeatSnapshotRepository,
+                                StringRedisTemplate stringRedisTemplate,
+                                @Value("${booking.seat-directory.max-shows:10000}") long maxShows,
+                                @Value("${booking.seat-directory.expire-after-access-minutes:30}") long expireAfterAccessMinutes,
+                                @Value("${booking.seat-directory.ttl-minutes:240}") long ttlMinutes) {
+        this.showSeatRepository = showSeatRepository;
+        this.showRepository = showRepository;
+        this.theaterRepository = theaterRepository;
+        this.showSeatSnapshotRepository = showSeatSnapshotRepository;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.directories = Caffeine.newBuilder()
+                .maximumSize(maxShows)
+                .expireAfterAccess(Duration.ofMinutes(expireAfterAccessMinutes))
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .build();
+    }
+
+    /**
+     * Seat directory of the show.
+     * @throws ShowDoesNotExists if there is no such show
+     */
+    public SeatDirectory directory(Integer showId) {
+        return directories.get(showId, id -> {
+            ShowRepository.SeatStorageRow storage = showRepository.findSeatStorageByShowId(id)
+                    .orElseThrow(ShowDoesNotExists::new);
+            ShowSeatSnapshot snapshot = isFinished(storage.getShowDate())
+                    ? showSeatSnapshotRepository.findById(id).orElse(null) : null;
+            SeatDirectory directory;
+            if (snapshot != null) {
+                directory = new SeatDirectory(id, storage.getShowDate(), SeatSnapshotCodec.decode(snapshot), false);
+            } else if (storage.getSeatIdBase() != null) {
+                directory = sparseDirectory(id, storage);
+            } else {
+                directory = new SeatDirectory(id, storage.getShowDate(),
+                        showSeatRepository.findDirectoryByShowId(id, storage.getShowDate()), false);
+            }
+            log.debug("Loaded {}seat directory for show {} with {} seats",
+                    directory.isSparse() ? "sparse " : "", id, directory.size());
+            return directory;
+        });
+    }
+
+    /**
+     * Drop the show's directory here and on every other node.
+     */
+    public void evict(Integer showId) {
+        directories.invalidate(showId);
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + showId);
+        } catch (Exception e) {
+            log.warn("Failed to publish eviction of seat directory {}: {}", showId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        try {
+            directories.invalidate(Integer.valueOf(parts[1]));
+        } catch (NumberFormatException e) {
+            log.warn("Ignoring malformed seat directory eviction {}", parts[1]);
+        }
+    }
+
+    /**
+     * Whether the show's date has passed, which makes it a candidate for seat archival.
+     */
+    public static boolean isFinished(Date showDate) {
+        return showDate != null && showDate.toLocalDate().isBefore(LocalDate.now());
+    }
+
+    private SeatDirectory sparseDirectory(Integer showId, ShowRepository.SeatStorageRow storage) {
+        List<TheaterRepository.TheaterSeatRow> layout = theaterRepository.findLayoutByTheaterId(storage.getTheaterId());
+        List<LayoutSeat> seats = new ArrayList<>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            TheaterRepository.TheaterSeatRow seat = layout.get(i);
+            Integer price = seat.getSeatType() == SeatType.CLASSIC
+                    ? storage.getPriceOfClassicSeat() : storage.getPriceOfPremiumSeat();
+            seats.add(new LayoutSeat(storage.getSeatIdBase() + i, seat.getSeatNo(), seat.getSeatType(), price));
+        }
+        return new SeatDirectory(showId, storage.getShowDate(), seats, true);
+    }
+
+    @lombok.Value
+    private static class LayoutSeat implements ShowSeatRepository.SeatDirectoryRow {
+        Integer id;
+        String seatNo;
+        SeatType seatType;
+        Integer price;
+    }
+}
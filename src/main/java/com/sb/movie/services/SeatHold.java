@@ -0,0 +1,18 @@
+package com.sb.movie.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Result of a seat lock or booking confirmation, independent of the locking mode in use.
+ */
+@Data
+@AllArgsConstructor
+public class SeatHold {
+    private List<Integer> seatIds;
+    private Integer totalPrice;
+    private LocalDateTime lockedAt;  // null for confirmed bookings
+}
@@ -0,0 +1,136 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatLockMode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Releases seat holds as soon as they expire.
+ *
+ * Every hold registers its deadline in the Redis sorted set {@code seat-hold:expiry} with member
+ * {@code showId:deadlineMillis}. Once a second each node claims the due members with a Lua script
+ * (range + remove in one step, so a deadline is handled by exactly one node), releases the expired
+ * holds show by show and evicts only those shows' caches. A slow full sweep catches deadlines whose
+ * registration or processing was lost.
+ *
+ * In MAILBOX mode the expired holds are released by the show's writer in {@link SeatMailbox}; the
+ * reaper waits for that command without holding a transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatHoldReaper {
+
+    private static final String EXPIRY_KEY = "seat-hold:expiry";
+
+    private static final String CLAIM_LUA =
+            "local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2])\n" +
+            "if #due > 0 then\n" +
+            "    redis.call('ZREM', KEYS[1], unpack(due))\n" +
+            "end\n" +
+            "return due";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(CLAIM_LUA, List.class);
+
+    private static final int CLAIM_BATCH_SIZE = 500;
+    private static final long RETRY_DELAY_SECONDS = 5;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SeatLockingService seatLockingService;
+    private final SeatMailbox seatMailbox;
+    private final CacheManager cacheManager;
+
+    /**
+     * Register the deadline of a new hold. Failing to register only delays the release until the
+     * next fallback sweep, so it never fails the lock itself.
+     */
+    public void schedule(Integer showId, LocalDateTime expiresAt) {
+        // Holds expire strictly after their sub-millisecond lock time, so round the deadline up
+        long deadline = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() + 1;
+        try {
+            stringRedisTemplate.opsForZSet().add(EXPIRY_KEY, showId + ":" + deadline, deadline);
+        } catch (Exception e) {
+            log.warn("Failed to schedule hold expiry for show {}: {}", showId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${booking.seat-hold-reaper.interval-ms:1000}")
+    public void reap() {
+        List<String> due;
+        try {
+            due = claimDue(System.currentTimeMillis());
+        } catch (Exception e) {
+            log.warn("Failed to claim expired seat holds: {}", e.getMessage());
+            return;
+        }
+
+        // Several holds of the same show can expire together; release each show once
+        Set<Integer> showIds = new LinkedHashSet<>();
+        for (String member : due) {
+            showIds.add(Integer.valueOf(member.substring(0, member.indexOf(':'))));
+        }
+
+        for (Integer showId : showIds) {
+            try {
+                releaseShow(showId);
+            } catch (Exception e) {
+                log.error("Failed to release expired holds for show {}: {}", showId, e.getMessage());
+                schedule(showId, LocalDateTime.now().plusSeconds(RETRY_DELAY_SECONDS));
+            }
+        }
+    }
+
+    /**
+     * Fallback for deadlines that never made it into, or were lost from, the sorted set.
+     */
+    @Scheduled(fixedDelayString = "${booking.seat-hold-reaper.sweep-interval-ms:600000}")
+    public void sweep() {
+        for (Integer showId : seatLockingService.findShowsWithExpiredLocks()) {
+            try {
+                releaseShow(showId);
+            } catch (Exception e) {
+                log.error("Failed to release expired holds for show {}: {}", showId, e.getMessage());
+            }
+        }
+    }
+
+    private void releaseShow(Integer showId) {
+        if (seatLockingService.getMode() == SeatLockMode.MAILBOX) {
+            seatMailbox.await(seatMailbox.releaseExpired(showId, seatLockingService.lockExpiryTime()));
+        } else {
+            seatLockingService.releaseExpiredLocks(showId);
+        }
+
+        // REDIS holds vanish on their own, so evict whether or not rows were released here. The seat
+        // map was dropped with the reset of the seat changes and reloads on the next read
+        evict(SeatSummaryCache.CACHE_NAME, showId);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claimDue(long now) {
+        List<String> due = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(EXPIRY_KEY),
+                Long.toString(now), Integer.toString(CLAIM_BATCH_SIZE));
+        return due != null ? due : List.of();
+    }
+
+    private void evict(String cacheName, Integer showId) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(showId);
+        }
+    }
+}
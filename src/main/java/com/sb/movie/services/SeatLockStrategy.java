@@ -0,0 +1,86 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * How one {@link SeatLockMode} holds, books and releases seats and where it reads their status from.
+ *
+ * {@link SeatLockingService} picks the strategy of the configured mode and owns the transactions;
+ * every method here runs inside the caller's transaction. Archived shows never reach a strategy.
+ */
+public interface SeatLockStrategy {
+
+    SeatLockMode mode();
+
+    /**
+     * Hold every requested seat for the user, or none of them.
+     */
+    SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId);
+
+    /**
+     * Book the user's held seats. The request must cover every seat the user holds for the show.
+     */
+    SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId);
+
+    /**
+     * Release the user's holds on the requested seats.
+     * @return number of seats released
+     */
+    int release(Integer showId, List<Integer> seatIds, Integer userId);
+
+    /**
+     * Return BOOKED seats of a cancelled ticket to AVAILABLE.
+     */
+    void cancel(Integer showId, List<Integer> seatIds);
+
+    /**
+     * Release the show's holds taken before the expiry time.
+     * @return number of seats released
+     */
+    int releaseExpired(Integer showId, LocalDateTime expiryTime);
+
+    /**
+     * Shows that still have holds taken before the expiry time.
+     */
+    List<Integer> findShowsWithHoldsBefore(LocalDateTime expiryTime);
+
+    /**
+     * Status of every seat of the show that is not AVAILABLE.
+     */
+    Map<Integer, SeatStatus> unavailableSeats(SeatDirectory directory);
+
+    /**
+     * Add the held and booked seats of the show to its counts.
+     */
+    void countUnavailableSeats(SeatDirectory directory, SeatCounts counts);
+
+    /**
+     * {@link #countUnavailableSeats(SeatDirectory, SeatCounts)} of several shows, keyed by show id.
+     */
+    default void countUnavailableSeats(Map<Integer, SeatDirectory> directories, Map<Integer, SeatCounts> counts) {
+        directories.forEach((showId, directory) -> countUnavailableSeats(directory, counts.get(showId)));
+    }
+
+    /**
+     * Ids of the show's seats that can be locked right now.
+     */
+    Set<Integer> availableSeatIds(SeatDirectory directory);
+
+    /**
+     * Current status of the given seats of a show, which may differ from the loaded rows.
+     */
+    Function<ShowSeat, SeatStatus> seatStatusView(Integer showId, List<ShowSeat> seats);
+
+    /**
+     * Record the seats' change in the {@link SeatChangeLog} once it is applied.
+     */
+    void recordChange(Integer showId, List<Integer> seatIds, SeatStatus newStatus);
+}
@@ -1,154 +1,242 @@
 package com.sb.movie.services;
 
+import com.sb.movie.entities.Show;
 import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
 import com.sb.movie.enums.SeatStatus;
 import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.ShowSeatSnapshotRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Date;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Seat holds, bookings and seat reads of every show. How seats are held and where their status is
+ * read from depends on {@code booking.seat-lock.mode}; each mode is a {@link SeatLockStrategy}.
+ * This service owns the transactions, records seat changes and serves archived shows from their
+ * snapshot, which no mode touches.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SeatLockingService {
 
+    private final List<SeatLockStrategy> strategies;
     private final ShowSeatRepository showSeatRepository;
+    private final SeatDirectoryService seatDirectoryService;
+    private final ShowSeatSnapshotRepository showSeatSnapshotRepository;
 
     @Value("${booking.seat-lock-timeout:10}")
     private int seatLockTimeoutMinutes;
 
+    @Value("${booking.seat-lock.mode:PESSIMISTIC}")
+    private SeatLockMode mode;
+
+    public SeatLockMode getMode() {
+        return mode;
+    }
+
     /**
      * Lock seats for a user with pessimistic locking to prevent double-booking.
-     * Uses SERIALIZABLE isolation level for maximum safety.
+     * Uses SERIALIZABLE isolation level for maximum safety. Each mode takes the hold its own way,
+     * see the {@link SeatLockStrategy} of the mode.
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
-    public List<ShowSeat> lockSeats(List<Integer> seatIds, Integer userId) {
+    public SeatHold lockSeats(Integer showId, List<Integer> seatIds, Integer userId) {
         log.info("Attempting to lock {} seats for user {}", seatIds.size(), userId);
-
-        // Acquire pessimistic write lock on the seats
-        List<ShowSeat> seats = showSeatRepository.findAndLockByIds(seatIds);
-
-        // Verify we found all requested seats
-        if (seats.size() != seatIds.size()) {
-            throw new IllegalArgumentException("Some seats not found");
-        }
-
-        // Check if all seats are available
-        for (ShowSeat seat : seats) {
-            if (seat.getStatus() != SeatStatus.AVAILABLE) {
-                throw new IllegalStateException("Seat " + seat.getSeatNo() +
-                        " is not available (Status: " + seat.getStatus() + ")");
-            }
-        }
-
-        // Lock all seats
-        LocalDateTime lockTime = LocalDateTime.now();
-        for (ShowSeat seat : seats) {
-            seat.setStatus(SeatStatus.LOCKED);
-            seat.setLockedAt(lockTime);
-            seat.setLockedByUserId(userId);
-        }
-
-        showSeatRepository.saveAll(seats);
-        log.info("Successfully locked {} seats for user {}", seats.size(), userId);
-
-        return seats;
+        SeatLockStrategy strategy = strategy();
+        strategy.recordChange(showId, seatIds, SeatStatus.LOCKED);
+        return strategy.lock(showId, seatIds, userId);
     }
 
     /**
      * Confirm booking by changing seat status from LOCKED to BOOKED.
-     * Only the user who locked the seats can confirm them.
+     * Only the user who locked the seats can confirm them, and the request must cover
+     * every seat the user holds for the show.
      */
     @Transactional(isolation = Isolation.SERIALIZABLE)
-    public void confirmBooking(List<Integer> seatIds, Integer userId) {
+    public SeatHold confirmBooking(Integer showId, List<Integer> seatIds, Integer userId) {
         log.info("Confirming booking for {} seats by user {}", seatIds.size(), userId);
+        SeatLockStrategy strategy = strategy();
+        strategy.recordChange(showId, seatIds, SeatStatus.BOOKED);
+        return strategy.confirm(showId, seatIds, userId);
+    }
 
-        List<ShowSeat> seats = showSeatRepository.findAndLockByIds(seatIds);
+    /**
+     * Release locks on seats (e.g., when user cancels or payment fails).
+     */
+    @Transactional
+    public void releaseSeats(Integer showId, List<Integer> seatIds, Integer userId) {
+        log.info("Releasing {} seats for user {}", seatIds.size(), userId);
+        SeatLockStrategy strategy = strategy();
+        strategy.recordChange(showId, seatIds, SeatStatus.AVAILABLE);
+        strategy.release(showId, seatIds, userId);
+    }
 
-        for (ShowSeat seat : seats) {
-            if (seat.getStatus() != SeatStatus.LOCKED) {
-                throw new IllegalStateException("Seat " + seat.getSeatNo() + " is not locked");
-            }
+    /**
+     * Return BOOKED seats of a cancelled ticket to AVAILABLE.
+     */
+    @Transactional
+    public void cancelBooking(Integer showId, List<Integer> seatIds) {
+        SeatLockStrategy strategy = strategy();
+        strategy.recordChange(showId, seatIds, SeatStatus.AVAILABLE);
+        strategy.cancel(showId, seatIds);
+    }
 
-            if (!seat.getLockedByUserId().equals(userId)) {
-                throw new IllegalStateException("Seat " + seat.getSeatNo() +
-                        " is locked by another user");
-            }
+    /**
+     * Every seat of the show. A SPARSE show only has rows for seats that were ever held; its other
+     * seats are filled in from the layout as transient AVAILABLE seats, in id order. The seats of an
+     * archived show are decoded from its snapshot, also as transient seats.
+     */
+    @Transactional(readOnly = true)
+    public List<ShowSeat> showSeats(Show show) {
+        SeatDirectory directory = seatDirectoryService.directory(show.getShowId());
+        Optional<List<SeatSnapshotCodec.ArchivedSeat>> archived = archivedSeats(directory);
+        if (archived.isPresent()) {
+            return archived.get().stream()
+                    .map(SeatSnapshotCodec.ArchivedSeat::toShowSeat)
+                    .collect(Collectors.toList());
+        }
 
-            seat.setStatus(SeatStatus.BOOKED);
-            seat.setLockedAt(null);
-            seat.setLockedByUserId(null);
+        List<ShowSeat> rows = showSeatRepository.findByShowId(show.getShowId(), directory.getShowDate());
+        if (!directory.isSparse()) {
+            return rows;
         }
 
-        showSeatRepository.saveAll(seats);
-        log.info("Successfully confirmed booking for {} seats", seats.size());
+        return withLayoutSeats(directory, directory.allSeatIds(), rows);
     }
 
     /**
-     * Release locks on seats (e.g., when user cancels or payment fails).
+     * Seat counts of the show by type and status, from the same source of truth as
+     * {@link #seatStatusView} but without loading the seats: the database only returns the number
+     * of held and booked seats per type, and the totals come from the seat directory.
      */
-    @Transactional
-    public void releaseSeats(List<Integer> seatIds, Integer userId) {
-        log.info("Releasing {} seats for user {}", seatIds.size(), userId);
+    @Transactional(readOnly = true)
+    public SeatCounts seatCounts(Integer showId) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        SeatCounts counts = new SeatCounts(directory);
 
-        List<ShowSeat> seats = showSeatRepository.findAllById(seatIds);
-        int releasedCount = 0;
+        Optional<List<SeatSnapshotCodec.ArchivedSeat>> archived = archivedSeats(directory);
+        if (archived.isPresent()) {
+            archived.get().forEach(seat -> counts.add(seat.getSeatType(), seat.getStatus(), 1));
+            return counts;
+        }
 
-        for (ShowSeat seat : seats) {
-            if (seat.getStatus() == SeatStatus.BOOKED) {
-                throw new IllegalStateException("Cannot release seat " + seat.getSeatNo() +
-                        " - it is already BOOKED. Use ticket cancellation instead.");
-            }
+        strategy().countUnavailableSeats(directory, counts);
+        return counts;
+    }
 
-            if (seat.getStatus() == SeatStatus.LOCKED &&
-                    seat.getLockedByUserId().equals(userId)) {
-                seat.setStatus(SeatStatus.AVAILABLE);
-                seat.setLockedAt(null);
-                seat.setLockedByUserId(null);
-                releasedCount++;
-            } else if (seat.getStatus() == SeatStatus.LOCKED) {
-                throw new IllegalStateException("Seat " + seat.getSeatNo() +
-                        " is locked by another user");
+    /**
+     * {@link #seatCounts(Integer)} of several shows, with one grouped query for all shows whose
+     * seats are counted in the database. Shows are returned in the order given.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, SeatCounts> seatCounts(Collection<Integer> showIds) {
+        Map<Integer, SeatCounts> counts = new LinkedHashMap<>();
+        Map<Integer, SeatDirectory> stored = new HashMap<>();
+        for (Integer showId : showIds) {
+            SeatDirectory directory = seatDirectoryService.directory(showId);
+            if (SeatDirectoryService.isFinished(directory.getShowDate())) {
+                // A show that may be archived
+                counts.put(showId, seatCounts(showId));
+            } else {
+                counts.put(showId, new SeatCounts(directory));
+                stored.put(showId, directory);
             }
         }
+        strategy().countUnavailableSeats(stored, counts);
+        return counts;
+    }
+
+    /**
+     * Status of every seat of the show that is not AVAILABLE, from the same source of truth as
+     * {@link #seatStatusView}, without loading the available seats. Feeds {@link SeatMapCache}.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, SeatStatus> unavailableSeats(Integer showId) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        Map<Integer, SeatStatus> unavailable = new HashMap<>();
 
-        if (releasedCount == 0) {
-            throw new IllegalStateException("No seats were released - seats are not locked by you");
+        Optional<List<SeatSnapshotCodec.ArchivedSeat>> archived = archivedSeats(directory);
+        if (archived.isPresent()) {
+            archived.get().stream()
+                    .filter(seat -> seat.getStatus() != SeatStatus.AVAILABLE)
+                    .forEach(seat -> unavailable.put(seat.getId(), seat.getStatus()));
+            return unavailable;
         }
 
-        showSeatRepository.saveAll(seats);
-        log.info("Successfully released {} seats", releasedCount);
+        return strategy().unavailableSeats(directory);
     }
 
     /**
-     * Scheduled task to release expired seat locks.
-     * Runs every 2 minutes.
+     * Resolves the current status of a show's seats, which may differ from the loaded rows: the
+     * in-memory modes' state wins over the database, and REDIS holds are overlaid on it.
      */
-    @Scheduled(fixedDelay = 120000) // 2 minutes
-    @Transactional
-    public void releaseExpiredLocks() {
-        LocalDateTime expiryTime = LocalDateTime.now().minusMinutes(seatLockTimeoutMinutes);
+    public Function<ShowSeat, SeatStatus> seatStatusView(Integer showId, List<ShowSeat> seats) {
+        return strategy().seatStatusView(showId, seats);
+    }
 
-        int releasedCount = showSeatRepository.releaseExpiredLocks(expiryTime);
+    /**
+     * Ids of the show's seats that can be locked right now, from the same source of truth as
+     * {@link #lockSeats}. The result is a snapshot; locking the seats may still conflict.
+     */
+    @Transactional(readOnly = true)
+    public Set<Integer> availableSeatIds(Integer showId) {
+        return strategy().availableSeatIds(seatDirectoryService.directory(showId));
+    }
 
+    /**
+     * Release the expired holds of one show. Called by {@link SeatHoldReaper} when a hold deadline
+     * of the show passes. REDIS holds expire with their keys, so there is nothing to release.
+     * In MAILBOX mode the show's writer releases them; the reaper submits that command to
+     * {@link SeatMailbox} itself so it never waits inside a transaction.
+     */
+    @Transactional
+    public int releaseExpiredLocks(Integer showId) {
+        int releasedCount = strategy().releaseExpired(showId, lockExpiryTime());
         if (releasedCount > 0) {
-            log.info("Released {} expired seat locks", releasedCount);
+            log.info("Released {} expired seat locks for show {}", releasedCount, showId);
         }
+        return releasedCount;
+    }
+
+    /**
+     * Holds taken before this time have expired.
+     */
+    public LocalDateTime lockExpiryTime() {
+        return LocalDateTime.now().minusMinutes(seatLockTimeoutMinutes);
+    }
+
+    /**
+     * Shows that still have holds past their timeout, for the reaper's fallback sweep.
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> findShowsWithExpiredLocks() {
+        return strategy().findShowsWithHoldsBefore(lockExpiryTime());
     }
 
     /**
      * Check if seats are available for locking.
      */
     @Transactional(readOnly = true)
-    public boolean areSeatsAvailable(List<Integer> seatIds) {
-        List<ShowSeat> seats = showSeatRepository.findAllById(seatIds);
+    public boolean areSeatsAvailable(Integer showId, List<Integer> seatIds) {
+        List<ShowSeat> seats = showSeatRepository.findByIds(showDate(showId), seatIds);
 
         if (seats.size() != seatIds.size()) {
             return false;
@@ -156,4 +244,48 @@ public class SeatLockingService {
 
         return seats.stream().allMatch(seat -> seat.getStatus() == SeatStatus.AVAILABLE);
     }
+
+    private SeatLockStrategy strategy() {
+        for (SeatLockStrategy strategy : strategies) {
+            if (strategy.mode() == mode) {
+                return strategy;
+            }
+        }
+        throw new IllegalStateException("No seat lock strategy for mode " + mode);
+    }
+
+    // Stored rows of a SPARSE show, with the seats that have none filled in from the layout as AVAILABLE
+    private List<ShowSeat> withLayoutSeats(SeatDirectory directory, List<Integer> seatIds, List<ShowSeat> rows) {
+        Map<Integer, ShowSeat> stored = rows.stream()
+                .collect(Collectors.toMap(ShowSeat::getId, Function.identity()));
+        List<ShowSeat> seats = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            ShowSeat seat = stored.get(seatId);
+            if (seat == null) {
+                seat = new ShowSeat();
+                seat.setId(seatId);
+                seat.setSeatNo(directory.seatNo(seatId));
+                seat.setSeatType(directory.seatType(seatId));
+                seat.setPrice(directory.price(seatId));
+                seat.setStatus(SeatStatus.AVAILABLE);
+            }
+            seats.add(seat);
+        }
+        return seats;
+    }
+
+    // Seats of a finished show decoded from its snapshot, if it was archived
+    private Optional<List<SeatSnapshotCodec.ArchivedSeat>> archivedSeats(SeatDirectory directory) {
+        if (!SeatDirectoryService.isFinished(directory.getShowDate())) {
+            return Optional.empty();
+        }
+        return showSeatSnapshotRepository.findById(directory.getShowId()).map(SeatSnapshotCodec::decode);
+    }
+
+    /**
+     * Partition key of the show's seats, so seat queries only visit the show's partition.
+     */
+    private Date showDate(Integer showId) {
+        return seatDirectoryService.directory(showId).getShowDate();
+    }
 }
@@ -0,0 +1,329 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Single writer per show for MAILBOX seat lock mode.
+ *
+ * Seat commands are queued to one of a fixed set of partitions, chosen by show id, and each
+ * partition is drained by its own thread. Commands of a show therefore run one after another
+ * against the show's {@link ShowSeatState} without any lock contention. A partition takes every
+ * queued command (up to {@code booking.mailbox.batch-size}), applies them in memory and writes all
+ * changed seats in one JDBC batch and one commit; only then are the callers' futures completed.
+ * If that commit fails, the affected shows are reloaded from SHOW_SEATS and the batch fails.
+ * The changed seats and their new statuses are recorded in the {@link SeatChangeLog} before the
+ * futures complete. Every future of a batch is completed whatever goes wrong while processing it.
+ * Expired holds are released by a command as well, so the partition stays the show's only writer.
+ *
+ * A confirm commits the BOOKED seats before the caller saves the ticket in a transaction of its
+ * own. Should that fail, {@link #revertConfirm} puts the user's hold back. Only a node that stops
+ * between the two leaves BOOKED seats without a ticket; they have no TICKET_SEATS row and are
+ * returned to AVAILABLE by hand.
+ *
+ * A partition needs a pooled connection of its own to commit, so callers must not wait for a
+ * command while they hold one: a transaction per waiting caller would leave the partition without
+ * a connection once the pool is exhausted. {@link TicketServiceImpl} submits and awaits commands
+ * outside any transaction and only opens one for the ticket after the command completed.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatMailbox {
+
+    private final SeatStateEngine seatStateEngine;
+    private final SeatChangeLog seatChangeLog;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.mailbox.partitions:0}")
+    private int partitionCount;
+
+    @Value("${booking.mailbox.batch-size:256}")
+    private int batchSize;
+
+    @Value("${booking.mailbox.callback-threads:16}")
+    private int callbackThreads;
+
+    @Value("${booking.mailbox.await-timeout-ms:10000}")
+    private long awaitTimeoutMs;
+
+    private volatile List<Partition> partitions;
+    private volatile ExecutorService callbackExecutor;
+
+    public CompletableFuture<SeatHold> lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        return submit(showId, seatIds, state -> {
+            LocalDateTime lockTime = LocalDateTime.now();
+            int totalPrice = state.lock(seatIds, userId, lockTime);
+            return new SeatHold(seatIds, totalPrice, lockTime);
+        });
+    }
+
+    public CompletableFuture<SeatHold> confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        return submit(showId, seatIds, state -> new SeatHold(seatIds, state.confirm(seatIds, userId), null));
+    }
+
+    /**
+     * Put back the hold of a confirm whose ticket was not saved. The hold restarts its timeout.
+     */
+    public CompletableFuture<Void> revertConfirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        return submit(showId, seatIds, state -> {
+            state.revertConfirm(seatIds, userId);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> release(Integer showId, List<Integer> seatIds, Integer userId) {
+        return submit(showId, seatIds, state -> state.release(seatIds, userId));
+    }
+
+    public CompletableFuture<Void> cancel(Integer showId, List<Integer> seatIds) {
+        return submit(showId, seatIds, state -> {
+            state.applyCancel(seatIds);
+            return null;
+        });
+    }
+
+    /**
+     * Release the show's holds taken before the expiry time. Which seats change is only known once
+     * the command is applied, so those are the seats written and recorded.
+     */
+    public CompletableFuture<List<Integer>> releaseExpired(Integer showId, LocalDateTime expiryTime) {
+        return submit(showId, state -> state.releaseExpired(expiryTime), released -> released);
+    }
+
+    /**
+     * Result of a command, or the exception it failed with. Must not be called inside a transaction.
+     * Gives up after {@code booking.mailbox.await-timeout-ms}; the command may still be applied
+     * after that, and a hold taken that late is released by the reaper's sweep.
+     */
+    public <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            log.warn("Seat mailbox command not done after {} ms", awaitTimeoutMs);
+            throw new SeatsNotAvailable("Seats are busy and the request did not complete in time. " +
+                    "Please check your bookings before trying again");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SeatsNotAvailable("Seat request interrupted. Please try again");
+        }
+    }
+
+    /**
+     * Executor for work that follows a command, such as saving the ticket after a confirm.
+     * Futures are completed on it so that partition threads only ever apply seat commands.
+     */
+    public Executor callbackExecutor() {
+        start();
+        return callbackExecutor;
+    }
+
+    private <T> CompletableFuture<T> submit(Integer showId, List<Integer> seatIds, Function<ShowSeatState, T> action) {
+        return submit(showId, action, result -> seatIds);
+    }
+
+    private <T> CompletableFuture<T> submit(Integer showId, Function<ShowSeatState, T> action,
+                                            Function<T, Collection<Integer>> changedSeats) {
+        List<Partition> started = start();
+        Command<T> command = new Command<>(showId, action, changedSeats);
+        started.get(Math.floorMod(showId.hashCode(), started.size())).queue.add(command);
+        return command.future;
+    }
+
+    private List<Partition> start() {
+        if (partitions == null) {
+            synchronized (this) {
+                if (partitions == null) {
+                    int count = partitionCount > 0 ? partitionCount : Runtime.getRuntime().availableProcessors();
+                    AtomicInteger callbackThreadIds = new AtomicInteger();
+                    callbackExecutor = Executors.newFixedThreadPool(callbackThreads, runnable -> {
+                        Thread thread = new Thread(runnable, "seat-mailbox-callback-" + callbackThreadIds.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+                    List<Partition> created = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        Partition partition = new Partition();
+                        Thread thread = new Thread(partition, "seat-mailbox-" + i);
+                        thread.setDaemon(true);
+                        thread.start();
+                        created.add(partition);
+                    }
+                    partitions = created;
+                    log.info("Started seat mailbox with {} partitions", count);
+                }
+            }
+        }
+        return partitions;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (partitions != null) {
+            partitions.forEach(partition -> partition.running = false);
+            callbackExecutor.shutdown();
+        }
+    }
+
+    private final class Partition implements Runnable {
+        private final BlockingQueue<Command<?>> queue = new LinkedBlockingQueue<>();
+        private volatile boolean running = true;
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>();
+            while (running) {
+                try {
+                    Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    batch.add(first);
+                    queue.drainTo(batch, Math.max(0, batchSize - 1));
+                    process(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    log.error("Seat mailbox partition failed to process a batch: {}", e.getMessage());
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void process(List<Command<?>> batch) {
+            try {
+                applyAndCommit(batch);
+            } catch (RuntimeException | Error e) {
+                for (Command<?> command : batch) {
+                    if (command.failure == null) {
+                        command.failure = e instanceof RuntimeException runtimeException
+                                ? runtimeException : new IllegalStateException(e);
+                    }
+                }
+                throw e;
+            } finally {
+                batch.forEach(this::complete);
+            }
+        }
+
+        private void applyAndCommit(List<Command<?>> batch) {
+            Map<Integer, Set<Integer>> changedSeats = new LinkedHashMap<>();
+            for (Command<?> command : batch) {
+                try {
+                    command.apply(seatStateEngine.state(command.showId));
+                    changedSeats.computeIfAbsent(command.showId, id -> new LinkedHashSet<>())
+                            .addAll(command.changedSeats());
+                } catch (RuntimeException e) {
+                    command.failure = e;
+                }
+            }
+
+            try {
+                if (!changedSeats.isEmpty()) {
+                    new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                            changedSeats.forEach((showId, seatIds) -> seatStateEngine.write(showId,
+                                    seatStateEngine.state(showId).snapshot(new ArrayList<>(seatIds)))));
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to commit seat mailbox batch of {} commands: {}", batch.size(), e.getMessage());
+                changedSeats.keySet().forEach(seatStateEngine::reload);
+                for (Command<?> command : batch) {
+                    if (command.failure == null) {
+                        command.failure = e;
+                    }
+                }
+            }
+
+            // Recorded whether or not the batch committed: a reloaded show may have changed as well.
+            // This thread is the show's only writer, so the state read back is what was committed
+            changedSeats.forEach((showId, seatIds) -> {
+                try {
+                    ShowSeatState state = seatStateEngine.state(showId);
+                    Map<Integer, SeatStatus> statuses = new LinkedHashMap<>();
+                    seatIds.forEach(seatId -> statuses.put(seatId, state.statusOf(seatId)));
+                    seatChangeLog.record(showId, statuses);
+                } catch (RuntimeException e) {
+                    // The show could not be reloaded; clients fetch the whole seat map instead
+                    log.error("Failed to read back seats of show {}: {}", showId, e.getMessage());
+                    seatChangeLog.reset(showId);
+                }
+            });
+        }
+
+        // On the callback executor, or right here once it no longer takes work
+        private void complete(Command<?> command) {
+            try {
+                callbackExecutor.execute(command::complete);
+            } catch (RejectedExecutionException e) {
+                command.complete();
+            }
+        }
+    }
+
+    private static final class Command<T> {
+        private final Integer showId;
+        private final Function<ShowSeatState, T> action;
+        private final Function<T, Collection<Integer>> changedSeats;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private T result;
+        private RuntimeException failure;
+
+        private Command(Integer showId, Function<ShowSeatState, T> action, Function<T, Collection<Integer>> changedSeats) {
+            this.showId = showId;
+            this.action = action;
+            this.changedSeats = changedSeats;
+        }
+
+        private void apply(ShowSeatState state) {
+            result = action.apply(state);
+        }
+
+        private Collection<Integer> changedSeats() {
+            return changedSeats.apply(result);
+        }
+
+        private void complete() {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.sb.movie.services;
+
+import com.sb.movie.config.SingleFlight;
+import com.sb.movie.enums.SeatStatus;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Current seat statuses of a show in Redis, so seat maps and seat counts are served without
+ * reading the seats from the database, even while they change all the time.
+ *
+ * Each show has a hash {@code seat-map:{showId}} holding the status code of every seat that is not
+ * AVAILABLE, the number of LOCKED and BOOKED seats ({@code #L}, {@code #B}) and the
+ * {@link SeatChangeLog} version the statuses are at. Seat numbers, types and prices come from the
+ * {@link SeatDirectory}. Seat changes patch the hash in place, in the same script that records them,
+ * instead of evicting it.
+ *
+ * A missing seat map is loaded from the source of truth of the seat lock mode. It is only stored if
+ * the version read before the seats is still current, so a change that committed in between is
+ * never lost. Concurrent misses load it once across all nodes, see {@link SingleFlight}.
+ *
+ * Patches are applied once their transaction completes, which may differ from commit order. A
+ * patch whose seats changed again since it was made is not applied; the seat map is dropped and
+ * loaded again instead, see {@link SeatChangeLog}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatMapCache {
+
+    private static final String LOAD_LUA =
+            "if redis.call('EXISTS', KEYS[1]) == 1 then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local version = redis.call('HGET', KEYS[2], 'version') or '0'\n" +
+            "if version ~= ARGV[1] then\n" +
+            "    return 0\n" +
+            "end\n" +
+            "local counts = {L = 0, B = 0}\n" +
+            "for i = 3, #ARGV, 2 do\n" +
+            "    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])\n" +
+            "    counts[ARGV[i + 1]] = counts[ARGV[i + 1]] + 1\n" +
+            "end\n" +
+            "redis.call('HSET', KEYS[1], 'version', version, '#L', counts['L'], '#B', counts['B'])\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2])\n" +
+            "return 1";
+
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(LOAD_LUA, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SeatDirectoryService seatDirectoryService;
+    private final SeatLockingService seatLockingService;
+    private final SeatChangeLog seatChangeLog;
+    private final SingleFlight singleFlight;
+
+    @Value("${booking.seat-map.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * Seat statuses of the show, from Redis or loaded into it. Falls back to the source of truth,
+     * without a version, when Redis cannot be reached.
+     */
+    public SeatMap seatMap(Integer showId) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        SeatMap cached = read(directory);
+        if (cached != null) {
+            return cached;
+        }
+        return singleFlight.load(key(showId), () -> read(directory), () -> load(directory));
+    }
+
+    private SeatMap load(SeatDirectory directory) {
+        Integer showId = directory.getShowId();
+        // Read before the seats, so the seats are at least as recent as the version
+        Long version = seatChangeLog.version(showId);
+        Map<Integer, SeatStatus> unavailableSeats = seatLockingService.unavailableSeats(showId);
+        if (version != null) {
+            store(showId, version, unavailableSeats);
+        }
+        return new SeatMap(version, directory, unavailableSeats,
+                count(unavailableSeats, SeatStatus.LOCKED), count(unavailableSeats, SeatStatus.BOOKED));
+    }
+
+    private SeatMap read(SeatDirectory directory) {
+        Map<Object, Object> entries;
+        try {
+            entries = stringRedisTemplate.opsForHash().entries(key(directory.getShowId()));
+        } catch (Exception e) {
+            log.warn("Failed to read the seat map of show {}: {}", directory.getShowId(), e.getMessage());
+            return null;
+        }
+        if (entries.isEmpty()) {
+            return null;
+        }
+
+        Long version = null;
+        int lockedSeats = 0;
+        int bookedSeats = 0;
+        Map<Integer, SeatStatus> unavailableSeats = new HashMap<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            String field = entry.getKey().toString();
+            String value = entry.getValue().toString();
+            switch (field) {
+                case "version" -> version = Long.valueOf(value);
+                case "#L" -> lockedSeats = Integer.parseInt(value);
+                case "#B" -> bookedSeats = Integer.parseInt(value);
+                default -> unavailableSeats.put(Integer.valueOf(field), status(value));
+            }
+        }
+        return new SeatMap(version, directory, unavailableSeats, lockedSeats, bookedSeats);
+    }
+
+    private void store(Integer showId, long version, Map<Integer, SeatStatus> unavailableSeats) {
+        List<String> args = new ArrayList<>(unavailableSeats.size() * 2 + 2);
+        args.add(Long.toString(version));
+        args.add(Long.toString(ttlSeconds * 1000));
+        unavailableSeats.forEach((seatId, status) -> {
+            args.add(seatId.toString());
+            args.add(code(status));
+        });
+        try {
+            Long stored = stringRedisTemplate.execute(LOAD_SCRIPT,
+                    List.of(key(showId), SeatChangeLog.versionKey(showId)), args.toArray());
+            if (stored == null || stored == 0) {
+                log.debug("Seat map of show {} changed while loading, not stored", showId);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to store the seat map of show {}: {}", showId, e.getMessage());
+        }
+    }
+
+    // Same hash tag as the SeatChangeLog keys, so the scripts may touch both
+    static String key(Integer showId) {
+        return "seat-map:{" + showId + "}";
+    }
+
+    static String code(SeatStatus status) {
+        return switch (status) {
+            case AVAILABLE -> "A";
+            case LOCKED -> "L";
+            case BOOKED -> "B";
+        };
+    }
+
+    private static SeatStatus status(String code) {
+        return "B".equals(code) ? SeatStatus.BOOKED : SeatStatus.LOCKED;
+    }
+
+    private static int count(Map<Integer, SeatStatus> unavailableSeats, SeatStatus status) {
+        return (int) unavailableSeats.values().stream().filter(status::equals).count();
+    }
+
+    /**
+     * Status of every seat of a show, at {@code version} (null when not known).
+     */
+    public static final class SeatMap {
+
+        private final Long version;
+        private final SeatDirectory directory;
+        private final Map<Integer, SeatStatus> unavailableSeats;
+        private final int lockedSeats;
+        private final int bookedSeats;
+
+        SeatMap(Long version, SeatDirectory directory, Map<Integer, SeatStatus> unavailableSeats,
+                int lockedSeats, int bookedSeats) {
+            this.version = version;
+            this.directory = directory;
+            this.unavailableSeats = unavailableSeats;
+            this.lockedSeats = lockedSeats;
+            this.bookedSeats = bookedSeats;
+        }
+
+        public Long getVersion() {
+            return version;
+        }
+
+        public SeatDirectory getDirectory() {
+            return directory;
+        }
+
+        public int getTotalSeats() {
+            return directory.size();
+        }
+
+        public int getAvailableSeats() {
+            return directory.size() - lockedSeats - bookedSeats;
+        }
+
+        public int getLockedSeats() {
+            return lockedSeats;
+        }
+
+        public int getBookedSeats() {
+            return bookedSeats;
+        }
+
+        public SeatStatus statusOf(Integer seatId) {
+            return unavailableSeats.getOrDefault(seatId, SeatStatus.AVAILABLE);
+        }
+
+        /**
+         * Seats counted by type and status, without going through the available seats.
+         */
+        public SeatCounts counts() {
+            SeatCounts counts = new SeatCounts(directory);
+            unavailableSeats.forEach((seatId, status) -> counts.add(directory.seatType(seatId), status, 1));
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatType;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Free runs of a show: every maximal stretch of adjacent available seats of one type in one row.
+ *
+ * Built from the precomputed row layout of a {@link SeatDirectory} and a snapshot of the available
+ * seats in a single pass over the rows. Runs are then ranked for a party size: rows nearest the
+ * middle of the seat type's rows first, and within a run the window nearest the row's centre.
+ * A row away from the middle weighs as much as two seats away from the centre.
+ */
+final class SeatRunIndex {
+
+    private final SeatDirectory directory;
+    private final List<Run> runs = new ArrayList<>();
+
+    private SeatRunIndex(SeatDirectory directory) {
+        this.directory = directory;
+    }
+
+    static SeatRunIndex build(SeatDirectory directory, Collection<Integer> availableSeatIds) {
+        BitSet available = new BitSet(directory.size());
+        for (Integer seatId : availableSeatIds) {
+            int position = directory.position(seatId);
+            if (position >= 0) {
+                available.set(position);
+            }
+        }
+
+        SeatRunIndex index = new SeatRunIndex(directory);
+        for (int row = 0; row < directory.rowCount(); row++) {
+            int[] positions = directory.rowPositions(row);
+            double rowCentre = (directory.column(positions[0]) + directory.column(positions[positions.length - 1])) / 2.0;
+
+            int start = -1;
+            for (int i = 0; i < positions.length; i++) {
+                boolean free = available.get(positions[i]);
+                if (start >= 0 && (!free || !directory.adjacent(positions[i - 1], positions[i]))) {
+                    index.runs.add(new Run(row, rowCentre, positions, start, i - start));
+                    start = -1;
+                }
+                if (free && start < 0) {
+                    start = i;
+                }
+            }
+            if (start >= 0) {
+                index.runs.add(new Run(row, rowCentre, positions, start, positions.length - start));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Best windows of {@code count} adjacent seats, best first, at most one per run so that
+     * candidates never overlap.
+     * @param seatType seat type to allocate, or null for any
+     * @return seat ids of each candidate window
+     */
+    List<List<Integer>> candidates(int count, SeatType seatType, int limit) {
+        double middleRow = middleRow(seatType);
+
+        List<Window> windows = new ArrayList<>();
+        for (Run run : runs) {
+            SeatType runType = directory.seatTypeAt(run.positions[run.start]);
+            if (run.length < count || (seatType != null && runType != seatType)) {
+                continue;
+            }
+
+            int firstColumn = directory.column(run.positions[run.start]);
+            long ideal = Math.round(run.rowCentre - (count - 1) / 2.0) - firstColumn;
+            int offset = (int) Math.max(0, Math.min(run.length - count, ideal));
+
+            double windowCentre = firstColumn + offset + (count - 1) / 2.0;
+            double score = Math.abs(directory.rowNumber(run.row) - middleRow)
+                    + Math.abs(windowCentre - run.rowCentre) / 2;
+            windows.add(new Window(run, offset, score));
+        }
+
+        windows.sort(Comparator.comparingDouble(window -> window.score));
+
+        List<List<Integer>> candidates = new ArrayList<>();
+        for (Window window : windows.subList(0, Math.min(limit, windows.size()))) {
+            List<Integer> seatIds = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                seatIds.add(directory.seatIdAt(window.run.positions[window.run.start + window.offset + i]));
+            }
+            candidates.add(seatIds);
+        }
+        return candidates;
+    }
+
+    private double middleRow(SeatType seatType) {
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int row = 0; row < directory.rowCount(); row++) {
+            for (int position : directory.rowPositions(row)) {
+                if (seatType == null || directory.seatTypeAt(position) == seatType) {
+                    first = Math.min(first, directory.rowNumber(row));
+                    last = Math.max(last, directory.rowNumber(row));
+                    break;
+                }
+            }
+        }
+        return first <= last ? (first + last) / 2.0 : 0;
+    }
+
+    private static final class Run {
+        private final int row;
+        private final double rowCentre;
+        private final int[] positions;
+        private final int start;
+        private final int length;
+
+        private Run(int row, double rowCentre, int[] positions, int start, int length) {
+            this.row = row;
+            this.rowCentre = rowCentre;
+            this.positions = positions;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private static final class Window {
+        private final Run run;
+        private final int offset;
+        private final double score;
+
+        private Window(Run run, int offset, double score) {
+            this.run = run;
+            this.offset = offset;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.entities.ShowSeatSnapshot;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.repositories.ShowSeatRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes the seats of a show into a {@link ShowSeatSnapshot} and back.
+ *
+ * A snapshot only records whether a seat was booked: holds of a finished show never became
+ * bookings, so LOCKED seats are archived as AVAILABLE. Codes are packed with as many bits as the
+ * number of distinct values needs, which is one bit per seat for the seat type and usually for
+ * the price as well.
+ */
+public final class SeatSnapshotCodec {
+
+    private static final SeatType[] SEAT_TYPES = SeatType.values();
+
+    private SeatSnapshotCodec() {
+    }
+
+    public static ShowSeatSnapshot encode(Integer showId, List<ShowSeat> seats) {
+        List<ShowSeat> sorted = new ArrayList<>(seats);
+        sorted.sort(Comparator.comparing(ShowSeat::getId));
+        int size = sorted.size();
+
+        List<Integer> priceTable = sorted.stream()
+                .map(SeatSnapshotCodec::priceOf)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        int typeBits = bitsFor(SEAT_TYPES.length);
+        int priceBits = bitsFor(priceTable.size());
+
+        BitSet types = new BitSet();
+        BitSet prices = new BitSet();
+        BitSet booked = new BitSet(size);
+        List<String> seatNos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ShowSeat seat = sorted.get(i);
+            if (seat.getSeatNo().indexOf(',') >= 0) {
+                throw new IllegalStateException("Seat number " + seat.getSeatNo() + " cannot be archived");
+            }
+            seatNos.add(seat.getSeatNo());
+            pack(types, i, typeBits, seat.getSeatType().ordinal());
+            pack(prices, i, priceBits, priceTable.indexOf(priceOf(seat)));
+            booked.set(i, seat.getStatus() == SeatStatus.BOOKED);
+        }
+
+        return ShowSeatSnapshot.builder()
+                .showId(showId)
+                .seatCount(size)
+                .seatIdRuns(idRuns(sorted))
+                .seatNos(String.join(",", seatNos))
+                .seatTypes(types.toByteArray())
+                .priceTable(priceTable.stream().map(String::valueOf).collect(Collectors.joining(",")))
+                .priceIndexes(prices.toByteArray())
+                .bookedSeats(booked.toByteArray())
+                .archivedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Seats of the snapshot in id order.
+     */
+    public static List<ArchivedSeat> decode(ShowSeatSnapshot snapshot) {
+        int size = snapshot.getSeatCount();
+        List<ArchivedSeat> seats = new ArrayList<>(size);
+        if (size == 0) {
+            return seats;
+        }
+
+        int[] ids = seatIds(snapshot.getSeatIdRuns(), size);
+        String[] seatNos = snapshot.getSeatNos().split(",", -1);
+        int[] priceTable = Arrays.stream(snapshot.getPriceTable().split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        int typeBits = bitsFor(SEAT_TYPES.length);
+        int priceBits = bitsFor(priceTable.length);
+        BitSet types = BitSet.valueOf(snapshot.getSeatTypes());
+        BitSet prices = BitSet.valueOf(snapshot.getPriceIndexes());
+        BitSet booked = BitSet.valueOf(snapshot.getBookedSeats());
+
+        for (int i = 0; i < size; i++) {
+            seats.add(new ArchivedSeat(ids[i], seatNos[i],
+                    SEAT_TYPES[unpack(types, i, typeBits)],
+                    priceTable[unpack(prices, i, priceBits)],
+                    booked.get(i) ? SeatStatus.BOOKED : SeatStatus.AVAILABLE));
+        }
+        return seats;
+    }
+
+    private static String idRuns(List<ShowSeat> sorted) {
+        StringBuilder runs = new StringBuilder();
+        int i = 0;
+        while (i < sorted.size()) {
+            int first = sorted.get(i).getId();
+            int length = 1;
+            while (i + length < sorted.size() && sorted.get(i + length).getId() == first + length) {
+                length++;
+            }
+            if (runs.length() > 0) {
+                runs.append(',');
+            }
+            runs.append(first).append(':').append(length);
+            i += length;
+        }
+        return runs.toString();
+    }
+
+    private static int[] seatIds(String idRuns, int size) {
+        int[] ids = new int[size];
+        int i = 0;
+        for (String run : idRuns.split(",")) {
+            int split = run.indexOf(':', 1);
+            int first = Integer.parseInt(run.substring(0, split));
+            int length = Integer.parseInt(run.substring(split + 1));
+            for (int offset = 0; offset < length; offset++) {
+                ids[i++] = first + offset;
+            }
+        }
+        return ids;
+    }
+
+    private static int priceOf(ShowSeat seat) {
+        return seat.getPrice() != null ? seat.getPrice() : 0;
+    }
+
+    private static int bitsFor(int distinctValues) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(distinctValues - 1));
+    }
+
+    private static void pack(BitSet bits, int index, int width, int code) {
+        for (int bit = 0; bit < width; bit++) {
+            bits.set(index * width + bit, (code >>> bit & 1) == 1);
+        }
+    }
+
+    private static int unpack(BitSet bits, int index, int width) {
+        int code = 0;
+        for (int bit = 0; bit < width; bit++) {
+            if (bits.get(index * width + bit)) {
+                code |= 1 << bit;
+            }
+        }
+        return code;
+    }
+
+    /**
+     * A seat decoded from a snapshot. Also serves as a directory row, so archived shows keep
+     * resolving seat numbers to the ids their tickets refer to.
+     */
+    @lombok.Value
+    public static class ArchivedSeat implements ShowSeatRepository.SeatDirectoryRow {
+        Integer id;
+        String seatNo;
+        SeatType seatType;
+        Integer price;
+        SeatStatus status;
+
+        /**
+         * Detached seat for read-only use, such as the seat maps of a show.
+         */
+        public ShowSeat toShowSeat() {
+            ShowSeat seat = new ShowSeat();
+            seat.setId(id);
+            seat.setSeatNo(seatNo);
+            seat.setSeatType(seatType);
+            seat.setPrice(price);
+            seat.setStatus(status);
+            return seat;
+        }
+    }
+}
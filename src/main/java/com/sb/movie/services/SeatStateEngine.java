@@ -0,0 +1,250 @@
+package com.sb.movie.services;
+
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds a {@link ShowSeatState} per active show and answers lock/confirm/release from memory.
+ *
+ * Holds and releases are written behind to SHOW_SEATS in batches. Confirmations and cancellations
+ * are written through inside the booking transaction, so a committed ticket always has its seats
+ * BOOKED in the database. State is rebuilt from SHOW_SEATS on startup and on first access to a show.
+ *
+ * Only one application node may run in MEMORY or MAILBOX mode against a database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatStateEngine {
+
+    private static final String UPDATE_SEAT_SQL =
+            "UPDATE show_seats SET status = ?, locked_at = ?, locked_by_user_id = ?, version = ? " +
+            "WHERE show_date = ? AND id = ? AND version < ?";
+
+    private static final int[] UPDATE_SEAT_TYPES =
+            {Types.VARCHAR, Types.TIMESTAMP, Types.INTEGER, Types.BIGINT, Types.DATE, Types.INTEGER, Types.BIGINT};
+
+    private final ShowSeatRepository showSeatRepository;
+    private final ShowRepository showRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final SeatDirectoryService seatDirectoryService;
+    private final ShowSeatMaterializer showSeatMaterializer;
+
+    private final ConcurrentHashMap<Integer, ShowSeatState> states = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, CompletableFuture<ShowSeatState>> loads = new ConcurrentHashMap<>();
+
+    @Value("${booking.seat-lock.mode:PESSIMISTIC}")
+    private SeatLockMode mode;
+
+    /**
+     * Rebuild seat state for upcoming shows when the application starts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (mode != SeatLockMode.MEMORY && mode != SeatLockMode.MAILBOX) {
+            return;
+        }
+
+        List<Integer> showIds = showRepository.findShowIdsFromDate(Date.valueOf(LocalDate.now()));
+        showIds.forEach(this::state);
+        log.info("Recovered in-memory seat state for {} upcoming shows", showIds.size());
+    }
+
+    /**
+     * Seat state of a show, loaded from SHOW_SEATS on first access. Seats are written back by id,
+     * so a SPARSE show first gets the rows it is still missing.
+     *
+     * Concurrent first accesses wait for one load of the show, outside of the map, so loading a show
+     * never holds up lookups of other shows.
+     */
+    public ShowSeatState state(Integer showId) {
+        ShowSeatState state = states.get(showId);
+        if (state != null) {
+            return state;
+        }
+
+        CompletableFuture<ShowSeatState> load = new CompletableFuture<>();
+        CompletableFuture<ShowSeatState> inFlight = loads.putIfAbsent(showId, load);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+        try {
+            // Another load may have finished between the miss and taking over the load
+            state = states.get(showId);
+            if (state == null) {
+                state = load(showId);
+                states.put(showId, state);
+            }
+            load.complete(state);
+            return state;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(showId, load);
+        }
+    }
+
+    private ShowSeatState load(Integer showId) {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        if (directory.isSparse()) {
+            showSeatMaterializer.materializeAll(directory);
+        }
+        return new ShowSeatState(showId, showSeatRepository.findByShowId(showId, directory.getShowDate()));
+    }
+
+    private static ShowSeatState await(CompletableFuture<ShowSeatState> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            // The loader's own exception, as the loading request got it
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Drop the in-memory state of a show so the next access reloads it from SHOW_SEATS.
+     */
+    public void reload(Integer showId) {
+        states.remove(showId);
+    }
+
+    public SeatHold lock(Integer showId, List<Integer> seatIds, Integer userId) {
+        LocalDateTime lockTime = LocalDateTime.now();
+        int totalPrice = state(showId).lock(seatIds, userId, lockTime);
+        return new SeatHold(seatIds, totalPrice, lockTime);
+    }
+
+    /**
+     * Confirm the hold in memory and write the BOOKED rows in the caller's transaction.
+     * The in-memory change is reverted if that transaction rolls back.
+     */
+    public SeatHold confirm(Integer showId, List<Integer> seatIds, Integer userId) {
+        ShowSeatState state = state(showId);
+        int totalPrice = state.confirm(seatIds, userId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        state.revertConfirm(seatIds, userId);
+                    }
+                }
+            });
+        }
+
+        write(showId, state.snapshot(seatIds));
+        return new SeatHold(seatIds, totalPrice, null);
+    }
+
+    public int release(Integer showId, List<Integer> seatIds, Integer userId) {
+        return state(showId).release(seatIds, userId);
+    }
+
+    /**
+     * Write the cancelled seats as AVAILABLE in the caller's transaction and apply the change
+     * in memory once it commits.
+     */
+    public void cancel(Integer showId, List<Integer> seatIds) {
+        ShowSeatState state = state(showId);
+        write(showId, state.previewCancel(seatIds));
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    state.applyCancel(seatIds);
+                }
+            });
+        } else {
+            state.applyCancel(seatIds);
+        }
+    }
+
+    public List<Integer> findShowsWithHoldsBefore(LocalDateTime expiryTime) {
+        List<Integer> showIds = new ArrayList<>();
+        for (ShowSeatState state : states.values()) {
+            if (state.hasHoldBefore(expiryTime)) {
+                showIds.add(state.getShowId());
+            }
+        }
+        return showIds;
+    }
+
+    /**
+     * Write-behind: persist every seat changed since the last flush in one JDBC batch per show.
+     * In MAILBOX mode the show's writer commits its own changes, so nothing is written from here.
+     */
+    @Scheduled(fixedDelayString = "${booking.seat-engine.flush-interval-ms:200}")
+    public void flush() {
+        if (mode == SeatLockMode.MAILBOX) {
+            return;
+        }
+
+        for (ShowSeatState state : states.values()) {
+            List<ShowSeatState.SeatRow> rows = state.drainDirty();
+            if (rows.isEmpty()) {
+                continue;
+            }
+
+            try {
+                write(state.getShowId(), rows);
+                log.debug("Flushed {} seat changes for show {}", rows.size(), state.getShowId());
+            } catch (Exception e) {
+                log.error("Failed to flush {} seat changes for show {}: {}",
+                        rows.size(), state.getShowId(), e.getMessage());
+                state.markDirty(rows);
+            }
+        }
+    }
+
+    /**
+     * Write seat rows of a show in one JDBC batch, skipping rows the database already has a newer
+     * version of. Rows are matched on the show's date as well, so each update visits one partition.
+     */
+    public void write(Integer showId, List<ShowSeatState.SeatRow> rows) {
+        Date showDate = seatDirectoryService.directory(showId).getShowDate();
+        List<Object[]> batchArgs = new ArrayList<>(rows.size());
+        for (ShowSeatState.SeatRow row : rows) {
+            batchArgs.add(new Object[]{
+                    row.getStatus().name(),
+                    row.getLockedAt() != null ? Timestamp.valueOf(row.getLockedAt()) : null,
+                    row.getLockedByUserId(),
+                    row.getVersion(),
+                    showDate,
+                    row.getSeatId(),
+                    row.getVersion()
+            });
+        }
+        jdbcTemplate.batchUpdate(UPDATE_SEAT_SQL, batchArgs, UPDATE_SEAT_TYPES);
+    }
+}
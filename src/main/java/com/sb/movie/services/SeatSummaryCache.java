@@ -0,0 +1,90 @@
+package com.sb.movie.services;
+
+import com.sb.movie.response.SeatSummaryResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Seat summaries of shows in Redis, read and written for many shows at once.
+ *
+ * Entries use the key layout of the {@code seatSummary} Spring cache ({@code seatSummary::showId}),
+ * so the cache evictions that already follow every seat change also drop the summary. Summaries are
+ * read with a single MGET and written in one pipeline. Redis errors are logged and treated as
+ * misses; the summaries are then counted from the database.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SeatSummaryCache {
+
+    public static final String CACHE_NAME = "seatSummary";
+
+    private static final String KEY_PREFIX = CACHE_NAME + "::";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${booking.seat-summary.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    /**
+     * Cached summaries of the given shows. Shows without a cached summary are left out.
+     */
+    public Map<Integer, SeatSummaryResponse> getAll(List<Integer> showIds) {
+        Map<Integer, SeatSummaryResponse> summaries = new HashMap<>();
+        if (showIds.isEmpty()) {
+            return summaries;
+        }
+
+        List<String> keys = new ArrayList<>(showIds.size());
+        for (Integer showId : showIds) {
+            keys.add(KEY_PREFIX + showId);
+        }
+        try {
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                return summaries;
+            }
+            for (int i = 0; i < showIds.size(); i++) {
+                if (values.get(i) instanceof SeatSummaryResponse summary) {
+                    summaries.put(showIds.get(i), summary);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to read seat summaries of {} shows from Redis: {}", showIds.size(), e.getMessage());
+        }
+        return summaries;
+    }
+
+    public void putAll(Map<Integer, SeatSummaryResponse> summaries) {
+        if (summaries.isEmpty()) {
+            return;
+        }
+
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    RedisOperations<String, Object> redis = (RedisOperations<String, Object>) operations;
+                    summaries.forEach((showId, summary) -> redis.opsForValue().set(KEY_PREFIX + showId, summary, ttl));
+                    return null;
+                }
+            });
+        } catch (DataAccessException e) {
+            log.warn("Failed to cache seat summaries of {} shows in Redis: {}", summaries.size(), e.getMessage());
+        }
+    }
+}
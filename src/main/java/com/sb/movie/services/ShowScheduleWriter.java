@@ -0,0 +1,62 @@
+package com.sb.movie.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Time;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Inserts a whole schedule of shows in one statement.
+ *
+ * SHOWS uses IDENTITY ids, so saving Show entities would cost one round trip per show. The slots are
+ * sent as two parallel arrays instead and the generated ids come back through {@code RETURNING}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShowScheduleWriter {
+
+    private static final String INSERT_SHOWS_SQL =
+            "INSERT INTO shows (date, time, event_id, theater_id, price_of_classic_seat, price_of_premium_seat, seat_id_base) " +
+            "SELECT slot.date, slot.time, ?, ?, ?, ?, slot.seat_id_base " +
+            "FROM unnest(?::date[], ?::time[], ?::integer[]) AS slot(date, time, seat_id_base) " +
+            "ORDER BY slot.date, slot.time RETURNING show_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Shows at {@code dates[i]}, {@code times[i]}, with {@code seatIdBases[i]} for SPARSE seat storage
+     * or null. Must run in the scheduling transaction.
+     * @return ids of the new shows, ascending
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> insertShows(Integer eventId, Integer theaterId, int classicPrice, int premiumPrice,
+                                     List<Date> dates, List<Time> times, List<Integer> seatIdBases) {
+        if (dates.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Integer> showIds = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SHOWS_SQL);
+            ps.setInt(1, eventId);
+            ps.setInt(2, theaterId);
+            ps.setInt(3, classicPrice);
+            ps.setInt(4, premiumPrice);
+            ps.setArray(5, con.createArrayOf("date", dates.toArray()));
+            ps.setArray(6, con.createArrayOf("time", times.toArray()));
+            ps.setArray(7, con.createArrayOf("integer", seatIdBases.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getInt(1));
+        Collections.sort(showIds);
+        log.debug("Inserted {} shows for event {} at theater {}", showIds.size(), eventId, theaterId);
+        return showIds;
+    }
+}
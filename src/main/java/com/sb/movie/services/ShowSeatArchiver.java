@@ -0,0 +1,97 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.ShowSeatSnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Replaces the SHOW_SEATS rows of finished shows with one {@link com.sb.movie.entities.ShowSeatSnapshot}
+ * per show, so SHOW_SEATS only grows with the inventory of upcoming shows.
+ *
+ * Runs nightly ahead of the partition maintenance, for shows more than
+ * {@code booking.show-seats.archive.after-days} in the past. Each show is archived in a transaction
+ * of its own; a show that fails is logged and retried on the next run. Seat maps of archived shows
+ * are decoded from their snapshot by {@link SeatLockingService#showSeats}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShowSeatArchiver {
+
+    private final ShowRepository showRepository;
+    private final ShowSeatRepository showSeatRepository;
+    private final ShowSeatSnapshotRepository showSeatSnapshotRepository;
+    private final SeatLockingService seatLockingService;
+    private final SeatDirectoryService seatDirectoryService;
+    private final SeatStateEngine seatStateEngine;
+    private final SeatChangeLog seatChangeLog;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.show-seats.archive.after-days:1}")
+    private int afterDays;
+
+    @Value("${booking.show-seats.archive.batch-size:100}")
+    private int batchSize;
+
+    @Scheduled(cron = "${booking.show-seats.archive.cron:0 30 3 * * *}")
+    public void archiveFinishedShows() {
+        Date before = Date.valueOf(LocalDate.now().minusDays(afterDays));
+        int afterShowId = 0;
+        int archivedShows = 0;
+        long archivedSeats = 0;
+
+        while (true) {
+            List<Integer> showIds = showRepository.findShowIdsToArchive(before, afterShowId, PageRequest.ofSize(batchSize));
+            if (showIds.isEmpty()) {
+                break;
+            }
+            for (Integer showId : showIds) {
+                try {
+                    archivedSeats += archive(showId);
+                    archivedShows++;
+                } catch (Exception e) {
+                    log.error("Failed to archive the seats of show {}: {}", showId, e.getMessage());
+                }
+            }
+            afterShowId = showIds.get(showIds.size() - 1);
+        }
+
+        if (archivedShows > 0) {
+            log.info("Archived {} seats of {} finished shows", archivedSeats, archivedShows);
+        }
+    }
+
+    /**
+     * Archive the seats of one show and delete its SHOW_SEATS rows.
+     * @return number of SHOW_SEATS rows deleted
+     */
+    public int archive(Integer showId) {
+        Integer deleted = new TransactionTemplate(transactionManager).execute(status -> {
+            Show show = showRepository.findById(showId).orElseThrow();
+            List<ShowSeat> seats = seatLockingService.showSeats(show);
+            showSeatSnapshotRepository.save(SeatSnapshotCodec.encode(showId, seats));
+            return showSeatRepository.deleteByShowId(showId, show.getDate());
+        });
+
+        // A SPARSE directory would otherwise go on creating rows for the archived show
+        seatDirectoryService.evict(showId);
+        seatStateEngine.reload(showId);
+        // Holds are archived as AVAILABLE
+        seatChangeLog.reset(showId);
+        return deleted != null ? deleted : 0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.sb.movie.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates the SHOW_SEATS rows of new shows from their theater's layout.
+ *
+ * SHOW_SEATS uses IDENTITY ids, which makes Hibernate insert one row per round trip. Seats are
+ * instead copied server side with a single {@code INSERT ... SELECT} over THEATER_SEATS, so the cost
+ * is one statement whatever the size of the layout and no seat data crosses the wire.
+ *
+ * Shows with SPARSE seat storage get no rows up front. They reserve a block of ids instead, one per
+ * theater seat, and a seat's row is created with its reserved id when the seat is first held.
+ * Blocks are negative, growing down from -1, so they never collide with IDENTITY ids.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShowSeatMaterializer {
+
+    private static final String MATERIALIZE_SQL =
+            "INSERT INTO show_seats (seat_no, seat_type, price, status, show_show_id, show_date, version) " +
+            "SELECT ts.seat_no, ts.seat_type, CASE WHEN ts.seat_type = 'CLASSIC' THEN ? ELSE ? END, " +
+            "'AVAILABLE', s.show_id, s.date, 0 FROM shows s CROSS JOIN theater_seats ts " +
+            "WHERE s.show_id = ANY(?::integer[]) AND ts.theater_id = ? ORDER BY s.show_id, ts.id";
+
+    private static final String MATERIALIZE_SPARSE_SQL =
+            "INSERT INTO show_seats (id, seat_no, seat_type, price, status, show_show_id, show_date, version) " +
+            "SELECT seat.id, seat.seat_no, seat.seat_type, seat.price, 'AVAILABLE', ?, ?, 0 " +
+            "FROM unnest(?::integer[], ?::varchar[], ?::varchar[], ?::integer[]) AS seat(id, seat_no, seat_type, price) " +
+            "ORDER BY seat.id ON CONFLICT DO NOTHING";
+
+    private static final String LOCK_SEAT_ID_BLOCKS_SQL =
+            "SELECT pg_advisory_xact_lock(hashtext('shows.seat_id_base'))";
+
+    private static final String LOWEST_SEAT_ID_BASE_SQL = "SELECT COALESCE(MIN(seat_id_base), 0) FROM shows";
+
+    private static final String THEATER_SEAT_COUNT_SQL = "SELECT COUNT(*) FROM theater_seats WHERE theater_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Must run in the transaction that created the show, after the show row was inserted.
+     * @return number of seats created
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int materialize(Integer showId, Integer theaterId, int classicPrice, int premiumPrice) {
+        return materialize(List.of(showId), theaterId, classicPrice, premiumPrice);
+    }
+
+    /**
+     * Seats of several shows of the same theater, still in one statement.
+     * @return number of seats created across all shows
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int materialize(List<Integer> showIds, Integer theaterId, int classicPrice, int premiumPrice) {
+        if (showIds.isEmpty()) {
+            return 0;
+        }
+        int created = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MATERIALIZE_SQL);
+            ps.setInt(1, classicPrice);
+            ps.setInt(2, premiumPrice);
+            ps.setArray(3, con.createArrayOf("integer", showIds.toArray()));
+            ps.setInt(4, theaterId);
+            return ps;
+        });
+        log.debug("Materialized {} seats for {} shows", created, showIds.size());
+        return created;
+    }
+
+    /**
+     * Reserve seat id blocks for {@code showCount} SPARSE shows of a theater. Concurrent
+     * reservations are serialized until the calling transaction ends.
+     * @return the seatIdBase of each show
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Integer> reserveSeatIds(Integer theaterId, int showCount) {
+        jdbcTemplate.execute(LOCK_SEAT_ID_BLOCKS_SQL);
+        long seatCount = jdbcTemplate.queryForObject(THEATER_SEAT_COUNT_SQL, Long.class, theaterId);
+        long lowest = jdbcTemplate.queryForObject(LOWEST_SEAT_ID_BASE_SQL, Long.class);
+
+        if (lowest - seatCount * showCount < Integer.MIN_VALUE) {
+            throw new IllegalStateException("No seat ids left to reserve for SPARSE shows");
+        }
+
+        List<Integer> bases = new ArrayList<>(showCount);
+        for (int i = 1; i <= showCount; i++) {
+            bases.add((int) (lowest - seatCount * i));
+        }
+        return bases;
+    }
+
+    /**
+     * Create the missing rows of a SPARSE show's seats as AVAILABLE, in the caller's transaction.
+     * Seats that already have a row are left alone.
+     */
+    @Transactional
+    public void materialize(SeatDirectory directory, Collection<Integer> seatIds) {
+        insertSparse(directory, seatIds);
+    }
+
+    /**
+     * Create every missing row of a SPARSE show, committed on its own. Used where the whole show
+     * is kept in memory and written back by seat id.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void materializeAll(SeatDirectory directory) {
+        int created = insertSparse(directory, directory.allSeatIds());
+        log.info("Materialized the remaining {} seats of sparse show {}", created, directory.getShowId());
+    }
+
+    private int insertSparse(SeatDirectory directory, Collection<Integer> seatIds) {
+        // Unknown ids are left to the caller, which reports them like missing seats of a FULL show
+        List<Integer> ids = new ArrayList<>(seatIds.size());
+        List<String> seatNos = new ArrayList<>(seatIds.size());
+        List<String> seatTypes = new ArrayList<>(seatIds.size());
+        List<Integer> prices = new ArrayList<>(seatIds.size());
+        for (Integer seatId : seatIds) {
+            if (directory.seatNo(seatId) == null) {
+                continue;
+            }
+            ids.add(seatId);
+            seatNos.add(directory.seatNo(seatId));
+            seatTypes.add(directory.seatType(seatId).name());
+            prices.add(directory.price(seatId));
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(MATERIALIZE_SPARSE_SQL);
+            ps.setInt(1, directory.getShowId());
+            ps.setDate(2, directory.getShowDate());
+            ps.setArray(3, con.createArrayOf("integer", ids.toArray()));
+            ps.setArray(4, con.createArrayOf("varchar", seatNos.toArray()));
+            ps.setArray(5, con.createArrayOf("varchar", seatTypes.toArray()));
+            ps.setArray(6, con.createArrayOf("integer", prices.toArray()));
+            return ps;
+        });
+    }
+}
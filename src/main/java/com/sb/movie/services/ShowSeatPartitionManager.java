@@ -0,0 +1,275 @@
+package com.sb.movie.services;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Partitions SHOW_SEATS by show date, one range partition per month.
+ *
+ * Bookings only touch the seats of upcoming shows, yet SHOW_SEATS keeps the seats of every show
+ * ever created. Partitioned by {@code show_date}, the current and coming months form small hot
+ * partitions whose indexes stay in shared buffers, and seat queries that name the show's date are
+ * pruned to a single partition. Partitions older than {@code booking.show-seats.partitioning.retention-months}
+ * are detached by a nightly job and kept as standalone {@code show_seats_archive_pYYYY_MM} tables.
+ *
+ * Partitioning is opt-in. When enabled, an unpartitioned SHOW_SEATS is converted on startup in one
+ * transaction that holds an exclusive lock on the table while its rows are copied. Schema changes
+ * take a transaction-scoped advisory lock first, so nodes starting together convert the table once
+ * and never create the same partition at the same time. Ids keep their
+ * values; new ids are drawn from a sequence, and the primary key becomes (id, show_date) because a
+ * unique constraint on a partitioned table must include the partition key.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShowSeatPartitionManager {
+
+    private static final String PARTITION_PREFIX = "show_seats_p";
+    private static final String ARCHIVE_PREFIX = "show_seats_archive_p";
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private static final String BACKFILL_SHOW_DATE_SQL =
+            "UPDATE show_seats ss SET show_date = s.date FROM shows s " +
+            "WHERE s.show_id = ss.show_show_id AND ss.show_date IS NULL";
+
+    private static final String IS_PARTITIONED_SQL =
+            "SELECT COALESCE((SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass('show_seats')), false)";
+
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'show_seats'::regclass";
+
+    private static final String HOT_PARTITIONS_SIZE_SQL =
+            "SELECT COALESCE(SUM(pg_total_relation_size(c.oid)), 0) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'show_seats'::regclass AND c.relname >= ?";
+
+    private static final String SHARED_BUFFERS_SQL = "SELECT pg_size_bytes(current_setting('shared_buffers'))";
+
+    // Serializes schema changes of SHOW_SEATS across nodes until the transaction ends
+    private static final String SCHEMA_LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('show_seats_partitioning'))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.show-seats.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${booking.show-seats.partitioning.months-ahead:3}")
+    private int monthsAhead;
+
+    @Value("${booking.show-seats.partitioning.retention-months:3}")
+    private int retentionMonths;
+
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean partitioned;
+
+    /**
+     * Runs before the other startup listeners, which already query seats by show date.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void initialize() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        try {
+            // Seats created before SHOW_SEATS carried the show's date
+            Integer backfilled = transactionTemplate.execute(status -> jdbcTemplate.update(BACKFILL_SHOW_DATE_SQL));
+            if (backfilled != null && backfilled > 0) {
+                log.info("Copied the show date to {} existing seats", backfilled);
+            }
+
+            if (!enabled) {
+                return;
+            }
+            if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class))) {
+                transactionTemplate.executeWithoutResult(status -> convert());
+            }
+            partitioned = true;
+        } catch (Exception e) {
+            log.error("Failed to partition SHOW_SEATS, seats stay in a single table: {}", e.getMessage());
+            return;
+        }
+        maintain();
+    }
+
+    /**
+     * Nightly: create the partitions of the coming months and detach those past retention.
+     */
+    @Scheduled(cron = "${booking.show-seats.partitioning.maintenance-cron:0 0 4 * * *}")
+    public void maintain() {
+        if (!partitioned) {
+            return;
+        }
+
+        try {
+            loadPartitions();
+            YearMonth current = YearMonth.now();
+            Set<YearMonth> upcoming = new TreeSet<>();
+            for (int i = 0; i <= monthsAhead; i++) {
+                upcoming.add(current.plusMonths(i));
+            }
+            createPartitions(upcoming);
+
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            for (YearMonth month : new TreeSet<>(partitions)) {
+                if (month.isBefore(oldestKept)) {
+                    detach(month);
+                }
+            }
+
+            long hotBytes = jdbcTemplate.queryForObject(HOT_PARTITIONS_SIZE_SQL, Long.class, partitionName(current));
+            long sharedBuffers = jdbcTemplate.queryForObject(SHARED_BUFFERS_SQL, Long.class);
+            if (hotBytes > sharedBuffers) {
+                log.warn("Seat partitions from {} on take {} MB, more than the {} MB of shared_buffers",
+                        current, hotBytes >> 20, sharedBuffers >> 20);
+            }
+        } catch (Exception e) {
+            log.error("Failed to maintain SHOW_SEATS partitions: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Make sure seats of shows on these dates have a partition to go to. Missing partitions are
+     * created in a transaction of their own, so the lock it takes on SHOW_SEATS is released at once.
+     */
+    public void ensurePartitions(Collection<Date> showDates) {
+        if (!partitioned) {
+            return;
+        }
+        Set<YearMonth> missing = showDates.stream()
+                .map(date -> YearMonth.from(date.toLocalDate()))
+                .filter(month -> !partitions.contains(month))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!missing.isEmpty()) {
+            createPartitions(missing);
+        }
+    }
+
+    private void convert() {
+        lockSchema();
+        // Another node may have converted the table while this one waited for the lock
+        if (Boolean.TRUE.equals(jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Boolean.class))) {
+            log.info("SHOW_SEATS was partitioned by another node");
+            return;
+        }
+
+        jdbcTemplate.execute("LOCK TABLE show_seats IN ACCESS EXCLUSIVE MODE");
+        jdbcTemplate.update(BACKFILL_SHOW_DATE_SQL);
+        jdbcTemplate.execute("ALTER TABLE show_seats RENAME TO show_seats_unpartitioned");
+
+        Long nextId = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(nextval(pg_get_serial_sequence('show_seats_unpartitioned', 'id')), " +
+                "(SELECT MAX(id) + 1 FROM show_seats_unpartitioned), 1)", Long.class);
+        jdbcTemplate.execute("CREATE SEQUENCE show_seats_partitioned_id_seq START WITH " + nextId);
+        jdbcTemplate.execute("CREATE TABLE show_seats (LIKE show_seats_unpartitioned " +
+                "INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (show_date)");
+        jdbcTemplate.execute("ALTER TABLE show_seats ALTER COLUMN id SET DEFAULT nextval('show_seats_partitioned_id_seq'), " +
+                "ALTER COLUMN show_date SET NOT NULL");
+        jdbcTemplate.execute("ALTER SEQUENCE show_seats_partitioned_id_seq OWNED BY show_seats.id");
+
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(show_date) AS first, MAX(show_date) AS last FROM show_seats_unpartitioned");
+        YearMonth current = YearMonth.now();
+        YearMonth first = range.get("first") != null
+                ? min(YearMonth.from(((Date) range.get("first")).toLocalDate()), current) : current;
+        YearMonth last = range.get("last") != null
+                ? max(YearMonth.from(((Date) range.get("last")).toLocalDate()), current.plusMonths(monthsAhead))
+                : current.plusMonths(monthsAhead);
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            createPartition(month);
+        }
+
+        int copied = jdbcTemplate.update(
+                "INSERT INTO show_seats SELECT * FROM show_seats_unpartitioned WHERE show_date IS NOT NULL");
+        int orphaned = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM show_seats_unpartitioned WHERE show_date IS NULL", Integer.class);
+        jdbcTemplate.execute("DROP TABLE show_seats_unpartitioned");
+
+        jdbcTemplate.execute("ALTER TABLE show_seats ADD CONSTRAINT show_seats_pkey PRIMARY KEY (id, show_date)");
+        jdbcTemplate.execute("CREATE INDEX idx_show_seat ON show_seats (show_show_id, seat_no)");
+        jdbcTemplate.execute("CREATE INDEX idx_seat_status ON show_seats (status)");
+        jdbcTemplate.execute("CREATE INDEX idx_seat_status_locked_at ON show_seats (status, locked_at)");
+        jdbcTemplate.execute("ALTER TABLE show_seats ADD CONSTRAINT fk_show_seats_show " +
+                "FOREIGN KEY (show_show_id) REFERENCES shows (show_id)");
+
+        log.info("Partitioned SHOW_SEATS by show date: {} seats in {} monthly partitions, {} seats without a show dropped",
+                copied, first.until(last, ChronoUnit.MONTHS) + 1, orphaned);
+    }
+
+    private void loadPartitions() {
+        Set<YearMonth> attached = jdbcTemplate.queryForList(PARTITIONS_SQL, String.class).stream()
+                .filter(name -> name.startsWith(PARTITION_PREFIX))
+                .map(name -> YearMonth.parse(name.substring(PARTITION_PREFIX.length()), MONTH_SUFFIX))
+                .collect(Collectors.toSet());
+        partitions.retainAll(attached);
+        partitions.addAll(attached);
+    }
+
+    private void createPartitions(Set<YearMonth> months) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            lockSchema();
+            months.forEach(this::createPartition);
+        });
+        partitions.addAll(months);
+    }
+
+    private void createPartition(YearMonth month) {
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF show_seats FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), month.atDay(1), month.plusMonths(1).atDay(1)));
+    }
+
+    private void lockSchema() {
+        jdbcTemplate.execute(SCHEMA_LOCK_SQL);
+    }
+
+    /**
+     * Detached partitions keep their rows, under a name that frees the month for a new partition.
+     */
+    private void detach(YearMonth month) {
+        String archive = ARCHIVE_PREFIX + month.format(MONTH_SUFFIX);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            lockSchema();
+            jdbcTemplate.execute("ALTER TABLE show_seats DETACH PARTITION " + partitionName(month));
+            jdbcTemplate.execute("ALTER TABLE " + partitionName(month) + " RENAME TO " + archive);
+        });
+        partitions.remove(month);
+        log.info("Detached seat partition of {} as {}", month, archive);
+    }
+
+    private static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(MONTH_SUFFIX);
+    }
+
+    private static YearMonth min(YearMonth a, YearMonth b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static YearMonth max(YearMonth a, YearMonth b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,416 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Authoritative in-memory seat state of a single show.
+ *
+ * Seats are addressed by their position in a sorted seat id array. LOCKED and BOOKED are kept as
+ * bitsets (AVAILABLE is neither) with the holder and lock time of each seat in parallel arrays.
+ * Every method is synchronized on the instance, so different shows never contend with each other.
+ *
+ * Each change bumps the seat's version and marks it dirty; {@link SeatStateEngine} writes dirty
+ * seats back to SHOW_SEATS using the version as a monotonic guard against stale writes.
+ */
+public class ShowSeatState {
+
+    private final Integer showId;
+    private final int[] seatIds;
+    private final String[] seatNos;
+    private final int[] prices;
+    private final int[] holders;
+    private final LocalDateTime[] lockedAt;
+    private final long[] versions;
+    private final BitSet locked;
+    private final BitSet booked;
+    private final BitSet dirty;
+    private final Map<Integer, Integer> holdCounts = new HashMap<>();
+
+    public ShowSeatState(Integer showId, List<ShowSeat> seats) {
+        List<ShowSeat> sorted = new ArrayList<>(seats);
+        sorted.sort(Comparator.comparing(ShowSeat::getId));
+
+        int size = sorted.size();
+        this.showId = showId;
+        this.seatIds = new int[size];
+        this.seatNos = new String[size];
+        this.prices = new int[size];
+        this.holders = new int[size];
+        this.lockedAt = new LocalDateTime[size];
+        this.versions = new long[size];
+        this.locked = new BitSet(size);
+        this.booked = new BitSet(size);
+        this.dirty = new BitSet(size);
+
+        for (int i = 0; i < size; i++) {
+            ShowSeat seat = sorted.get(i);
+            seatIds[i] = seat.getId();
+            seatNos[i] = seat.getSeatNo();
+            prices[i] = seat.getPrice() != null ? seat.getPrice() : 0;
+            versions[i] = seat.getVersion() != null ? seat.getVersion() : 0L;
+
+            if (seat.getStatus() == SeatStatus.BOOKED) {
+                booked.set(i);
+            } else if (seat.getStatus() == SeatStatus.LOCKED && seat.getLockedByUserId() != null) {
+                locked.set(i);
+                holders[i] = seat.getLockedByUserId();
+                lockedAt[i] = seat.getLockedAt();
+                holdCounts.merge(holders[i], 1, Integer::sum);
+            }
+        }
+    }
+
+    public Integer getShowId() {
+        return showId;
+    }
+
+    /**
+     * Lock all requested seats for the user, or none of them.
+     * @return total price of the locked seats
+     */
+    public synchronized int lock(List<Integer> requestedSeatIds, Integer userId, LocalDateTime lockTime) {
+        int[] idx = indexesOf(requestedSeatIds);
+
+        for (int i : idx) {
+            if (locked.get(i) || booked.get(i)) {
+                throw new IllegalStateException("Seat " + seatNos[i] +
+                        " is not available (Status: " + statusAt(i) + ")");
+            }
+        }
+
+        for (int i : idx) {
+            locked.set(i);
+            holders[i] = userId;
+            lockedAt[i] = lockTime;
+            touch(i);
+        }
+        holdCounts.merge(userId, idx.length, Integer::sum);
+
+        return totalPrice(idx);
+    }
+
+    /**
+     * Flip the user's held seats from LOCKED to BOOKED. The request must cover every seat the
+     * user currently holds for this show.
+     * @return total price of the booked seats
+     */
+    public synchronized int confirm(List<Integer> requestedSeatIds, Integer userId) {
+        int[] idx = indexesOf(requestedSeatIds);
+
+        List<String> problemSeats = new ArrayList<>();
+        for (int i : idx) {
+            if (booked.get(i)) {
+                problemSeats.add(seatNos[i] + " (already booked)");
+            } else if (!locked.get(i)) {
+                problemSeats.add(seatNos[i] + " (not locked)");
+            } else if (holders[i] != userId) {
+                problemSeats.add(seatNos[i] + " (locked by another user)");
+            }
+        }
+
+        if (!problemSeats.isEmpty()) {
+            throw new SeatsNotAvailable(
+                    "Cannot book seats. You must lock seats first using /lock-seats endpoint. " +
+                    "Problem seats: " + String.join(", ", problemSeats));
+        }
+
+        int heldByUser = holdCounts.getOrDefault(userId, 0);
+        if (heldByUser != idx.length) {
+            throw new IllegalStateException(
+                    String.format("You have %d seats locked (%s). You must book all locked seats together. " +
+                                  "Either book all %d seats or release them first.",
+                                  heldByUser, String.join(", ", seatNosHeldBy(userId)), heldByUser));
+        }
+
+        for (int i : idx) {
+            locked.clear(i);
+            booked.set(i);
+            holders[i] = 0;
+            lockedAt[i] = null;
+            touch(i);
+        }
+        holdCounts.remove(userId);
+
+        return totalPrice(idx);
+    }
+
+    /**
+     * Undo {@link #confirm} when the surrounding booking transaction rolls back.
+     */
+    public synchronized void revertConfirm(List<Integer> requestedSeatIds, Integer userId) {
+        LocalDateTime now = LocalDateTime.now();
+        int[] idx = indexesOf(requestedSeatIds);
+
+        for (int i : idx) {
+            booked.clear(i);
+            locked.set(i);
+            holders[i] = userId;
+            lockedAt[i] = now;
+            touch(i);
+        }
+        holdCounts.merge(userId, idx.length, Integer::sum);
+    }
+
+    /**
+     * Release the user's locks on the requested seats.
+     * @return number of seats released
+     */
+    public synchronized int release(List<Integer> requestedSeatIds, Integer userId) {
+        int[] idx = indexesOf(requestedSeatIds);
+        int releasedCount = 0;
+
+        for (int i : idx) {
+            if (booked.get(i)) {
+                throw new IllegalStateException("Cannot release seat " + seatNos[i] +
+                        " - it is already BOOKED. Use ticket cancellation instead.");
+            }
+            if (locked.get(i)) {
+                if (holders[i] != userId) {
+                    throw new IllegalStateException("Seat " + seatNos[i] + " is locked by another user");
+                }
+                releasedCount++;
+            }
+        }
+
+        if (releasedCount == 0) {
+            throw new IllegalStateException("No seats were released - seats are not locked by you");
+        }
+
+        for (int i : idx) {
+            if (locked.get(i)) {
+                clearHold(i);
+            }
+        }
+
+        return releasedCount;
+    }
+
+    /**
+     * Rows to write when cancelling a booking. The in-memory state is only changed by
+     * {@link #applyCancel} once the cancellation has committed.
+     */
+    public synchronized List<SeatRow> previewCancel(List<Integer> requestedSeatIds) {
+        List<SeatRow> rows = new ArrayList<>();
+        for (int i : indexesOf(requestedSeatIds)) {
+            rows.add(new SeatRow(seatIds[i], SeatStatus.AVAILABLE, null, null, versions[i] + 1));
+        }
+        return rows;
+    }
+
+    public synchronized void applyCancel(List<Integer> requestedSeatIds) {
+        for (int i : indexesOf(requestedSeatIds)) {
+            if (locked.get(i)) {
+                clearHold(i);
+            }
+            booked.clear(i);
+            dirty.clear(i);
+            versions[i]++;
+        }
+    }
+
+    /**
+     * Release every hold taken before the expiry time.
+     * @return ids of the seats released
+     */
+    public synchronized List<Integer> releaseExpired(LocalDateTime expiryTime) {
+        List<Integer> released = new ArrayList<>();
+        for (int i = locked.nextSetBit(0); i >= 0; i = locked.nextSetBit(i + 1)) {
+            if (lockedAt[i] != null && lockedAt[i].isBefore(expiryTime)) {
+                clearHold(i);
+                released.add(seatIds[i]);
+            }
+        }
+        return released;
+    }
+
+    public synchronized boolean hasHoldBefore(LocalDateTime expiryTime) {
+        for (int i = locked.nextSetBit(0); i >= 0; i = locked.nextSetBit(i + 1)) {
+            if (lockedAt[i] != null && lockedAt[i].isBefore(expiryTime)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized SeatStatus statusOf(Integer seatId) {
+        int i = Arrays.binarySearch(seatIds, seatId);
+        return i < 0 ? null : statusAt(i);
+    }
+
+    public synchronized List<Integer> availableSeatIds() {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < seatIds.length; i++) {
+            if (!locked.get(i) && !booked.get(i)) {
+                ids.add(seatIds[i]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Status of every held or booked seat, by seat id.
+     */
+    public synchronized Map<Integer, SeatStatus> unavailableSeats() {
+        Map<Integer, SeatStatus> statuses = new HashMap<>();
+        for (int i = locked.nextSetBit(0); i >= 0; i = locked.nextSetBit(i + 1)) {
+            statuses.put(seatIds[i], SeatStatus.LOCKED);
+        }
+        for (int i = booked.nextSetBit(0); i >= 0; i = booked.nextSetBit(i + 1)) {
+            statuses.put(seatIds[i], SeatStatus.BOOKED);
+        }
+        return statuses;
+    }
+
+    public synchronized int count(SeatStatus status) {
+        switch (status) {
+            case LOCKED:
+                return locked.cardinality();
+            case BOOKED:
+                return booked.cardinality();
+            default:
+                return seatIds.length - locked.cardinality() - booked.cardinality();
+        }
+    }
+
+    /**
+     * Snapshot and clear all dirty seats for write-behind.
+     */
+    public synchronized List<SeatRow> drainDirty() {
+        List<SeatRow> rows = new ArrayList<>(dirty.cardinality());
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            rows.add(rowAt(i));
+        }
+        dirty.clear();
+        return rows;
+    }
+
+    /**
+     * Snapshot specific seats for a synchronous write, clearing their dirty flag.
+     */
+    public synchronized List<SeatRow> snapshot(List<Integer> requestedSeatIds) {
+        List<SeatRow> rows = new ArrayList<>();
+        for (int i : indexesOf(requestedSeatIds)) {
+            dirty.clear(i);
+            rows.add(rowAt(i));
+        }
+        return rows;
+    }
+
+    /**
+     * Re-mark seats whose write failed so the next flush retries them.
+     */
+    public synchronized void markDirty(List<SeatRow> rows) {
+        for (SeatRow row : rows) {
+            int i = Arrays.binarySearch(seatIds, row.getSeatId());
+            if (i >= 0) {
+                dirty.set(i);
+            }
+        }
+    }
+
+    private void clearHold(int i) {
+        holdCounts.computeIfPresent(holders[i], (user, count) -> count > 1 ? count - 1 : null);
+        locked.clear(i);
+        holders[i] = 0;
+        lockedAt[i] = null;
+        touch(i);
+    }
+
+    private void touch(int i) {
+        versions[i]++;
+        dirty.set(i);
+    }
+
+    private SeatStatus statusAt(int i) {
+        if (booked.get(i)) {
+            return SeatStatus.BOOKED;
+        }
+        return locked.get(i) ? SeatStatus.LOCKED : SeatStatus.AVAILABLE;
+    }
+
+    private SeatRow rowAt(int i) {
+        boolean held = locked.get(i);
+        return new SeatRow(seatIds[i], statusAt(i), held ? holders[i] : null,
+                held ? lockedAt[i] : null, versions[i]);
+    }
+
+    private int totalPrice(int[] idx) {
+        int total = 0;
+        for (int i : idx) {
+            total += prices[i];
+        }
+        return total;
+    }
+
+    private List<String> seatNosHeldBy(Integer userId) {
+        List<String> held = new ArrayList<>();
+        for (int i = locked.nextSetBit(0); i >= 0; i = locked.nextSetBit(i + 1)) {
+            if (holders[i] == userId) {
+                held.add(seatNos[i]);
+            }
+        }
+        return held;
+    }
+
+    private int[] indexesOf(List<Integer> requestedSeatIds) {
+        int[] idx = new int[requestedSeatIds.size()];
+        for (int k = 0; k < idx.length; k++) {
+            int i = Arrays.binarySearch(seatIds, requestedSeatIds.get(k));
+            if (i < 0) {
+                throw new IllegalArgumentException("Some seats not found");
+            }
+            idx[k] = i;
+        }
+        return Arrays.stream(idx).sorted().distinct().toArray();
+    }
+
+    /**
+     * Persistable snapshot of one seat.
+     */
+    public static final class SeatRow {
+        private final int seatId;
+        private final SeatStatus status;
+        private final Integer lockedByUserId;
+        private final LocalDateTime lockedAt;
+        private final long version;
+
+        public SeatRow(int seatId, SeatStatus status, Integer lockedByUserId, LocalDateTime lockedAt, long version) {
+            this.seatId = seatId;
+            this.status = status;
+            this.lockedByUserId = lockedByUserId;
+            this.lockedAt = lockedAt;
+            this.version = version;
+        }
+
+        public int getSeatId() {
+            return seatId;
+        }
+
+        public SeatStatus getStatus() {
+            return status;
+        }
+
+        public Integer getLockedByUserId() {
+            return lockedByUserId;
+        }
+
+        public LocalDateTime getLockedAt() {
+            return lockedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -3,9 +3,13 @@ package com.sb.movie.services;
 import com.sb.movie.entities.Show;
 import com.sb.movie.exceptions.ShowDoesNotExists;
 import com.sb.movie.request.ShowRequest;
+import com.sb.movie.request.ShowScheduleRequest;
 import com.sb.movie.request.ShowUpdateRequest;
 import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatChangesResponse;
+import com.sb.movie.response.SeatSummaryResponse;
 import com.sb.movie.response.ShowDetailsResponse;
+import com.sb.movie.response.ShowScheduleResponse;
 
 import java.sql.Date;
 import java.util.List;
@@ -15,6 +19,8 @@ public interface ShowService {
 
     Show addShow(ShowRequest showRequest);
 
+    ShowScheduleResponse scheduleShows(ShowScheduleRequest scheduleRequest);
+
     Show getShowById(Integer showId);
 
     ShowDetailsResponse getShowDetails(Integer showId) throws ShowDoesNotExists;
@@ -28,4 +34,10 @@ public interface ShowService {
     String deleteShow(Integer showId) throws ShowDoesNotExists;
 
     SeatAvailabilityResponse getSeatAvailability(Integer showId) throws ShowDoesNotExists;
+
+    Long getSeatVersion(Integer showId) throws ShowDoesNotExists;
+
+    SeatChangesResponse getSeatChanges(Integer showId, long sinceVersion) throws ShowDoesNotExists;
+
+    List<SeatSummaryResponse> getSeatSummaries(List<Integer> showIds);
 }
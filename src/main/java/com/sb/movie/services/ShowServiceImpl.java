@@ -2,33 +2,49 @@ package com.sb.movie.services;
 
 import com.sb.movie.converter.ShowConvertor;
 import com.sb.movie.entities.*;
+import com.sb.movie.enums.SeatAvailabilityLevel;
 import com.sb.movie.enums.SeatStatus;
 import com.sb.movie.enums.SeatType;
+import com.sb.movie.enums.ShowSeatStorage;
 import com.sb.movie.exceptions.EventDoesNotExist;
 import com.sb.movie.exceptions.ShowAlreadyExistsException;
 import com.sb.movie.exceptions.ShowDoesNotExists;
 import com.sb.movie.exceptions.TheaterDoesNotExists;
 import com.sb.movie.repositories.EventRepository;
 import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.ShowSeatSnapshotRepository;
 import com.sb.movie.repositories.TheaterRepository;
 import com.sb.movie.request.ShowRequest;
+import com.sb.movie.request.ShowScheduleRequest;
 import com.sb.movie.request.ShowUpdateRequest;
 import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatChangesResponse;
 import com.sb.movie.response.SeatInfo;
+import com.sb.movie.response.SeatSummaryResponse;
 import com.sb.movie.response.ShowDetailsResponse;
+import com.sb.movie.response.ShowScheduleResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.Caching;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.Date;
+import java.sql.Time;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,13 +55,38 @@ public class ShowServiceImpl implements ShowService{
     private final EventRepository eventRepository;
     private final TheaterRepository theaterRepository;
     private final ShowRepository showRepository;
+    private final ShowSeatRepository showSeatRepository;
+    private final ShowSeatSnapshotRepository showSeatSnapshotRepository;
+    private final SeatLockingService seatLockingService;
+    private final SeatDirectoryService seatDirectoryService;
+    private final ShowSeatMaterializer showSeatMaterializer;
+    private final ShowScheduleWriter showScheduleWriter;
+    private final ShowSeatPartitionManager showSeatPartitionManager;
+    private final SeatSummaryCache seatSummaryCache;
+    private final SeatChangeLog seatChangeLog;
+    private final SeatMapCache seatMapCache;
+    private final CacheManager cacheManager;
+    private final CacheTagIndex cacheTagIndex;
+
+    @Value("${booking.show-schedule.max-shows:1000}")
+    private int maxScheduledShows;
+
+    @Value("${booking.seat-summary.max-shows:100}")
+    private int maxSummaryShows;
+
+    @Value("${booking.seat-summary.filling-fast-percent:20}")
+    private int fillingFastPercent;
+
+    @Value("${booking.seat-changes.max-delta-percent:50}")
+    private int maxDeltaPercent;
+
+    @Value("${booking.show-seats.storage:FULL}")
+    private ShowSeatStorage seatStorage;
 
     @Override
     @Transactional
     @Caching(evict = {
-            @CacheEvict(value = "showSearch", allEntries = true),
-            @CacheEvict(value = "showsGrouped", allEntries = true),
-            @CacheEvict(value = "showDetails", allEntries = true),
+            @CacheEvict(value = "showsGrouped", key = "'all'"),
             @CacheEvict(value = "eventById", key = "#showRequest.eventId")
     })
     public Show addShow(ShowRequest showRequest) {
@@ -94,44 +135,107 @@ public class ShowServiceImpl implements ShowService{
 
         show.setEvent(event);
         show.setTheater(theater);
+        showSeatPartitionManager.ensurePartitions(List.of(show.getDate()));
+
+        // SPARSE shows only reserve seat ids; their rows are created when seats are first held
+        if (seatStorage == ShowSeatStorage.SPARSE) {
+            show.setSeatIdBase(showSeatMaterializer.reserveSeatIds(theater.getId(), 1).get(0));
+        }
         show = showRepository.save(show);
 
-        // Create show seats with prices from theater seats
-        List<TheaterSeat> theaterSeatList = theater.getTheaterSeatList();
-        List<ShowSeat> showSeatList = show.getShowSeatList();
+        // Create show seats with prices from theater seats, in one statement
+        int seatCount = seatStorage == ShowSeatStorage.SPARSE ? 0
+                : showSeatMaterializer.materialize(show.getShowId(), theater.getId(),
+                        showRequest.getPriceOfClassicSeat(), showRequest.getPriceOfPremiumSeat());
 
-        for (TheaterSeat theaterSeat : theaterSeatList) {
-            ShowSeat showSeat = new ShowSeat();
-            showSeat.setSeatNo(theaterSeat.getSeatNo());
-            showSeat.setSeatType(theaterSeat.getSeatType());
+        event.getShows().add(show);
+        theater.getShowList().add(show);
 
-            if (showSeat.getSeatType().equals(SeatType.CLASSIC)) {
-                showSeat.setPrice(showRequest.getPriceOfClassicSeat());
-            } else {
-                showSeat.setPrice(showRequest.getPriceOfPremiumSeat());
-            }
+        eventRepository.save(event);
+        theaterRepository.save(theater);
+        evictSearchesAfterCommit(event.getId(), theater, List.of(show.getDate()));
 
-            showSeat.setShow(show);
-            showSeat.setStatus(com.sb.movie.enums.SeatStatus.AVAILABLE);
+        log.info("Show added successfully with ID: {} and {} seats created",
+                show.getShowId(), seatCount);
+        return show;
+    }
 
-            showSeatList.add(showSeat);
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "showsGrouped", key = "'all'"),
+            @CacheEvict(value = "eventById", key = "#scheduleRequest.eventId")
+    })
+    public ShowScheduleResponse scheduleShows(ShowScheduleRequest scheduleRequest) {
+        LocalDate startDate = scheduleRequest.getStartDate().toLocalDate();
+        LocalDate endDate = scheduleRequest.getEndDate().toLocalDate();
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
         }
 
-        Show saved = showRepository.save(show);
+        List<Time> showTimes = scheduleRequest.getShowTimes().stream()
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days * showTimes.size() > maxScheduledShows) {
+            throw new IllegalArgumentException("A schedule can create at most " + maxScheduledShows + " shows");
+        }
 
-        event.getShows().add(saved);
-        theater.getShowList().add(saved);
+        if (!eventRepository.existsById(scheduleRequest.getEventId())) {
+            throw new EventDoesNotExist();
+        }
+        Theater theater = theaterRepository.findById(scheduleRequest.getTheaterId())
+                .orElseThrow(TheaterDoesNotExists::new);
+
+        log.info("Scheduling {} shows for event ID: {} at theater ID: {} from {} to {}",
+                days * showTimes.size(), scheduleRequest.getEventId(), theater.getId(), startDate, endDate);
+
+        // All conflicts in one query, reported together
+        List<Object[]> conflicts = showRepository.findSlotsInRange(theater.getId(),
+                scheduleRequest.getStartDate(), scheduleRequest.getEndDate(), showTimes);
+        if (!conflicts.isEmpty()) {
+            String slots = conflicts.stream()
+                    .map(slot -> slot[0] + " " + slot[1])
+                    .collect(Collectors.joining(", "));
+            throw new ShowAlreadyExistsException(
+                    "Shows already exist at " + theater.getName() + " on " + slots);
+        }
 
-        eventRepository.save(event);
-        theaterRepository.save(theater);
+        List<Date> dates = new ArrayList<>();
+        List<Time> times = new ArrayList<>();
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            for (Time time : showTimes) {
+                dates.add(Date.valueOf(date));
+                times.add(time);
+            }
+        }
 
-        log.info("Show added successfully with ID: {} and {} seats created",
-                saved.getShowId(), showSeatList.size());
-        return saved;
+        showSeatPartitionManager.ensurePartitions(dates);
+        List<Integer> seatIdBases = seatStorage == ShowSeatStorage.SPARSE
+                ? showSeatMaterializer.reserveSeatIds(theater.getId(), dates.size())
+                : Collections.nCopies(dates.size(), null);
+
+        List<Integer> showIds = showScheduleWriter.insertShows(scheduleRequest.getEventId(), theater.getId(),
+                scheduleRequest.getPriceOfClassicSeat(), scheduleRequest.getPriceOfPremiumSeat(),
+                dates, times, seatIdBases);
+        evictSearchesAfterCommit(scheduleRequest.getEventId(), theater, dates);
+        int seatCount = seatStorage == ShowSeatStorage.SPARSE ? 0
+                : showSeatMaterializer.materialize(showIds, theater.getId(),
+                        scheduleRequest.getPriceOfClassicSeat(), scheduleRequest.getPriceOfPremiumSeat());
+
+        log.info("Scheduled {} shows with {} seats at theater ID: {}", showIds.size(), seatCount, theater.getId());
+        return ShowScheduleResponse.builder()
+                .eventId(scheduleRequest.getEventId())
+                .theaterId(theater.getId())
+                .showsCreated(showIds.size())
+                .seatsCreated(seatCount)
+                .showIds(showIds)
+                .build();
     }
 
     @Override
-    @Cacheable(value = "showById", key = "#showId", unless = "#result == null")
+    @Cacheable(value = "showById", key = "#showId", sync = true)
     public Show getShowById(Integer showId) {
         log.debug("Fetching show by ID from database: {}", showId);
         return showRepository.findById(showId)
@@ -139,53 +243,41 @@ public class ShowServiceImpl implements ShowService{
     }
 
     @Override
-    @Cacheable(value = "showDetails", key = "#showId", unless = "#result == null")
     public ShowDetailsResponse getShowDetails(Integer showId) throws ShowDoesNotExists {
         log.debug("Fetching show details for show ID: {}", showId);
 
-        Show show = showRepository.findById(showId)
-                .orElseThrow(() -> new ShowDoesNotExists());
-
-        Event event = show.getEvent();
-        Theater theater = show.getTheater();
-        Venue venue = theater.getVenue();
-        List<ShowSeat> showSeats = show.getShowSeatList();
+        // The show part is cached as is; the seat counts come from the seat map, patched in place
+        ShowDetailsResponse details = cachedShowView("showDetails", showId, ShowDetailsResponse.class,
+                () -> showDetails(showId));
+        SeatCounts counts = seatMapCache.seatMap(showId).counts();
 
         // Calculate seat statistics by category
         Map<String, ShowDetailsResponse.SeatCategorySummary> seatSummary = new LinkedHashMap<>();
-
-        Map<SeatType, List<ShowSeat>> seatsByType = showSeats.stream()
-                .collect(Collectors.groupingBy(ShowSeat::getSeatType));
-
-        for (Map.Entry<SeatType, List<ShowSeat>> entry : seatsByType.entrySet()) {
-            SeatType type = entry.getKey();
-            List<ShowSeat> seats = entry.getValue();
-
-            long available = seats.stream()
-                    .filter(seat -> seat.getStatus() == SeatStatus.AVAILABLE)
-                    .count();
-
-            Integer price = seats.isEmpty() ? 0 : (seats.get(0).getPrice() != null ? seats.get(0).getPrice() : 0);
-
+        for (SeatType type : counts.seatTypes()) {
             seatSummary.put(type.name(), ShowDetailsResponse.SeatCategorySummary.builder()
                     .seatType(type.name())
-                    .total(seats.size())
-                    .available((int) available)
-                    .price(price)
+                    .total(counts.total(type))
+                    .available(counts.count(type, SeatStatus.AVAILABLE))
+                    .price(counts.price(type))
                     .build());
         }
 
-        // Calculate overall statistics
-        long totalSeats = showSeats.size();
-        long availableSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.AVAILABLE)
-                .count();
-        long lockedSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.LOCKED)
-                .count();
-        long bookedSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.BOOKED)
-                .count();
+        return details.toBuilder()
+                .seatSummary(seatSummary)
+                .totalSeats(counts.total())
+                .availableSeats(counts.count(SeatStatus.AVAILABLE))
+                .lockedSeats(counts.count(SeatStatus.LOCKED))
+                .bookedSeats(counts.count(SeatStatus.BOOKED))
+                .build();
+    }
+
+    private ShowDetailsResponse showDetails(Integer showId) {
+        Show show = showRepository.findById(showId)
+                .orElseThrow(() -> new ShowDoesNotExists());
+
+        Event event = show.getEvent();
+        Theater theater = show.getTheater();
+        Venue venue = theater.getVenue();
 
         return ShowDetailsResponse.builder()
                 .showId(show.getShowId())
@@ -211,26 +303,25 @@ public class ShowServiceImpl implements ShowService{
                         .id(theater.getId())
                         .name(theater.getName())
                         .build())
-                .seatSummary(seatSummary)
-                .totalSeats((int) totalSeats)
-                .availableSeats((int) availableSeats)
-                .lockedSeats((int) lockedSeats)
-                .bookedSeats((int) bookedSeats)
                 .build();
     }
 
     @Override
-    @Cacheable(value = "showSearch",
-               key = "#eventId + '_' + #theaterId + '_' + #date",
-               unless = "#result == null || #result.isEmpty()")
     public List<Show> searchShows(Integer eventId, Integer theaterId, Date date) {
-        log.debug("Searching shows with filters - eventId: {}, theaterId: {}, date: {}",
-                  eventId, theaterId, date);
-        return showRepository.searchShows(eventId, theaterId, date);
+        // One filter is enough as a tag, a show only matches with that value
+        String tag = eventId != null ? CacheTagIndex.tag("event", eventId)
+                : theaterId != null ? CacheTagIndex.tag("theater", theaterId)
+                : date != null ? CacheTagIndex.tag("date", date)
+                : CacheTagIndex.ANY;
+        return cacheTagIndex.cached("showSearch", eventId + "_" + theaterId + "_" + date, () -> {
+            log.debug("Searching shows with filters - eventId: {}, theaterId: {}, date: {}",
+                      eventId, theaterId, date);
+            return showRepository.searchShows(eventId, theaterId, date);
+        }, shows -> List.of(tag));
     }
 
     @Override
-    @Cacheable(value = "showsGrouped", unless = "#result == null || #result.isEmpty()")
+    @Cacheable(value = "showsGrouped", key = "'all'", unless = "#result == null || #result.isEmpty()")
     public Map<String, Map<String, List<Show>>> getShowsGroupedByDateAndVenue() {
         log.debug("Fetching shows grouped by date and venue from database");
         List<Show> shows = showRepository.searchShows(null, null, null);
@@ -253,8 +344,8 @@ public class ShowServiceImpl implements ShowService{
             put = @org.springframework.cache.annotation.CachePut(value = "showById", key = "#showId"),
             evict = {
                     @CacheEvict(value = "showDetails", key = "#showId"),
-                    @CacheEvict(value = "showSearch", allEntries = true),
-                    @CacheEvict(value = "showsGrouped", allEntries = true)
+                    @CacheEvict(value = "seatAvailability", key = "#showId"),
+                    @CacheEvict(value = "showsGrouped", key = "'all'")
             }
     )
     public Show updateShow(Integer showId, ShowUpdateRequest showUpdateRequest) throws ShowDoesNotExists {
@@ -291,11 +382,28 @@ public class ShowServiceImpl implements ShowService{
             );
         }
 
+        if (showSeatSnapshotRepository.existsById(showId)) {
+            throw new IllegalArgumentException("Cannot reschedule a show whose seats are archived");
+        }
+
+        // Seats carry the show's date as their partition key, so a new date moves them along
+        if (!showDate.equals(show.getDate().toLocalDate())) {
+            showSeatPartitionManager.ensurePartitions(List.of(newDate));
+            int moved = showSeatRepository.updateShowDate(showId, newDate);
+            log.info("Moved {} seats of show ID: {} to {}", moved, showId, newDate);
+            evictSeatDirectoryAfterCommit(showId);
+        }
+
+        // Searches of the old date lose the show, those of the new date gain it
+        evictSearchesAfterCommit(show.getEvent().getId(), show.getTheater(), List.of(show.getDate(), newDate));
+
         // Update date and time
         show.setDate(newDate);
         show.setTime(newTime);
 
         Show updated = showRepository.save(show);
+        // The seat version is the ETag of the seat view, which shows the date and time as well
+        seatChangeLog.resetAfterCompletion(showId);
         log.info("Show ID: {} updated successfully and cache updated", showId);
         return updated;
     }
@@ -305,8 +413,9 @@ public class ShowServiceImpl implements ShowService{
     @Caching(evict = {
             @CacheEvict(value = "showById", key = "#showId"),
             @CacheEvict(value = "showDetails", key = "#showId"),
-            @CacheEvict(value = "showSearch", allEntries = true),
-            @CacheEvict(value = "showsGrouped", allEntries = true)
+            @CacheEvict(value = "seatAvailability", key = "#showId"),
+            @CacheEvict(value = SeatSummaryCache.CACHE_NAME, key = "#showId"),
+            @CacheEvict(value = "showsGrouped", key = "'all'")
     })
     public String deleteShow(Integer showId) throws ShowDoesNotExists {
         log.info("Deleting show ID: {}", showId);
@@ -318,43 +427,44 @@ public class ShowServiceImpl implements ShowService{
             throw new RuntimeException("Cannot delete show with existing bookings");
         }
 
+        evictSearchesAfterCommit(show.getEvent().getId(), show.getTheater(), List.of(show.getDate()));
         showRepository.delete(show);
+        showSeatSnapshotRepository.deleteById(showId);
+        seatDirectoryService.evict(showId);
+        seatChangeLog.delete(showId);
         log.info("Show ID: {} deleted successfully and cache evicted", showId);
         return "Show deleted successfully";
     }
 
     @Override
-    @Cacheable(value = "seatAvailability", key = "#showId", unless = "#result == null")
     public SeatAvailabilityResponse getSeatAvailability(Integer showId) throws ShowDoesNotExists {
         log.debug("Fetching seat availability for show ID: {}", showId);
 
+        // The show part is cached as is; the seats come from the seat map, patched in place
+        SeatAvailabilityResponse availability = cachedShowView("seatAvailability", showId,
+                SeatAvailabilityResponse.class, () -> seatAvailability(showId));
+        SeatMapCache.SeatMap seatMap = seatMapCache.seatMap(showId);
+        SeatDirectory directory = seatMap.getDirectory();
+
+        List<SeatInfo> seats = new ArrayList<>(directory.size());
+        for (Integer seatId : directory.allSeatIds()) {
+            seats.add(seatInfo(directory, seatId, seatMap.statusOf(seatId)));
+        }
+
+        return availability.toBuilder()
+                .totalSeats(seatMap.getTotalSeats())
+                .availableSeats(seatMap.getAvailableSeats())
+                .lockedSeats(seatMap.getLockedSeats())
+                .bookedSeats(seatMap.getBookedSeats())
+                .seatVersion(seatMap.getVersion())
+                .seats(seats)
+                .build();
+    }
+
+    private SeatAvailabilityResponse seatAvailability(Integer showId) {
         Show show = showRepository.findById(showId)
                 .orElseThrow(() -> new ShowDoesNotExists());
 
-        List<ShowSeat> showSeats = show.getShowSeatList();
-
-        // Calculate seat statistics
-        long totalSeats = showSeats.size();
-        long availableSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.AVAILABLE)
-                .count();
-        long lockedSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.LOCKED)
-                .count();
-        long bookedSeats = showSeats.stream()
-                .filter(seat -> seat.getStatus() == SeatStatus.BOOKED)
-                .count();
-
-        // Convert seats to SeatInfo DTOs
-        List<SeatInfo> seatInfoList = showSeats.stream()
-                .map(seat -> SeatInfo.builder()
-                        .seatNo(seat.getSeatNo())
-                        .seatType(seat.getSeatType())
-                        .price(seat.getPrice() != null ? seat.getPrice() : 0)
-                        .status(seat.getStatus())
-                        .build())
-                .collect(Collectors.toList());
-
         return SeatAvailabilityResponse.builder()
                 .showId(show.getShowId())
                 .showDate(show.getDate())
@@ -364,11 +474,164 @@ public class ShowServiceImpl implements ShowService{
                 .theaterName(show.getTheater().getName())
                 .theaterAddress(show.getTheater().getVenue().getAddress())
                 .city(show.getTheater().getVenue().getCity())
-                .totalSeats((int) totalSeats)
-                .availableSeats((int) availableSeats)
-                .lockedSeats((int) lockedSeats)
-                .bookedSeats((int) bookedSeats)
-                .seats(seatInfoList)
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Evict the show and event searches that shows of the event and theater on the given dates can
+     * appear in, once the change commits, see {@link #searchShows} and
+     * {@link EventServiceImpl#searchEvents}.
+     */
+    private void evictSearchesAfterCommit(Integer eventId, Theater theater, Collection<Date> dates) {
+        List<String> showSearchTags = new ArrayList<>();
+        showSearchTags.add(CacheTagIndex.tag("event", eventId));
+        showSearchTags.add(CacheTagIndex.tag("theater", theater.getId()));
+        showSearchTags.add(CacheTagIndex.ANY);
+
+        // Event searches only depend on shows through their city and show date filters
+        List<String> eventSearchTags = new ArrayList<>();
+        eventSearchTags.add(CacheTagIndex.cityTag(theater.getVenue().getCity()));
+        for (Date date : new LinkedHashSet<>(dates)) {
+            showSearchTags.add(CacheTagIndex.tag("date", date));
+            eventSearchTags.add(CacheTagIndex.tag("date", date));
+        }
+        cacheTagIndex.evictAfterCommit("showSearch", showSearchTags);
+        cacheTagIndex.evictAfterCommit("eventSearch", eventSearchTags);
+    }
+
+    /**
+     * Show part of a seat view from the given cache, built and cached on a miss, once for all
+     * concurrent misses. The seats and seat counts are left out of the cached value, so seat changes
+     * never need to evict it.
+     */
+    private <T> T cachedShowView(String cacheName, Integer showId, Class<T> type, Supplier<T> loader) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache == null) {
+            return loader.get();
+        }
+        try {
+            return type.cast(cache.get(showId, loader::get));
+        } catch (Cache.ValueRetrievalException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Long getSeatVersion(Integer showId) throws ShowDoesNotExists {
+        if (!showRepository.existsById(showId)) {
+            throw new ShowDoesNotExists();
+        }
+        return seatChangeLog.version(showId);
+    }
+
+    @Override
+    public SeatChangesResponse getSeatChanges(Integer showId, long sinceVersion) throws ShowDoesNotExists {
+        if (!showRepository.existsById(showId)) {
+            throw new ShowDoesNotExists();
+        }
+
+        // Changes first: the seat map read after them is at least as recent
+        SeatChangeLog.SeatChanges changes = seatChangeLog.changesSince(showId, sinceVersion);
+        SeatMapCache.SeatMap seatMap = seatMapCache.seatMap(showId);
+        SeatDirectory directory = seatMap.getDirectory();
+        boolean fullSnapshot = !changes.isComplete()
+                || changes.getSeatIds().size() * 100L > (long) directory.size() * maxDeltaPercent;
+
+        // Too far behind, or so much changed that the whole seat map is about as cheap
+        List<Integer> seatIds = fullSnapshot ? directory.allSeatIds() : changes.getSeatIds().stream()
+                .filter(seatId -> directory.seatNo(seatId) != null)
+                .collect(Collectors.toList());
+        log.debug("Seat changes of show {} since version {}: {} seats{}", showId, sinceVersion, seatIds.size(),
+                fullSnapshot ? " (full snapshot)" : "");
+
+        return SeatChangesResponse.builder()
+                .showId(showId)
+                .seatVersion(changes.getVersion())
+                .fullSnapshot(fullSnapshot)
+                .seats(seatIds.stream()
+                        .map(seatId -> seatInfo(directory, seatId, seatMap.statusOf(seatId)))
+                        .collect(Collectors.toList()))
+                .build();
+    }
+
+    private SeatInfo seatInfo(SeatDirectory directory, Integer seatId, SeatStatus status) {
+        return SeatInfo.builder()
+                .seatNo(directory.seatNo(seatId))
+                .seatType(directory.seatType(seatId))
+                .price(directory.price(seatId))
+                .status(status)
+                .build();
+    }
+
+    @Override
+    public List<SeatSummaryResponse> getSeatSummaries(List<Integer> showIds) {
+        List<Integer> requested = new ArrayList<>(new LinkedHashSet<>(showIds));
+        if (requested.size() > maxSummaryShows) {
+            throw new IllegalArgumentException("At most " + maxSummaryShows + " shows can be summarized at once");
+        }
+
+        Map<Integer, SeatSummaryResponse> summaries = seatSummaryCache.getAll(requested);
+        List<Integer> misses = requested.stream()
+                .filter(showId -> !summaries.containsKey(showId))
+                .collect(Collectors.toList());
+        log.debug("Seat summaries of {} shows: {} cached, {} to count", requested.size(),
+                summaries.size(), misses.size());
+
+        if (!misses.isEmpty()) {
+            // Unknown shows are left out rather than cached as empty directories
+            List<Integer> existing = showRepository.findExistingShowIds(misses);
+            Map<Integer, SeatSummaryResponse> counted = new HashMap<>();
+            seatLockingService.seatCounts(existing).forEach((showId, counts) ->
+                    counted.put(showId, seatSummary(showId, counts)));
+            seatSummaryCache.putAll(counted);
+            summaries.putAll(counted);
+        }
+
+        return requested.stream()
+                .map(summaries::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private SeatSummaryResponse seatSummary(Integer showId, SeatCounts counts) {
+        int total = counts.total();
+        int available = counts.count(SeatStatus.AVAILABLE);
+        SeatAvailabilityLevel availability;
+        if (available == 0) {
+            availability = SeatAvailabilityLevel.SOLD_OUT;
+        } else if (available * 100L <= (long) total * fillingFastPercent) {
+            availability = SeatAvailabilityLevel.FILLING_FAST;
+        } else {
+            availability = SeatAvailabilityLevel.AVAILABLE;
+        }
+
+        return SeatSummaryResponse.builder()
+                .showId(showId)
+                .totalSeats(total)
+                .availableSeats(available)
+                .lockedSeats(counts.count(SeatStatus.LOCKED))
+                .bookedSeats(counts.count(SeatStatus.BOOKED))
+                .availability(availability)
+                .build();
+    }
+
+    /**
+     * Seat queries of the show are keyed by the date in its directory, which must only change once
+     * the moved seats are visible.
+     */
+    private void evictSeatDirectoryAfterCommit(Integer showId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            seatDirectoryService.evict(showId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                seatDirectoryService.evict(showId);
+            }
+        });
+    }
+}
@@ -0,0 +1,83 @@
+package com.sb.movie.services;
+
+import com.sb.movie.entities.Ticket;
+import com.sb.movie.repositories.TicketRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Migrates tickets booked before TICKET_SEATS existed.
+ *
+ * Such tickets only carry their seat numbers in {@code bookedSeats}. On startup they are resolved
+ * to SHOW_SEATS ids through the show's {@link SeatDirectory} and linked, one batch per transaction,
+ * paging by ticket id so tickets whose seats no longer resolve are skipped rather than revisited.
+ * Until a ticket is migrated, cancellation resolves its seat numbers the same way.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TicketSeatBackfill {
+
+    private final TicketRepository ticketRepository;
+    private final SeatDirectoryService seatDirectoryService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${booking.ticket-seat-backfill.batch-size:500}")
+    private int batchSize;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        int afterTicketId = 0;
+        int migrated = 0;
+
+        try {
+            while (true) {
+                int after = afterTicketId;
+                List<Ticket> tickets = transactionTemplate.execute(status -> {
+                    List<Ticket> batch = ticketRepository.findWithoutSeatIds(after, PageRequest.ofSize(batchSize));
+                    for (Ticket ticket : batch) {
+                        ticket.getSeatIds().addAll(resolveSeatIds(ticket));
+                    }
+                    return batch;
+                });
+
+                if (tickets == null || tickets.isEmpty()) {
+                    break;
+                }
+                migrated += (int) tickets.stream().filter(ticket -> !ticket.getSeatIds().isEmpty()).count();
+                afterTicketId = tickets.get(tickets.size() - 1).getTicketId();
+            }
+        } catch (Exception e) {
+            log.error("Failed to backfill ticket seats after ticket {}: {}", afterTicketId, e.getMessage());
+        }
+
+        if (migrated > 0) {
+            log.info("Linked {} existing tickets to their seats", migrated);
+        }
+    }
+
+    /**
+     * Seat ids of a ticket from its comma-joined seat numbers.
+     */
+    public List<Integer> resolveSeatIds(Ticket ticket) {
+        if (ticket.getBookedSeats() == null || ticket.getBookedSeats().isBlank()) {
+            return List.of();
+        }
+        List<String> seatNumbers = Arrays.stream(ticket.getBookedSeats().split(","))
+                .map(String::trim)
+                .collect(Collectors.toList());
+        return seatDirectoryService.directory(ticket.getShow().getShowId()).seatIds(seatNumbers);
+    }
+}
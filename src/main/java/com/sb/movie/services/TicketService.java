@@ -1,6 +1,7 @@
 package com.sb.movie.services;
 
 import com.sb.movie.entities.Ticket;
+import com.sb.movie.request.BestSeatsRequest;
 import com.sb.movie.request.SeatLockRequest;
 import com.sb.movie.request.TicketRequest;
 import com.sb.movie.response.SeatLockResponse;
@@ -8,19 +9,30 @@ import com.sb.movie.response.TicketHistoryResponse;
 import com.sb.movie.response.TicketResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface TicketService {
 
     SeatLockResponse lockSeats(SeatLockRequest seatLockRequest);
 
+    SeatLockResponse lockBestSeats(BestSeatsRequest bestSeatsRequest);
+
     TicketResponse ticketBooking(TicketRequest ticketRequest);
 
     void releaseSeats(SeatLockRequest seatLockRequest);
 
+    CompletableFuture<SeatLockResponse> lockSeatsAsync(SeatLockRequest seatLockRequest);
+
+    CompletableFuture<TicketResponse> ticketBookingAsync(TicketRequest ticketRequest);
+
+    CompletableFuture<Void> releaseSeatsAsync(SeatLockRequest seatLockRequest);
+
     List<TicketHistoryResponse> getMyTickets(String userEmail);
 
     TicketHistoryResponse getTicketById(Integer ticketId);
 
+    TicketHistoryResponse getTicketForSeat(Integer showId, String seatNo);
+
     String cancelTicket(Integer ticketId, String userEmail);
 
 }
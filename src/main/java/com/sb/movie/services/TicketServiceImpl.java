@@ -2,19 +2,18 @@ package com.sb.movie.services;
 
 import com.sb.movie.converter.TicketConvertor;
 import com.sb.movie.entities.Show;
-import com.sb.movie.entities.ShowSeat;
 import com.sb.movie.entities.Ticket;
 import com.sb.movie.entities.User;
-import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatLockMode;
 import com.sb.movie.events.BookingConfirmedEvent;
 import com.sb.movie.events.BookingFailedEvent;
 import com.sb.movie.exceptions.SeatsNotAvailable;
 import com.sb.movie.exceptions.ShowDoesNotExists;
 import com.sb.movie.exceptions.UserDoesNotExists;
 import com.sb.movie.repositories.ShowRepository;
-import com.sb.movie.repositories.ShowSeatRepository;
 import com.sb.movie.repositories.TicketRepository;
 import com.sb.movie.repositories.UserRepository;
+import com.sb.movie.request.BestSeatsRequest;
 import com.sb.movie.request.SeatLockRequest;
 import com.sb.movie.request.TicketRequest;
 import com.sb.movie.response.SeatLockResponse;
@@ -24,16 +23,19 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -44,22 +46,32 @@ public class TicketServiceImpl implements TicketService {
     private final TicketRepository ticketRepository;
     private final ShowRepository showRepository;
     private final UserRepository userRepository;
-    private final ShowSeatRepository showSeatRepository;
     private final SeatLockingService seatLockingService;
+    private final BookingTransactionExecutor bookingTransactionExecutor;
+    private final SeatDirectoryService seatDirectoryService;
+    private final SeatHoldReaper seatHoldReaper;
+    private final SeatMailbox seatMailbox;
+    private final TicketSeatBackfill ticketSeatBackfill;
     private final BookingEventProducer bookingEventProducer;
+    private final BookingOutbox bookingOutbox;
     private final org.springframework.cache.CacheManager cacheManager;
 
     @Value("${booking.seat-lock-timeout:10}")
     private int seatLockTimeoutMinutes;
 
+    @Value("${booking.best-seats.max-attempts:3}")
+    private int bestSeatsMaxAttempts;
+
     @Override
-    @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "showById", key = "#seatLockRequest.showId"),
-            @CacheEvict(value = "showDetails", key = "#seatLockRequest.showId"),
-            @CacheEvict(value = "seatAvailability", key = "#seatLockRequest.showId")
-    })
+    @CacheEvict(value = SeatSummaryCache.CACHE_NAME, key = "#seatLockRequest.showId")
     public SeatLockResponse lockSeats(SeatLockRequest seatLockRequest) {
+        if (inMailbox()) {
+            return seatMailbox.await(lockSeatsAsync(seatLockRequest));
+        }
+        return bookingTransactionExecutor.execute(() -> lockSeatsInTransaction(seatLockRequest));
+    }
+
+    private SeatLockResponse lockSeatsInTransaction(SeatLockRequest seatLockRequest) {
         log.info("Locking seats for user {} for show {}",
                 seatLockRequest.getUserId(), seatLockRequest.getShowId());
 
@@ -79,29 +91,78 @@ public class TicketServiceImpl implements TicketService {
         User user = userOpt.get();
 
         // Get seat IDs from seat numbers
-        List<Integer> seatIds = getSeatIdsBySeatNumbers(
-                show.getShowSeatList(),
-                seatLockRequest.getRequestSeats()
-        );
+        List<Integer> seatIds = seatDirectoryService.directory(show.getShowId())
+                .seatIds(seatLockRequest.getRequestSeats());
 
         if (seatIds.isEmpty()) {
             throw new SeatsNotAvailable("Requested seats not found");
         }
 
         // Lock the seats
-        List<ShowSeat> lockedSeats = seatLockingService.lockSeats(seatIds, user.getId());
+        SeatHold hold = seatLockingService.lockSeats(show.getShowId(), seatIds, user.getId());
+
+        return toLockResponse(seatLockRequest, hold);
+    }
+
+    /**
+     * Picks the best contiguous seats for the party and holds them in one call. Candidates come from
+     * the show's free-run index; if another user takes a candidate first, the next one is tried.
+     */
+    @Override
+    @CacheEvict(value = SeatSummaryCache.CACHE_NAME, key = "#bestSeatsRequest.showId")
+    public SeatLockResponse lockBestSeats(BestSeatsRequest bestSeatsRequest) {
+        Integer showId = bestSeatsRequest.getShowId();
+        Integer userId = bestSeatsRequest.getUserId();
+        int count = bestSeatsRequest.getNumberOfSeats();
+        String seatTypeLabel = bestSeatsRequest.getSeatType() != null
+                ? bestSeatsRequest.getSeatType().toString() + " " : "";
 
+        log.info("Finding {} best {}seats for user {} for show {}", count, seatTypeLabel, userId, showId);
+
+        if (!showRepository.existsById(showId)) {
+            throw new ShowDoesNotExists();
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new UserDoesNotExists();
+        }
+
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        List<List<Integer>> candidates = SeatRunIndex
+                .build(directory, seatLockingService.availableSeatIds(showId))
+                .candidates(count, bestSeatsRequest.getSeatType(), bestSeatsMaxAttempts);
+
+        for (List<Integer> seatIds : candidates) {
+            SeatHold hold;
+            try {
+                hold = inMailbox()
+                        ? seatMailbox.await(seatMailbox.lock(showId, seatIds, userId))
+                        : bookingTransactionExecutor.execute(() -> seatLockingService.lockSeats(showId, seatIds, userId));
+            } catch (IllegalStateException | SeatsNotAvailable e) {
+                log.debug("Best seat candidate for show {} was taken, trying the next one: {}", showId, e.getMessage());
+                continue;
+            }
+
+            SeatLockRequest seatLockRequest = new SeatLockRequest();
+            seatLockRequest.setShowId(showId);
+            seatLockRequest.setUserId(userId);
+            seatLockRequest.setRequestSeats(seatIds.stream().map(directory::seatNo).collect(Collectors.toList()));
+            return toLockResponse(seatLockRequest, hold);
+        }
+
+        throw new SeatsNotAvailable("No " + count + " adjacent " + seatTypeLabel + "seats are available");
+    }
+
+    private SeatLockResponse toLockResponse(SeatLockRequest seatLockRequest, SeatHold hold) {
         // Calculate total price
-        Integer totalPrice = lockedSeats.stream()
-                .mapToInt(ShowSeat::getPrice)
-                .sum();
+        Integer totalPrice = hold.getTotalPrice();
 
         // Calculate expiry time
-        LocalDateTime lockedAt = lockedSeats.get(0).getLockedAt();
+        LocalDateTime lockedAt = hold.getLockedAt();
         LocalDateTime expiresAt = lockedAt.plusMinutes(seatLockTimeoutMinutes);
+        seatHoldReaper.schedule(seatLockRequest.getShowId(), expiresAt);
 
         log.info("Successfully locked {} seats for user {}. Expires at {}",
-                lockedSeats.size(), user.getId(), expiresAt);
+                hold.getSeatIds().size(), seatLockRequest.getUserId(), expiresAt);
 
         return SeatLockResponse.builder()
                 .lockedSeats(seatLockRequest.getRequestSeats())
@@ -114,13 +175,16 @@ public class TicketServiceImpl implements TicketService {
     }
 
     @Override
-    @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "showById", key = "#seatLockRequest.showId"),
-            @CacheEvict(value = "showDetails", key = "#seatLockRequest.showId"),
-            @CacheEvict(value = "seatAvailability", key = "#seatLockRequest.showId")
-    })
+    @CacheEvict(value = SeatSummaryCache.CACHE_NAME, key = "#seatLockRequest.showId")
     public void releaseSeats(SeatLockRequest seatLockRequest) {
+        if (inMailbox()) {
+            seatMailbox.await(releaseSeatsAsync(seatLockRequest));
+            return;
+        }
+        bookingTransactionExecutor.run(() -> releaseSeatsInTransaction(seatLockRequest));
+    }
+
+    private void releaseSeatsInTransaction(SeatLockRequest seatLockRequest) {
         log.info("Releasing seats for user {} for show {}",
                 seatLockRequest.getUserId(), seatLockRequest.getShowId());
 
@@ -133,26 +197,27 @@ public class TicketServiceImpl implements TicketService {
         Show show = showOpt.get();
 
         // Get seat IDs from seat numbers
-        List<Integer> seatIds = getSeatIdsBySeatNumbers(
-                show.getShowSeatList(),
-                seatLockRequest.getRequestSeats()
-        );
+        List<Integer> seatIds = seatDirectoryService.directory(show.getShowId())
+                .seatIds(seatLockRequest.getRequestSeats());
 
         if (!seatIds.isEmpty()) {
-            seatLockingService.releaseSeats(seatIds, seatLockRequest.getUserId());
+            seatLockingService.releaseSeats(show.getShowId(), seatIds, seatLockRequest.getUserId());
             log.info("Successfully released {} seats for user {}",
                     seatIds.size(), seatLockRequest.getUserId());
         }
     }
 
     @Override
-    @Transactional
-    @Caching(evict = {
-            @CacheEvict(value = "showById", key = "#ticketRequest.showId"),
-            @CacheEvict(value = "showDetails", key = "#ticketRequest.showId"),
-            @CacheEvict(value = "seatAvailability", key = "#ticketRequest.showId")
-    })
+    @CacheEvict(value = SeatSummaryCache.CACHE_NAME, key = "#ticketRequest.showId")
     public TicketResponse ticketBooking(TicketRequest ticketRequest) {
+        if (inMailbox()) {
+            // The ticket is saved in a transaction of its own once the show's writer booked the seats
+            return seatMailbox.await(ticketBookingAsync(ticketRequest));
+        }
+        return bookingTransactionExecutor.execute(() -> ticketBookingInTransaction(ticketRequest));
+    }
+
+    private TicketResponse ticketBookingInTransaction(TicketRequest ticketRequest) {
         log.info("Processing ticket booking for user {} for show {}",
                 ticketRequest.getUserId(), ticketRequest.getShowId());
 
@@ -172,10 +237,8 @@ public class TicketServiceImpl implements TicketService {
         Show show = showOpt.get();
 
         // Get seat IDs from seat numbers
-        List<Integer> seatIds = getSeatIdsBySeatNumbers(
-                show.getShowSeatList(),
-                ticketRequest.getRequestSeats()
-        );
+        List<Integer> seatIds = seatDirectoryService.directory(show.getShowId())
+                .seatIds(ticketRequest.getRequestSeats());
 
         if (seatIds.isEmpty()) {
             publishBookingFailedEvent(user, show, ticketRequest.getRequestSeats(),
@@ -184,100 +247,25 @@ public class TicketServiceImpl implements TicketService {
         }
 
         try {
-            // Step 1: Get the seats with pessimistic lock to check their current status
-            List<ShowSeat> seats = showSeatRepository.findAndLockByIds(seatIds);
-
-            // Verify we found all requested seats
-            if (seats.size() != seatIds.size()) {
-                throw new SeatsNotAvailable("Some seats not found");
-            }
-
-            // VALIDATION 1: All seats must be locked by this user
-            // Real-world flow: lock seats first, then book
-            boolean allLockedByUser = seats.stream()
-                    .allMatch(seat -> seat.getStatus() == SeatStatus.LOCKED &&
-                             seat.getLockedByUserId() != null &&
-                             seat.getLockedByUserId().equals(user.getId()));
-
-            if (!allLockedByUser) {
-                // Check what's wrong with the seats
-                List<String> unavailableSeats = seats.stream()
-                        .filter(seat -> seat.getStatus() != SeatStatus.LOCKED ||
-                                       seat.getLockedByUserId() == null ||
-                                       !seat.getLockedByUserId().equals(user.getId()))
-                        .map(seat -> {
-                            if (seat.getStatus() == SeatStatus.BOOKED) {
-                                return seat.getSeatNo() + " (already booked)";
-                            } else if (seat.getStatus() == SeatStatus.LOCKED) {
-                                return seat.getSeatNo() + " (locked by another user)";
-                            } else {
-                                return seat.getSeatNo() + " (not locked)";
-                            }
-                        })
-                        .collect(Collectors.toList());
-
-                throw new SeatsNotAvailable(
-                    "Cannot book seats. You must lock seats first using /lock-seats endpoint. " +
-                    "Problem seats: " + String.join(", ", unavailableSeats));
-            }
-
-            log.info("All seats are locked by user {}, proceeding with booking", user.getId());
-
-            // VALIDATION 2: Check if user has any OTHER locked seats for this show
-            // User must book ALL their locked seats, not just some
-            List<ShowSeat> allLockedSeatsForUser = show.getShowSeatList().stream()
-                    .filter(seat -> seat.getStatus() == SeatStatus.LOCKED &&
-                                   seat.getLockedByUserId() != null &&
-                                   seat.getLockedByUserId().equals(user.getId()))
-                    .collect(Collectors.toList());
-
-            if (allLockedSeatsForUser.size() != seats.size()) {
-                String lockedSeatNumbers = allLockedSeatsForUser.stream()
-                        .map(ShowSeat::getSeatNo)
-                        .collect(Collectors.joining(", "));
-                throw new IllegalStateException(
-                    String.format("You have %d seats locked (%s). You must book all locked seats together. " +
-                                 "Either book all %d seats or release them first.",
-                                 allLockedSeatsForUser.size(), lockedSeatNumbers, allLockedSeatsForUser.size()));
-            }
-
-            List<ShowSeat> seatsToBook = seats;
+            // Step 1: Validate the user's hold and flip the seats from LOCKED to BOOKED
+            SeatHold booked = seatLockingService.confirmBooking(show.getShowId(), seatIds, user.getId());
 
-            // Step 2: Calculate total price
-            Integer totalPrice = seatsToBook.stream()
-                    .mapToInt(ShowSeat::getPrice)
-                    .sum();
+            log.info("All seats were locked by user {}, booking confirmed", user.getId());
 
-            String seatsStr = listToString(ticketRequest.getRequestSeats());
-
-            // Step 3: Create ticket
-            Ticket ticket = new Ticket();
-            ticket.setTotalTicketsPrice(totalPrice);
-            ticket.setBookedSeats(seatsStr);
-            ticket.setUser(user);
-            ticket.setShow(show);
-
-            ticket = ticketRepository.save(ticket);
-
-            // Step 4: Confirm booking (change status from LOCKED to BOOKED)
-            seatLockingService.confirmBooking(seatIds, user.getId());
-
-            log.info("Successfully created booking {} for user {}", ticket.getTicketId(), user.getId());
-
-            // Step 5: Publish booking confirmed event to Kafka
-            publishBookingConfirmedEvent(ticket, user, show, seatsToBook);
-
-            return TicketConvertor.returnTicket(show, ticket);
+            return createTicket(show, user, ticketRequest.getRequestSeats(), booked);
 
         } catch (IllegalStateException e) {
             log.error("Failed to book seats for user {}: {}", user.getId(), e.getMessage());
             publishBookingFailedEvent(user, show, ticketRequest.getRequestSeats(), e.getMessage());
             throw new SeatsNotAvailable(e.getMessage());
+        } catch (OptimisticLockingFailureException e) {
+            // Seat version conflict: let BookingTransactionExecutor retry in a fresh transaction
+            throw e;
         } catch (Exception e) {
             log.error("Unexpected error during booking for user {}: {}", user.getId(), e.getMessage());
             // Release locks if anything goes wrong
             try {
-                seatLockingService.releaseSeats(seatIds, user.getId());
+                seatLockingService.releaseSeats(show.getShowId(), seatIds, user.getId());
             } catch (Exception releaseError) {
                 log.error("Failed to release seats: {}", releaseError.getMessage());
             }
@@ -287,38 +275,57 @@ public class TicketServiceImpl implements TicketService {
         }
     }
 
+    private TicketResponse createTicket(Show show, User user, List<String> requestSeats, SeatHold booked) {
+        // Step 2: Calculate total price
+        Integer totalPrice = booked.getTotalPrice();
+
+        String seatsStr = listToString(requestSeats);
+
+        // Step 3: Create ticket
+        Ticket ticket = new Ticket();
+        ticket.setTotalTicketsPrice(totalPrice);
+        ticket.setBookedSeats(seatsStr);
+        ticket.setSeatIds(new ArrayList<>(booked.getSeatIds()));
+        ticket.setUser(user);
+        ticket.setShow(show);
+
+        ticket = ticketRepository.save(ticket);
+
+        log.info("Successfully created booking {} for user {}", ticket.getTicketId(), user.getId());
+
+        // Step 4: Queue booking confirmed event; BookingOutboxRelay publishes it to Kafka after commit
+        publishBookingConfirmedEvent(ticket, user, show, booked.getSeatIds().size());
+
+        return TicketConvertor.returnTicket(show, ticket);
+    }
+
     /**
-     * Publishes booking confirmed event to Kafka for email notification
+     * Queues booking confirmed event in the outbox for email notification
      */
-    private void publishBookingConfirmedEvent(Ticket ticket, User user, Show show, List<ShowSeat> seats) {
-        try {
-            String bookingReference = "BMS-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
-
-            BookingConfirmedEvent event = BookingConfirmedEvent.builder()
-                    .bookingId(ticket.getTicketId())
-                    .bookingReference(bookingReference)
-                    .userId(user.getId())
-                    .userEmail(user.getEmailId())
-                    .userName(user.getName())
-                    .userMobile(user.getMobileNo())
-                    .showId(show.getShowId())
-                    .eventName(show.getEvent().getName())
-                    .eventType(show.getEvent().getEventType().toString())
-                    .theaterName(show.getTheater().getName())
-                    .theaterAddress(show.getTheater().getVenue().getAddress())
-                    .showTime(LocalDateTime.of(show.getDate().toLocalDate(), show.getTime().toLocalTime()))
-                    .bookedSeats(ticket.getBookedSeats())
-                    .totalSeats(seats.size())
-                    .totalPrice(ticket.getTotalTicketsPrice())
-                    .bookingTime(LocalDateTime.now())
-                    .build();
+    private void publishBookingConfirmedEvent(Ticket ticket, User user, Show show, int seatCount) {
+        String bookingReference = "BMS-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+
+        BookingConfirmedEvent event = BookingConfirmedEvent.builder()
+                .bookingId(ticket.getTicketId())
+                .bookingReference(bookingReference)
+                .userId(user.getId())
+                .userEmail(user.getEmailId())
+                .userName(user.getName())
+                .userMobile(user.getMobileNo())
+                .showId(show.getShowId())
+                .eventName(show.getEvent().getName())
+                .eventType(show.getEvent().getEventType().toString())
+                .theaterName(show.getTheater().getName())
+                .theaterAddress(show.getTheater().getVenue().getAddress())
+                .showTime(LocalDateTime.of(show.getDate().toLocalDate(), show.getTime().toLocalTime()))
+                .bookedSeats(ticket.getBookedSeats())
+                .totalSeats(seatCount)
+                .totalPrice(ticket.getTotalTicketsPrice())
+                .bookingTime(LocalDateTime.now())
+                .build();
 
-            bookingEventProducer.publishBookingConfirmed(event);
-        } catch (Exception e) {
-            // Don't fail the booking if Kafka publishing fails
-            log.error("Failed to publish booking confirmed event for ticket {}: {}",
-                    ticket.getTicketId(), e.getMessage());
-        }
+        // Written in the booking transaction: the event exists if and only if the booking commits
+        bookingOutbox.addBookingConfirmed(event);
     }
 
     /**
@@ -344,18 +351,142 @@ public class TicketServiceImpl implements TicketService {
         }
     }
 
+    private String listToString(List<String> requestSeats) {
+        return String.join(", ", requestSeats);
+    }
+
     /**
-     * Convert seat numbers to seat IDs
+     * Asynchronous lock. In MAILBOX mode the future completes once the show's writer has committed
+     * the hold; other modes lock on the calling thread and return a completed future.
      */
-    private List<Integer> getSeatIdsBySeatNumbers(List<ShowSeat> showSeatList, List<String> requestSeats) {
-        return showSeatList.stream()
-                .filter(seat -> requestSeats.contains(seat.getSeatNo()))
-                .map(ShowSeat::getId)
-                .collect(Collectors.toList());
+    @Override
+    public CompletableFuture<SeatLockResponse> lockSeatsAsync(SeatLockRequest seatLockRequest) {
+        if (!inMailbox()) {
+            return completed(() -> lockSeats(seatLockRequest));
+        }
+
+        Integer showId = seatLockRequest.getShowId();
+        List<Integer> seatIds;
+        try {
+            seatIds = validateAndResolveSeats(showId, seatLockRequest.getUserId(), seatLockRequest.getRequestSeats());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return seatMailbox.lock(showId, seatIds, seatLockRequest.getUserId())
+                .thenApply(hold -> {
+                    evictSeatSummary(showId);
+                    return toLockResponse(seatLockRequest, hold);
+                });
     }
 
-    private String listToString(List<String> requestSeats) {
-        return String.join(", ", requestSeats);
+    @Override
+    public CompletableFuture<Void> releaseSeatsAsync(SeatLockRequest seatLockRequest) {
+        if (!inMailbox()) {
+            return completed(() -> {
+                releaseSeats(seatLockRequest);
+                return null;
+            });
+        }
+
+        Integer showId = seatLockRequest.getShowId();
+        if (!showRepository.existsById(showId)) {
+            return CompletableFuture.failedFuture(new ShowDoesNotExists());
+        }
+
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(seatLockRequest.getRequestSeats());
+        if (seatIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return seatMailbox.release(showId, seatIds, seatLockRequest.getUserId())
+                .thenAccept(releasedCount -> evictSeatSummary(showId));
+    }
+
+    /**
+     * Asynchronous booking. In MAILBOX mode the seats are confirmed by the show's writer and the
+     * ticket is then saved on the mailbox callback executor. If saving fails, the user's hold is put
+     * back before the future fails, so the user can book again until the hold expires.
+     */
+    @Override
+    public CompletableFuture<TicketResponse> ticketBookingAsync(TicketRequest ticketRequest) {
+        if (!inMailbox()) {
+            return completed(() -> ticketBooking(ticketRequest));
+        }
+
+        Integer showId = ticketRequest.getShowId();
+        Integer userId = ticketRequest.getUserId();
+        List<Integer> seatIds;
+        try {
+            seatIds = validateAndResolveSeats(showId, userId, ticketRequest.getRequestSeats());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return seatMailbox.confirm(showId, seatIds, userId)
+                .thenCompose(booked -> {
+                    try {
+                        TicketResponse response = bookingTransactionExecutor.execute(() -> createTicket(
+                                showRepository.findById(showId).orElseThrow(ShowDoesNotExists::new),
+                                userRepository.findById(userId).orElseThrow(UserDoesNotExists::new),
+                                ticketRequest.getRequestSeats(), booked));
+                        return CompletableFuture.completedFuture(response);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to save ticket for user {}, restoring the hold: {}", userId, e.getMessage());
+                        return restoreHold(showId, seatIds, userId)
+                                .thenCompose(restored -> CompletableFuture.<TicketResponse>failedFuture(e));
+                    }
+                })
+                .whenComplete((response, error) -> evictSeatSummary(showId));
+    }
+
+    // Waits for the mailbox without blocking; the booking fails with its own error either way
+    private CompletableFuture<Void> restoreHold(Integer showId, List<Integer> seatIds, Integer userId) {
+        return seatMailbox.revertConfirm(showId, seatIds, userId)
+                .handle((restored, error) -> {
+                    if (error != null) {
+                        log.error("Failed to restore the hold of user {} on show {}: {}",
+                                userId, showId, error.getMessage());
+                    } else {
+                        seatHoldReaper.schedule(showId, LocalDateTime.now().plusMinutes(seatLockTimeoutMinutes));
+                    }
+                    return null;
+                });
+    }
+
+    private List<Integer> validateAndResolveSeats(Integer showId, Integer userId, List<String> requestSeats) {
+        if (!showRepository.existsById(showId)) {
+            throw new ShowDoesNotExists();
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new UserDoesNotExists();
+        }
+
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(requestSeats);
+        if (seatIds.isEmpty()) {
+            throw new SeatsNotAvailable("Requested seats not found");
+        }
+        return seatIds;
+    }
+
+    // MAILBOX commands are awaited outside of any transaction, see SeatMailbox
+    private boolean inMailbox() {
+        return seatLockingService.getMode() == SeatLockMode.MAILBOX;
+    }
+
+    private <T> CompletableFuture<T> completed(Supplier<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Seat views are patched in place by the seat map; only the counted summary is evicted
+    private void evictSeatSummary(Integer showId) {
+        if (cacheManager.getCache(SeatSummaryCache.CACHE_NAME) != null) {
+            cacheManager.getCache(SeatSummaryCache.CACHE_NAME).evict(showId);
+        }
     }
 
     @Override
@@ -377,8 +508,39 @@ public class TicketServiceImpl implements TicketService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
+    public TicketHistoryResponse getTicketForSeat(Integer showId, String seatNo) {
+        if (!showRepository.existsById(showId)) {
+            throw new ShowDoesNotExists();
+        }
+
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(List.of(seatNo));
+        if (seatIds.isEmpty()) {
+            throw new SeatsNotAvailable("Seat " + seatNo + " not found");
+        }
+
+        Ticket ticket = ticketRepository.findBySeatId(seatIds.get(0))
+                .orElseThrow(() -> new RuntimeException("No ticket holds seat " + seatNo));
+        return convertToHistoryResponse(ticket);
+    }
+
+    @Override
     public String cancelTicket(Integer ticketId, String userEmail) {
+        CancelledTicket cancelled = bookingTransactionExecutor.execute(() -> cancelTicketInTransaction(ticketId, userEmail));
+
+        if (inMailbox()) {
+            // The show's writer hands the seats back in a commit of its own, once the ticket is gone
+            seatMailbox.await(seatMailbox.cancel(cancelled.getShowId(), cancelled.getSeatIds()));
+        }
+
+        // Evict the seat summary of this specific show
+        evictSeatSummary(cancelled.getShowId());
+
+        log.info("Ticket {} cancelled by user {}", ticketId, cancelled.getUserId());
+        return cancelled.getRefundMessage();
+    }
+
+    private CancelledTicket cancelTicketInTransaction(Integer ticketId, String userEmail) {
         Ticket ticket = ticketRepository.findById(ticketId)
                 .orElseThrow(() -> new RuntimeException("Ticket not found"));
 
@@ -405,40 +567,25 @@ public class TicketServiceImpl implements TicketService {
             throw new RuntimeException("Cannot cancel ticket less than 2 hours before show");
         }
 
-        String[] seatNumbers = ticket.getBookedSeats().split(", ");
-        List<Integer> seatIds = getSeatIdsBySeatNumbers(show.getShowSeatList(), List.of(seatNumbers));
+        List<Integer> seatIds = new ArrayList<>(ticket.getSeatIds());
+        if (seatIds.isEmpty()) {
+            // Not yet migrated by TicketSeatBackfill
+            seatIds = ticketSeatBackfill.resolveSeatIds(ticket);
+        }
 
-        List<ShowSeat> seats = showSeatRepository.findAllById(seatIds);
-        for (ShowSeat seat : seats) {
-            seat.setStatus(SeatStatus.AVAILABLE);
-            seat.setLockedByUserId(null);
-            seat.setLockedAt(null);
+        if (!inMailbox()) {
+            seatLockingService.cancelBooking(show.getShowId(), seatIds);
         }
-        showSeatRepository.saveAll(seats);
 
         ticketRepository.delete(ticket);
 
-        // Evict caches for this specific show
-        Integer showId = show.getShowId();
-        if (cacheManager.getCache("showById") != null) {
-            cacheManager.getCache("showById").evict(showId);
-        }
-        if (cacheManager.getCache("showDetails") != null) {
-            cacheManager.getCache("showDetails").evict(showId);
-        }
-        if (cacheManager.getCache("seatAvailability") != null) {
-            cacheManager.getCache("seatAvailability").evict(showId);
-        }
-
         String refundMessage;
         if (hoursUntilShow >= 24) {
             refundMessage = "Ticket cancelled successfully. 100% refund will be processed.";
         } else {
             refundMessage = "Ticket cancelled successfully. 50% refund will be processed.";
         }
-
-        log.info("Ticket {} cancelled by user {}", ticketId, user.getId());
-        return refundMessage;
+        return new CancelledTicket(show.getShowId(), seatIds, user.getId(), refundMessage);
     }
 
     private TicketHistoryResponse convertToHistoryResponse(Ticket ticket) {
@@ -458,4 +605,12 @@ public class TicketServiceImpl implements TicketService {
                 .city(show.getTheater().getVenue().getCity())
                 .build();
     }
+
+    @lombok.Value
+    private static class CancelledTicket {
+        Integer showId;
+        List<Integer> seatIds;
+        Integer userId;
+        String refundMessage;
+    }
 }
@@ -0,0 +1,172 @@
+package com.sb.movie.services;
+
+import com.sb.movie.response.QueueStatusResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Per-show admission queue in front of seat locking and booking.
+ *
+ * Each show admits {@code booking.waiting-room.rate} users per second with a burst of
+ * {@code booking.waiting-room.burst}. Every user arriving at a show is given the next admission
+ * slot (slots are spaced one interval apart, token-bucket style) and a queue token. The slot is
+ * kept per show and user, so a user who calls again, with or without the token, gets the same slot
+ * and token back, and a token handed to another user admits nobody ahead of the queue.
+ * A client whose slot is not due yet gets 503 with Retry-After and polls; once due, the slot stays
+ * valid as an admission pass for the seat lock timeout so the booking step does not queue again.
+ * Arrivals beyond {@code booking.waiting-room.max-queue} are shed without a slot.
+ *
+ * Admission fails open: if Redis is unavailable requests go through.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WaitingRoomService {
+
+    public static final String QUEUE_TOKEN_HEADER = "X-Queue-Token";
+
+    private static final long SHED = -1;
+    private static final long ADMITTED = 0;
+
+    // KEYS: next free slot, the user's slot. ARGV: now, interval, burst, max queue, token ttl,
+    // pass ttl, token for a new slot. The user's slot is stored as "slot:token"
+    private static final String ADMIT_LUA =
+            "local now = tonumber(ARGV[1])\n" +
+            "local interval = tonumber(ARGV[2])\n" +
+            "local window = tonumber(ARGV[3]) * interval\n" +
+            "local slot\n" +
+            "local token\n" +
+            "local entry = redis.call('GET', KEYS[2])\n" +
+            "if entry then\n" +
+            "    local separator = string.find(entry, ':', 1, true)\n" +
+            "    slot = tonumber(string.sub(entry, 1, separator - 1))\n" +
+            "    token = string.sub(entry, separator + 1)\n" +
+            "else\n" +
+            "    local nextSlot = tonumber(redis.call('GET', KEYS[1]) or '0')\n" +
+            "    if nextSlot < now then\n" +
+            "        nextSlot = now\n" +
+            "    end\n" +
+            "    if (nextSlot - window - now) / interval > tonumber(ARGV[4]) then\n" +
+            "        return {'-1', tostring(nextSlot - window - now), ''}\n" +
+            "    end\n" +
+            "    slot = nextSlot\n" +
+            "    token = ARGV[7]\n" +
+            "    redis.call('SET', KEYS[1], tostring(slot + interval), 'PX', tostring(slot + interval - now + 60000))\n" +
+            "    redis.call('SET', KEYS[2], string.format('%d', slot) .. ':' .. token, 'PX', ARGV[5])\n" +
+            "end\n" +
+            "local wait = slot - window - now\n" +
+            "if wait <= 0 then\n" +
+            "    redis.call('PEXPIRE', KEYS[2], ARGV[6])\n" +
+            "    return {'0', '0', token}\n" +
+            "end\n" +
+            "return {'1', string.format('%d', wait), token}";
+
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> ADMIT_SCRIPT = new DefaultRedisScript<>(ADMIT_LUA, List.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${booking.waiting-room.enabled:false}")
+    private boolean enabled;
+
+    @Value("${booking.waiting-room.rate:50}")
+    private int admissionsPerSecond;
+
+    @Value("${booking.waiting-room.burst:100}")
+    private int burst;
+
+    @Value("${booking.waiting-room.max-queue:10000}")
+    private int maxQueue;
+
+    @Value("${booking.waiting-room.token-ttl-minutes:30}")
+    private int tokenTtlMinutes;
+
+    @Value("${booking.seat-lock-timeout:10}")
+    private int seatLockTimeoutMinutes;
+
+    /**
+     * Admit the user now, or place them in the show's queue. A user who already has a slot for the
+     * show keeps it, whatever token is sent.
+     * @param user name of the authenticated user the slot belongs to
+     * @param queueToken token from an earlier call, kept if the user needs a new slot; or null
+     */
+    public QueueStatusResponse admit(Integer showId, String user, String queueToken) {
+        if (!enabled) {
+            return QueueStatusResponse.builder().showId(showId).admitted(true).build();
+        }
+
+        String newToken = queueToken != null && !queueToken.isBlank() ? queueToken : UUID.randomUUID().toString();
+        List<String> result;
+        try {
+            result = run(showId, user, newToken);
+        } catch (Exception e) {
+            log.warn("Waiting room unavailable for show {}, admitting: {}", showId, e.getMessage());
+            return QueueStatusResponse.builder().showId(showId).admitted(true).build();
+        }
+
+        long outcome = Long.parseLong(result.get(0));
+        long waitMs = Long.parseLong(result.get(1));
+        String token = result.get(2);
+
+        if (outcome == ADMITTED) {
+            return QueueStatusResponse.builder()
+                    .showId(showId)
+                    .admitted(true)
+                    .queueToken(token)
+                    .build();
+        }
+
+        if (outcome == SHED) {
+            log.warn("Waiting room for show {} is full, shedding request", showId);
+            return QueueStatusResponse.builder()
+                    .showId(showId)
+                    .admitted(false)
+                    .retryAfterSeconds(toSeconds(waitMs))
+                    .message("Too many users are booking this show. Please try again later.")
+                    .build();
+        }
+
+        return QueueStatusResponse.builder()
+                .showId(showId)
+                .admitted(false)
+                .position(Math.max(1, waitMs / intervalMs()))
+                .retryAfterSeconds(toSeconds(waitMs))
+                .queueToken(token)
+                .message("You are in the queue. Retry with the " + QUEUE_TOKEN_HEADER + " header.")
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> run(Integer showId, String user, String newToken) {
+        String prefix = "waiting-room:{" + showId + "}:";
+        List<String> result = stringRedisTemplate.execute(ADMIT_SCRIPT,
+                List.of(prefix + "next-slot", prefix + "user:" + user),
+                Long.toString(System.currentTimeMillis()),
+                Long.toString(intervalMs()),
+                Integer.toString(burst),
+                Integer.toString(maxQueue),
+                Long.toString(tokenTtlMinutes * 60_000L),
+                Long.toString(seatLockTimeoutMinutes * 60_000L),
+                newToken);
+        if (result == null || result.size() < 3) {
+            throw new IllegalStateException("Waiting room script returned no result");
+        }
+        return result;
+    }
+
+    private long intervalMs() {
+        return Math.max(1, 1000 / Math.max(1, admissionsPerSecond));
+    }
+
+    private long toSeconds(long waitMs) {
+        return Math.max(1, (waitMs + 999) / 1000);
+    }
+}
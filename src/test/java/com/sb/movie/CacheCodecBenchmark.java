@@ -0,0 +1,182 @@
+package com.sb.movie;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.movie.config.CacheValueSerializer;
+import com.sb.movie.config.RedisConfig;
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.Theater;
+import com.sb.movie.entities.Venue;
+import com.sb.movie.enums.CacheCodec;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatInfo;
+import com.sb.movie.response.TheaterResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Encoded size, serialize time and deserialize time of the cache value codecs, with and without
+ * gzip, for the values the caches actually hold: seat maps of a mid-size and a large theater, a
+ * show, and a list of theaters with their seats.
+ *
+ * Not part of the regular build. Run with:
+ * {@code mvn test -Dtest=CacheCodecBenchmark -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CacheCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 2000;
+    private static final int ITERATIONS = 5000;
+
+    @Test
+    void compareCodecsOnCachedValues() {
+        ObjectMapper mapper = RedisConfig.objectMapper();
+        Map<String, CacheValueSerializer> serializers = new LinkedHashMap<>();
+        serializers.put("json", new CacheValueSerializer(CacheCodec.JSON, 0, mapper));
+        serializers.put("json+gzip", new CacheValueSerializer(CacheCodec.JSON, 1, mapper));
+        serializers.put("smile", new CacheValueSerializer(CacheCodec.SMILE, 0, mapper));
+        serializers.put("smile+gzip", new CacheValueSerializer(CacheCodec.SMILE, 1, mapper));
+        serializers.put("default", new CacheValueSerializer(CacheCodec.SMILE, 8192, mapper));
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("seats-500", seatAvailability(500));
+        values.put("seats-5000", seatAvailability(5000));
+        values.put("show", show());
+        values.put("theaters-20", theaters(20, 100));
+
+        System.out.printf("%-12s %-12s %10s %8s %12s %12s%n",
+                "value", "codec", "bytes", "ratio", "ser(us)", "deser(us)");
+
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            long jsonBytes = serializers.get("json").serialize(value.getValue()).length;
+            for (Map.Entry<String, CacheValueSerializer> serializer : serializers.entrySet()) {
+                Result result = run(serializer.getValue(), value.getValue());
+                System.out.printf("%-12s %-12s %10d %8.2f %12.1f %12.1f%n",
+                        value.getKey(), serializer.getKey(), result.bytes, (double) result.bytes / jsonBytes,
+                        result.serializeMicros, result.deserializeMicros);
+            }
+        }
+    }
+
+    private static Result run(CacheValueSerializer serializer, Object value) {
+        byte[] bytes = serializer.serialize(value);
+        assertThat(serializer.deserialize(bytes)).isInstanceOf(value.getClass());
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            serializer.deserialize(serializer.serialize(value));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            bytes = serializer.serialize(value);
+        }
+        long serializeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.deserialize(bytes);
+        }
+        long deserializeNanos = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.bytes = bytes.length;
+        result.serializeMicros = serializeNanos / 1000.0 / ITERATIONS;
+        result.deserializeMicros = deserializeNanos / 1000.0 / ITERATIONS;
+        return result;
+    }
+
+    private static SeatAvailabilityResponse seatAvailability(int seatCount) {
+        List<SeatInfo> seats = new ArrayList<>(seatCount);
+        for (int i = 0; i < seatCount; i++) {
+            boolean premium = i >= seatCount * 3 / 5;
+            seats.add(SeatInfo.builder()
+                    .seatNo((i / 20 + 1) + String.valueOf((char) ('A' + i % 20)))
+                    .seatType(premium ? SeatType.PREMIUM : SeatType.CLASSIC)
+                    .price(premium ? 300 : 200)
+                    .status(i % 7 == 0 ? SeatStatus.BOOKED : SeatStatus.AVAILABLE)
+                    .build());
+        }
+        return SeatAvailabilityResponse.builder()
+                .showId(42)
+                .showDate(Date.valueOf(LocalDate.now()))
+                .showTime(Time.valueOf("18:30:00"))
+                .endTime(Time.valueOf("21:00:00"))
+                .eventName("Benchmark Event")
+                .theaterName("Benchmark Theater")
+                .theaterAddress("1 Benchmark Road")
+                .city("Bengaluru")
+                .totalSeats(seatCount)
+                .availableSeats(seatCount - seatCount / 7)
+                .lockedSeats(0)
+                .bookedSeats(seatCount / 7)
+                .seatVersion(System.currentTimeMillis() * 1000)
+                .seats(seats)
+                .build();
+    }
+
+    private static Show show() {
+        Venue venue = Venue.builder()
+                .id(3)
+                .name("Benchmark Venue")
+                .address("1 Benchmark Road")
+                .city("Bengaluru")
+                .description("A venue to benchmark cache codecs with")
+                .build();
+        Theater theater = Theater.builder()
+                .id(7)
+                .name("Benchmark Theater")
+                .venue(venue)
+                .build();
+        return Show.builder()
+                .showId(42)
+                .date(Date.valueOf(LocalDate.now()))
+                .time(Time.valueOf("18:30:00"))
+                .priceOfClassicSeat(200)
+                .priceOfPremiumSeat(300)
+                .theater(theater)
+                .build();
+    }
+
+    private static List<TheaterResponse> theaters(int theaterCount, int seatsPerTheater) {
+        List<TheaterResponse> theaters = new ArrayList<>(theaterCount);
+        for (int t = 0; t < theaterCount; t++) {
+            List<TheaterResponse.SeatInfo> seats = new ArrayList<>(seatsPerTheater);
+            for (int i = 0; i < seatsPerTheater; i++) {
+                seats.add(TheaterResponse.SeatInfo.builder()
+                        .id(t * seatsPerTheater + i)
+                        .seatNo((i / 10 + 1) + String.valueOf((char) ('A' + i % 10)))
+                        .seatType(i < seatsPerTheater * 3 / 5 ? "CLASSIC" : "PREMIUM")
+                        .build());
+            }
+            theaters.add(TheaterResponse.builder()
+                    .id(t)
+                    .name("Benchmark Theater " + t)
+                    .venue(TheaterResponse.VenueInfo.builder()
+                            .id(3).name("Benchmark Venue").address("1 Benchmark Road").city("Bengaluru").build())
+                    .totalSeats(seatsPerTheater)
+                    .totalClassicSeats(seatsPerTheater * 3 / 5)
+                    .totalPremiumSeats(seatsPerTheater - seatsPerTheater * 3 / 5)
+                    .totalShows(12)
+                    .seats(seats)
+                    .build());
+        }
+        return theaters;
+    }
+
+    private static class Result {
+        long bytes;
+        double serializeMicros;
+        double deserializeMicros;
+    }
+}
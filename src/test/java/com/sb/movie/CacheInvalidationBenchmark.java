@@ -0,0 +1,212 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.Event;
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.Theater;
+import com.sb.movie.entities.Venue;
+import com.sb.movie.enums.EventType;
+import com.sb.movie.enums.Language;
+import com.sb.movie.repositories.EventRepository;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.TheaterRepository;
+import com.sb.movie.repositories.VenueRepository;
+import com.sb.movie.request.EventUpdateRequest;
+import com.sb.movie.request.ShowUpdateRequest;
+import com.sb.movie.services.EventService;
+import com.sb.movie.services.ShowService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hit ratio of show and event searches under a mixed workload of searches and admin edits (a show
+ * moved to another date, or an event rating changed), with the searches cleared on every edit as
+ * before and with tag-based eviction. A search is a hit when its entry is cached beforehand.
+ *
+ * Not part of the regular build. Run with:
+ * {@code mvn test -Dtest=CacheInvalidationBenchmark -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class CacheInvalidationBenchmark extends BaseIntegrationTest {
+
+    private static final int WARMUP_READS = 1000;
+    private static final int READS = 5000;
+    private static final int DAYS = 7;
+    private static final String[] CITIES = {"Pune", "Nagpur"};
+    private static final EventType[] TYPES = {EventType.MOVIE, EventType.CONCERT, EventType.COMEDY_SHOW};
+
+    @Autowired
+    private ShowService showService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private TheaterRepository theaterRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ShowRepository showRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private final List<Integer> eventIds = new ArrayList<>();
+    private final List<Integer> theaterIds = new ArrayList<>();
+    private final List<Integer> showIds = new ArrayList<>();
+    private final List<String> cities = new ArrayList<>();
+    private int moves;
+
+    @BeforeEach
+    void setUp() {
+        String run = Long.toString(System.nanoTime());
+        for (String city : CITIES) {
+            String cityName = city + " " + run;
+            cities.add(cityName);
+            for (int v = 0; v < 2; v++) {
+                Venue venue = venueRepository.save(Venue.builder()
+                        .name("Venue " + v)
+                        .address(cityName + " street " + v)
+                        .city(cityName)
+                        .build());
+                for (int t = 0; t < 2; t++) {
+                    theaterIds.add(theaterRepository.save(Theater.builder()
+                            .name("Screen " + t)
+                            .venue(venue)
+                            .build()).getId());
+                }
+            }
+        }
+        for (int e = 0; e < 10; e++) {
+            eventIds.add(eventRepository.save(Event.builder()
+                    .name("Event " + e + " " + run)
+                    .eventType(TYPES[e % TYPES.length])
+                    .language(Language.values()[e % 3])
+                    .releaseDate(Date.valueOf(LocalDate.now()))
+                    .build()).getId());
+        }
+
+        // Every theater shows two events a day for a week
+        int slot = 0;
+        for (Integer theaterId : theaterIds) {
+            Theater theater = theaterRepository.findById(theaterId).orElseThrow();
+            for (int day = 1; day <= DAYS; day++) {
+                for (String time : new String[]{"18:00:00", "21:00:00"}) {
+                    Event event = eventRepository.findById(eventIds.get(slot++ % eventIds.size())).orElseThrow();
+                    showIds.add(showRepository.save(Show.builder()
+                            .date(date(day))
+                            .time(Time.valueOf(time))
+                            .priceOfClassicSeat(200)
+                            .priceOfPremiumSeat(300)
+                            .event(event)
+                            .theater(theater)
+                            .build()).getShowId());
+                }
+            }
+        }
+    }
+
+    @Test
+    void compareClearingAndTagsUnderMixedWorkload() {
+        System.out.printf("%-8s %-8s %8s %8s %10s%n", "edits", "evict", "reads", "hits", "hit ratio");
+
+        for (int readsPerEdit : new int[]{100, 20}) {
+            double cleared = run(readsPerEdit, false);
+            double tagged = run(readsPerEdit, true);
+            assertThat(tagged).isGreaterThanOrEqualTo(cleared);
+        }
+    }
+
+    private double run(int readsPerEdit, boolean tags) {
+        cacheManager.getCache("showSearch").clear();
+        cacheManager.getCache("eventSearch").clear();
+        Random random = new Random(42);
+
+        int hits = 0;
+        for (int i = 0; i < WARMUP_READS + READS; i++) {
+            if (i > 0 && i % readsPerEdit == 0) {
+                edit(random);
+                if (!tags) {
+                    // What allEntries = true did
+                    cacheManager.getCache("showSearch").clear();
+                    cacheManager.getCache("eventSearch").clear();
+                }
+            }
+
+            if (read(random) && i >= WARMUP_READS) {
+                hits++;
+            }
+        }
+
+        double hitRatio = (double) hits / READS;
+        System.out.printf("%-8s %-8s %8d %8d %9.1f%%%n",
+                "1/" + readsPerEdit, tags ? "tags" : "clear", READS, hits, hitRatio * 100);
+        return hitRatio;
+    }
+
+    // Whether the search was cached
+    private boolean read(Random random) {
+        Integer eventId = eventIds.get(random.nextInt(eventIds.size()));
+        Integer theaterId = theaterIds.get(random.nextInt(theaterIds.size()));
+        Date date = date(1 + random.nextInt(DAYS));
+        String city = cities.get(random.nextInt(cities.size()));
+        EventType type = TYPES[random.nextInt(TYPES.length)];
+        return switch (random.nextInt(6)) {
+            case 0 -> searchShows(eventId, null, null);
+            case 1 -> searchShows(null, theaterId, null);
+            case 2 -> searchShows(eventId, null, date);
+            case 3 -> searchEvents(city, null, null);
+            case 4 -> searchEvents(city, null, date);
+            default -> searchEvents(null, type, null);
+        };
+    }
+
+    private boolean searchShows(Integer eventId, Integer theaterId, Date date) {
+        boolean cached = cacheManager.getCache("showSearch").get(eventId + "_" + theaterId + "_" + date) != null;
+        showService.searchShows(eventId, theaterId, date);
+        return cached;
+    }
+
+    private boolean searchEvents(String city, EventType type, Date showDate) {
+        String key = "null_" + city + "_" + type + "_null_null_" + showDate + "_null";
+        boolean cached = cacheManager.getCache("eventSearch").get(key) != null;
+        eventService.searchEvents(null, city, type, null, null, showDate, null);
+        return cached;
+    }
+
+    // Mostly shows moved to another day, sometimes an event rated
+    private void edit(Random random) {
+        if (random.nextInt(4) == 0) {
+            EventUpdateRequest request = new EventUpdateRequest();
+            request.setRating(1 + random.nextInt(9) / 2.0);
+            eventService.updateEvent(eventIds.get(random.nextInt(eventIds.size())), request);
+            return;
+        }
+        // A time of its own, so the slot is always free
+        ShowUpdateRequest request = new ShowUpdateRequest();
+        request.setShowDate(date(1 + random.nextInt(DAYS)));
+        request.setShowStartTime(Time.valueOf(LocalTime.of(8, 0).plusSeconds(++moves)));
+        showService.updateShow(showIds.get(random.nextInt(showIds.size())), request);
+    }
+
+    private static Date date(int day) {
+        return Date.valueOf(LocalDate.now().plusDays(day));
+    }
+}
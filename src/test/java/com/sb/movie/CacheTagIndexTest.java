@@ -0,0 +1,69 @@
+package com.sb.movie;
+
+import com.sb.movie.services.CacheTagIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheTagIndexTest {
+
+    private StringRedisTemplate redis;
+    private Cache cache;
+    private CacheTagIndex cacheTagIndex;
+
+    @BeforeEach
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        cache = mock(Cache.class);
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache("showSearch")).thenReturn(cache);
+
+        cacheTagIndex = new CacheTagIndex(redis, cacheManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldKeepEntryThatIsStillTagged() {
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenReturn(1L);
+
+        List<String> shows = cacheTagIndex.cached("showSearch", "5_null_null", () -> List.of("show"),
+                loaded -> List.of("event:5"));
+
+        assertThat(shows).containsExactly("show");
+        verify(cache).put("5_null_null", List.of("show"));
+        verify(cache, never()).evict("5_null_null");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldEvictEntryWhoseTagWasEvictedWhileStoring() {
+        // The tag set no longer holds the key once the entry is stored
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenReturn(0L);
+
+        cacheTagIndex.cached("showSearch", "5_null_null", () -> List.of("show"), loaded -> List.of("event:5"));
+
+        verify(cache).put("5_null_null", List.of("show"));
+        verify(cache).evict("5_null_null");
+    }
+
+    @Test
+    void shouldNotStoreEmptyResult() {
+        List<String> shows = cacheTagIndex.cached("showSearch", "5_null_null", List::of, loaded -> List.of("event:5"));
+
+        assertThat(shows).isEmpty();
+        verify(cache, never()).put(any(), any());
+    }
+}
@@ -0,0 +1,70 @@
+package com.sb.movie;
+
+import com.sb.movie.config.CacheValueSerializer;
+import com.sb.movie.config.RedisConfig;
+import com.sb.movie.enums.CacheCodec;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CacheValueSerializerTest {
+
+    private final CacheValueSerializer json = new CacheValueSerializer(CacheCodec.JSON, 0, RedisConfig.objectMapper());
+    private final CacheValueSerializer smile = new CacheValueSerializer(CacheCodec.SMILE, 0, RedisConfig.objectMapper());
+    private final CacheValueSerializer compressing =
+            new CacheValueSerializer(CacheCodec.SMILE, 1024, RedisConfig.objectMapper());
+
+    @Test
+    void shouldWriteSeatMapsSmallerThanJsonAndReadThemBack() {
+        SeatAvailabilityResponse seatMap = seatMap(200);
+
+        // When
+        byte[] jsonBytes = json.serialize(seatMap);
+        byte[] smileBytes = smile.serialize(seatMap);
+        byte[] compressedBytes = compressing.serialize(seatMap);
+
+        // Then
+        assertThat(smileBytes.length).isLessThan(jsonBytes.length / 2);
+        assertThat(compressedBytes.length).isLessThan(smileBytes.length);
+        assertThat(smile.deserialize(smileBytes)).isEqualTo(seatMap);
+        assertThat(compressing.deserialize(compressedBytes)).isEqualTo(seatMap);
+
+        // Small values are left uncompressed
+        assertThat(compressing.serialize(seatMap(1))).isEqualTo(smile.serialize(seatMap(1)));
+    }
+
+    @Test
+    void shouldReadValuesWrittenWithAnotherCodec() {
+        SeatAvailabilityResponse seatMap = seatMap(50);
+
+        assertThat(smile.deserialize(json.serialize(seatMap))).isEqualTo(seatMap);
+        assertThat(json.deserialize(compressing.serialize(seatMap(200)))).isEqualTo(seatMap(200));
+        assertThat(json.deserialize(new byte[0])).isNull();
+    }
+
+    private static SeatAvailabilityResponse seatMap(int seatCount) {
+        List<SeatInfo> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            seats.add(SeatInfo.builder()
+                    .seatNo((i / 10 + 1) + String.valueOf((char) ('A' + i % 10)))
+                    .seatType(i < seatCount / 2 ? SeatType.CLASSIC : SeatType.PREMIUM)
+                    .price(i < seatCount / 2 ? 200 : 300)
+                    .status(SeatStatus.AVAILABLE)
+                    .build());
+        }
+        return SeatAvailabilityResponse.builder()
+                .showId(1)
+                .eventName("Codec Test")
+                .totalSeats(seatCount)
+                .availableSeats(seatCount)
+                .seats(seats)
+                .build();
+    }
+}
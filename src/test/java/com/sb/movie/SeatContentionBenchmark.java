@@ -0,0 +1,245 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.services.BookingTransactionExecutor;
+import com.sb.movie.services.SeatLockingService;
+import com.sb.movie.services.SeatMailbox;
+import com.sb.movie.services.SeatStateEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput and tail latency of a lock + book cycle per seat lock mode, for a popular show
+ * (every client fights over a handful of seats) and an unpopular one (seats rarely collide),
+ * and of the MAILBOX single writer against row locks at 1, 8 and 64 clients on one show.
+ *
+ * Not part of the regular build. Run with:
+ * {@code mvn test -Dtest=SeatContentionBenchmark -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class SeatContentionBenchmark extends BaseIntegrationTest {
+
+    private static final int THREADS = 32;
+    private static final int OPERATIONS = 4000;
+    private static final int POPULAR_SEATS = 16;
+    private static final int UNPOPULAR_SEATS = 2000;
+
+    private static final AtomicInteger USER_IDS = new AtomicInteger(1_000_000);
+
+    @Autowired
+    private SeatLockingService seatLockingService;
+
+    @Autowired
+    private BookingTransactionExecutor bookingTransactionExecutor;
+
+    @Autowired
+    private SeatStateEngine seatStateEngine;
+
+    @Autowired
+    private SeatMailbox seatMailbox;
+
+    @Autowired
+    private ShowRepository showRepository;
+
+    @Autowired
+    private ShowSeatRepository showSeatRepository;
+
+    @Test
+    void comparePessimisticAndOptimisticUnderContention() throws Exception {
+        List<SeatLockMode> modes = Arrays.asList(SeatLockMode.PESSIMISTIC, SeatLockMode.OPTIMISTIC);
+
+        System.out.printf("%-16s %-10s %10s %9s %9s %8s %9s%n",
+                "mode", "show", "ops/s", "p50(ms)", "p99(ms)", "booked", "rejected");
+
+        for (SeatLockMode mode : modes) {
+            for (int seatCount : new int[]{POPULAR_SEATS, UNPOPULAR_SEATS}) {
+                Result result = run(mode, seatCount, THREADS);
+                System.out.printf("%-16s %-10s %10.0f %9.2f %9.2f %8d %9d%n",
+                        mode, seatCount == POPULAR_SEATS ? "popular" : "unpopular",
+                        result.throughput, result.p50Ms, result.p99Ms, result.booked, result.rejected);
+
+                assertThat(result.booked).isPositive();
+            }
+        }
+    }
+
+    @Test
+    void compareMailboxWithRowLocksByClientsPerShow() throws Exception {
+        List<SeatLockMode> modes = Arrays.asList(SeatLockMode.PESSIMISTIC, SeatLockMode.MAILBOX);
+
+        System.out.printf("%-16s %8s %10s %9s %9s %8s %9s%n",
+                "mode", "clients", "ops/s", "p50(ms)", "p99(ms)", "booked", "rejected");
+
+        for (SeatLockMode mode : modes) {
+            for (int clients : new int[]{1, 8, 64}) {
+                Result result = run(mode, UNPOPULAR_SEATS, clients);
+                System.out.printf("%-16s %8d %10.0f %9.2f %9.2f %8d %9d%n",
+                        mode, clients, result.throughput, result.p50Ms, result.p99Ms, result.booked, result.rejected);
+
+                assertThat(result.booked).isPositive();
+            }
+        }
+    }
+
+    private Result run(SeatLockMode mode, int seatCount, int clients) throws Exception {
+        switchMode(mode);
+        Integer showId = createShow(seatCount);
+        List<Integer> seatIds = showSeatRepository.findByShowId(showId).stream()
+                .map(ShowSeat::getId)
+                .collect(Collectors.toList());
+
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger booked = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long[] latencies = new long[OPERATIONS];
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = i;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                List<Integer> wanted = pickTwo(seatIds);
+                Integer userId = USER_IDS.incrementAndGet();
+
+                long start = System.nanoTime();
+                if (lockAndBook(mode, showId, wanted, userId)) {
+                    booked.incrementAndGet();
+                    latencies[op] = System.nanoTime() - start;
+                    // Give the seats back so the pool never runs dry
+                    cancel(mode, showId, wanted);
+                } else {
+                    rejected.incrementAndGet();
+                    latencies[op] = System.nanoTime() - start;
+                }
+                return null;
+            }));
+        }
+
+        long started = System.nanoTime();
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+
+        // Every cycle returned its seats, so nothing may be left LOCKED or BOOKED
+        assertThat(showSeatRepository.countAvailableSeatsByShowId(showId)).isEqualTo(seatCount);
+
+        Arrays.sort(latencies);
+        Result result = new Result();
+        result.throughput = OPERATIONS / (elapsed / 1_000_000_000.0);
+        result.p50Ms = latencies[OPERATIONS / 2] / 1_000_000.0;
+        result.p99Ms = latencies[(int) (OPERATIONS * 0.99)] / 1_000_000.0;
+        result.booked = booked.get();
+        result.rejected = rejected.get();
+        return result;
+    }
+
+    private boolean lockAndBook(SeatLockMode mode, Integer showId, List<Integer> seatIds, Integer userId) {
+        if (mode == SeatLockMode.MAILBOX) {
+            return lockAndBookThroughMailbox(showId, seatIds, userId);
+        }
+        try {
+            bookingTransactionExecutor.execute(() -> seatLockingService.lockSeats(showId, seatIds, userId));
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        try {
+            bookingTransactionExecutor.execute(() -> seatLockingService.confirmBooking(showId, seatIds, userId));
+            return true;
+        } catch (RuntimeException e) {
+            bookingTransactionExecutor.run(() -> seatLockingService.releaseSeats(showId, seatIds, userId));
+            return false;
+        }
+    }
+
+    // Awaited outside of any transaction, as TicketServiceImpl does
+    private boolean lockAndBookThroughMailbox(Integer showId, List<Integer> seatIds, Integer userId) {
+        try {
+            seatMailbox.await(seatMailbox.lock(showId, seatIds, userId));
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        try {
+            seatMailbox.await(seatMailbox.confirm(showId, seatIds, userId));
+            return true;
+        } catch (RuntimeException e) {
+            seatMailbox.await(seatMailbox.release(showId, seatIds, userId));
+            return false;
+        }
+    }
+
+    private void cancel(SeatLockMode mode, Integer showId, List<Integer> seatIds) {
+        if (mode == SeatLockMode.MAILBOX) {
+            seatMailbox.await(seatMailbox.cancel(showId, seatIds));
+        } else {
+            bookingTransactionExecutor.run(() -> seatLockingService.cancelBooking(showId, seatIds));
+        }
+    }
+
+    private void switchMode(SeatLockMode mode) {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(seatLockingService), "mode", mode);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(bookingTransactionExecutor), "mode", mode);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(seatStateEngine), "mode", mode);
+    }
+
+    private Integer createShow(int seatCount) {
+        Show show = showRepository.save(Show.builder()
+                .date(Date.valueOf(LocalDate.now().plusDays(30)))
+                .time(Time.valueOf("18:00:00"))
+                .build());
+
+        List<ShowSeat> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            ShowSeat seat = new ShowSeat();
+            seat.setSeatNo((i / 10 + 1) + String.valueOf((char) ('A' + i % 10)));
+            seat.setSeatType(SeatType.CLASSIC);
+            seat.setPrice(200);
+            seat.setStatus(SeatStatus.AVAILABLE);
+            seat.setShow(show);
+            seats.add(seat);
+        }
+        showSeatRepository.saveAll(seats);
+        return show.getShowId();
+    }
+
+    private List<Integer> pickTwo(List<Integer> seatIds) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(seatIds.size());
+        int second = (first + 1 + random.nextInt(seatIds.size() - 1)) % seatIds.size();
+        return Arrays.asList(seatIds.get(first), seatIds.get(second));
+    }
+
+    private static class Result {
+        double throughput;
+        double p50Ms;
+        double p99Ms;
+        int booked;
+        int rejected;
+    }
+}
@@ -0,0 +1,130 @@
+package com.sb.movie;
+
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.services.SeatHoldReaper;
+import com.sb.movie.services.SeatLockingService;
+import com.sb.movie.services.SeatMailbox;
+import com.sb.movie.services.SeatSummaryCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatHoldReaperTest {
+
+    private StringRedisTemplate redis;
+    private ZSetOperations<String, String> expiries;
+    private SeatLockingService seatLockingService;
+    private SeatMailbox seatMailbox;
+    private Cache seatSummaries;
+    private SeatHoldReaper reaper;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redis = mock(StringRedisTemplate.class);
+        expiries = mock(ZSetOperations.class);
+        when(redis.opsForZSet()).thenReturn(expiries);
+        seatLockingService = mock(SeatLockingService.class);
+        seatMailbox = mock(SeatMailbox.class);
+        seatSummaries = mock(Cache.class);
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(SeatSummaryCache.CACHE_NAME)).thenReturn(seatSummaries);
+
+        reaper = new SeatHoldReaper(redis, seatLockingService, seatMailbox, cacheManager);
+    }
+
+    @Test
+    void shouldScheduleDeadlineAfterSubMillisecondExpiry() {
+        // A hold locked at .123456789 is only expired once the clock is past it
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 1, 1, 18, 10, 0, 123_456_789);
+        long expiryMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        reaper.schedule(7, expiresAt);
+
+        verify(expiries).add("seat-hold:expiry", "7:" + (expiryMillis + 1), expiryMillis + 1);
+    }
+
+    @Test
+    void shouldScheduleDeadlineAfterWholeMillisecondExpiry() {
+        LocalDateTime expiresAt = LocalDateTime.of(2030, 1, 1, 18, 10, 0, 123_000_000);
+        long expiryMillis = expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        reaper.schedule(7, expiresAt);
+
+        verify(expiries).add(eq("seat-hold:expiry"), anyString(), eq((double) expiryMillis + 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReleaseEachDueShowOnce() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(), any()))
+                .thenReturn(List.of("7:1000", "7:1001", "8:1002"));
+
+        reaper.reap();
+
+        verify(seatLockingService, times(1)).releaseExpiredLocks(7);
+        verify(seatLockingService, times(1)).releaseExpiredLocks(8);
+        verify(seatSummaries).evict(7);
+        verify(seatSummaries).evict(8);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRetryShowWhoseReleaseFailed() {
+        when(redis.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(List.of("7:1000"));
+        when(seatLockingService.releaseExpiredLocks(7)).thenThrow(new IllegalStateException("database down"));
+
+        reaper.reap();
+
+        verify(expiries).add(eq("seat-hold:expiry"), startsWith("7:"), anyDouble());
+        verify(seatSummaries, never()).evict(7);
+    }
+
+    @Test
+    void shouldSweepShowsWithExpiredHolds() {
+        when(seatLockingService.findShowsWithExpiredLocks()).thenReturn(List.of(3, 4));
+
+        reaper.sweep();
+
+        verify(seatLockingService).releaseExpiredLocks(3);
+        verify(seatLockingService).releaseExpiredLocks(4);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldReleaseMailboxHoldsThroughShowWriter() {
+        LocalDateTime expiryTime = LocalDateTime.now().minusMinutes(10);
+        CompletableFuture<List<Integer>> released = CompletableFuture.completedFuture(List.of(1, 2));
+        when(seatLockingService.getMode()).thenReturn(SeatLockMode.MAILBOX);
+        when(seatLockingService.lockExpiryTime()).thenReturn(expiryTime);
+        when(seatMailbox.releaseExpired(7, expiryTime)).thenReturn(released);
+        when(redis.execute(any(RedisScript.class), anyList(), any(), any())).thenReturn(List.of("7:1000"));
+
+        reaper.reap();
+
+        verify(seatMailbox).await(released);
+        verify(seatLockingService, never()).releaseExpiredLocks(7);
+        verify(seatSummaries).evict(7);
+    }
+}
@@ -0,0 +1,485 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import com.sb.movie.exceptions.ShowDoesNotExists;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.services.BookingTransactionExecutor;
+import com.sb.movie.services.RedisSeatHoldService;
+import com.sb.movie.services.SeatChangeLog;
+import com.sb.movie.services.SeatDirectory;
+import com.sb.movie.services.SeatDirectoryService;
+import com.sb.movie.services.SeatLockingService;
+import com.sb.movie.services.SeatMailbox;
+import com.sb.movie.services.SeatMapCache;
+import com.sb.movie.services.SeatStateEngine;
+import com.sb.movie.services.TicketService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Seat holds and bookings in the REDIS, COMPARE_AND_SET, OPTIMISTIC and MAILBOX seat lock modes,
+ * seat resolution through the seat directory, and seat changes reaching the seat map. Each test
+ * switches the mode on a show of its own and commits.
+ */
+class SeatLockModeIntegrationTest extends BaseIntegrationTest {
+
+    private static final AtomicInteger USER_IDS = new AtomicInteger(2_000_000);
+
+    @Autowired
+    private SeatLockingService seatLockingService;
+
+    @Autowired
+    private BookingTransactionExecutor bookingTransactionExecutor;
+
+    @Autowired
+    private SeatStateEngine seatStateEngine;
+
+    @Autowired
+    private RedisSeatHoldService redisSeatHoldService;
+
+    @Autowired
+    private SeatMailbox seatMailbox;
+
+    @Autowired
+    private SeatDirectoryService seatDirectoryService;
+
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private ShowRepository showRepository;
+
+    @Autowired
+    private ShowSeatRepository showSeatRepository;
+
+    @Autowired
+    private SeatChangeLog seatChangeLog;
+
+    @Autowired
+    private SeatMapCache seatMapCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private SeatLockMode originalMode;
+    private Date showDate;
+    private Integer showId;
+    private List<Integer> seatIds;
+
+    @BeforeEach
+    void setUp() {
+        originalMode = seatLockingService.getMode();
+        showDate = Date.valueOf(LocalDate.now().plusDays(30));
+        showId = createShow(20);
+        seatIds = showSeatRepository.findByShowId(showId).stream()
+                .map(ShowSeat::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @AfterEach
+    void tearDown() {
+        switchMode(originalMode);
+    }
+
+    @Test
+    void shouldHoldAllSeatsOrNoneInRedis() {
+        switchMode(SeatLockMode.REDIS);
+        Integer firstUser = USER_IDS.incrementAndGet();
+        Integer secondUser = USER_IDS.incrementAndGet();
+
+        seatLockingService.lockSeats(showId, seats(0, 1), firstUser);
+
+        // When - the second user wants one held seat and one free seat
+        assertThatThrownBy(() -> seatLockingService.lockSeats(showId, seats(1, 2), secondUser))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1B")
+                .hasMessageContaining("LOCKED");
+
+        // Then - the free seat was not taken either
+        Map<Integer, String> holders = redisSeatHoldService.holders(showId, seats(0, 1, 2));
+        assertThat(holders).containsOnlyKeys(seats(0, 1));
+        assertThat(holders.values()).containsOnly(firstUser.toString());
+    }
+
+    @Test
+    void shouldBookOnlyEveryHeldSeatTogetherInRedis() {
+        switchMode(SeatLockMode.REDIS);
+        Integer userId = USER_IDS.incrementAndGet();
+        seatLockingService.lockSeats(showId, seats(0, 1), userId);
+
+        // Part of the hold
+        assertThatThrownBy(() -> seatLockingService.confirmBooking(showId, seats(0), userId))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("You have 2 seats locked");
+        // A seat that is not held
+        assertThatThrownBy(() -> seatLockingService.confirmBooking(showId, seats(0, 2), userId))
+                .isInstanceOf(SeatsNotAvailable.class)
+                .hasMessageContaining("1C (not locked)");
+
+        // When
+        seatLockingService.confirmBooking(showId, seats(0, 1), userId);
+
+        // Then - booked in SHOW_SEATS, and marked booked in Redis until the end of the show's day
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(1), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(2), SeatStatus.AVAILABLE);
+        assertThat(redisSeatHoldService.holders(showId, seats(0, 1)).values())
+                .containsOnly(RedisSeatHoldService.BOOKED_MARKER);
+
+        long endOfShowDay = showDate.toLocalDate().plusDays(1)
+                .atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Long ttl = stringRedisTemplate.getExpire(seatKey(seatIds.get(0)), TimeUnit.MILLISECONDS);
+        assertThat(ttl).isPositive();
+        assertThat(System.currentTimeMillis() + ttl).isLessThanOrEqualTo(endOfShowDay);
+
+        // A booked seat cannot be held again
+        assertThatThrownBy(() -> seatLockingService.lockSeats(showId, seats(0), USER_IDS.incrementAndGet()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("BOOKED");
+    }
+
+    @Test
+    void shouldNotHoldSeatBookedInDatabaseInRedis() {
+        // Booked in another mode, so Redis has no marker for it
+        ShowSeat booked = showSeatRepository.findByIds(showDate, seats(1)).get(0);
+        booked.setStatus(SeatStatus.BOOKED);
+        showSeatRepository.save(booked);
+        switchMode(SeatLockMode.REDIS);
+
+        assertThatThrownBy(() -> seatLockingService.lockSeats(showId, seats(0, 1), USER_IDS.incrementAndGet()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1B")
+                .hasMessageContaining("BOOKED");
+
+        // Then - no seat was held
+        assertThat(redisSeatHoldService.holders(showId, seats(0, 1))).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreReleasedHoldsWhenVerifyingInRedis() {
+        switchMode(SeatLockMode.REDIS);
+        Integer userId = USER_IDS.incrementAndGet();
+        seatLockingService.lockSeats(showId, seats(0, 1), userId);
+        seatLockingService.releaseSeats(showId, seats(1), userId);
+
+        seatLockingService.confirmBooking(showId, seats(0), userId);
+
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(1), SeatStatus.AVAILABLE);
+    }
+
+    @Test
+    void shouldReleaseOnlyOwnHoldsInRedis() {
+        switchMode(SeatLockMode.REDIS);
+        Integer firstUser = USER_IDS.incrementAndGet();
+        Integer secondUser = USER_IDS.incrementAndGet();
+        seatLockingService.lockSeats(showId, seats(0), firstUser);
+
+        assertThatThrownBy(() -> seatLockingService.releaseSeats(showId, seats(0), secondUser))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("locked by another user");
+
+        // When
+        seatLockingService.releaseSeats(showId, seats(0), firstUser);
+
+        // Then - free for the next user
+        assertThat(redisSeatHoldService.holders(showId, seats(0))).isEmpty();
+        seatLockingService.lockSeats(showId, seats(0), secondUser);
+        assertThat(redisSeatHoldService.holders(showId, seats(0))).containsEntry(seatIds.get(0), secondUser.toString());
+    }
+
+    @Test
+    void shouldLockReleaseAndBookByCompareAndSet() {
+        switchMode(SeatLockMode.COMPARE_AND_SET);
+        Integer firstUser = USER_IDS.incrementAndGet();
+        Integer secondUser = USER_IDS.incrementAndGet();
+
+        seatLockingService.lockSeats(showId, seats(0, 1), firstUser);
+        assertThatThrownBy(() -> seatLockingService.lockSeats(showId, seats(1, 2), secondUser))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> seatLockingService.releaseSeats(showId, seats(0), secondUser))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("locked by another user");
+        assertThat(statuses()).containsEntry(seatIds.get(2), SeatStatus.AVAILABLE);
+
+        // When
+        seatLockingService.confirmBooking(showId, seats(0, 1), firstUser);
+
+        // Then
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(1), SeatStatus.BOOKED);
+        assertThatThrownBy(() -> seatLockingService.releaseSeats(showId, seats(0), firstUser))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already BOOKED");
+    }
+
+    @Test
+    void shouldLetOneOfConcurrentOptimisticHoldsWin() throws Exception {
+        switchMode(SeatLockMode.OPTIMISTIC);
+        int threads = 8;
+        CyclicBarrier start = new CyclicBarrier(threads);
+        AtomicInteger attempts = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        // When - every user wants the same seat at once
+        List<Future<Integer>> holds = new ArrayList<>();
+        try {
+            for (int i = 0; i < threads; i++) {
+                Integer userId = USER_IDS.incrementAndGet();
+                holds.add(executor.submit(() -> {
+                    start.await();
+                    bookingTransactionExecutor.execute(() -> {
+                        attempts.incrementAndGet();
+                        return seatLockingService.lockSeats(showId, seats(0), userId);
+                    });
+                    return userId;
+                }));
+            }
+
+            // Then - one user holds the seat; the others lost on the retry or ran out of attempts
+            List<Integer> winners = new ArrayList<>();
+            for (Future<Integer> hold : holds) {
+                try {
+                    winners.add(hold.get(30, TimeUnit.SECONDS));
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOfAny(IllegalStateException.class, SeatsNotAvailable.class);
+                }
+            }
+            assertThat(winners).hasSize(1);
+            assertThat(attempts.get()).isGreaterThanOrEqualTo(threads);
+            ShowSeat seat = showSeatRepository.findByIds(showDate, seats(0)).get(0);
+            assertThat(seat.getStatus()).isEqualTo(SeatStatus.LOCKED);
+            assertThat(seat.getLockedByUserId()).isEqualTo(winners.get(0));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldGiveUpOptimisticRetriesAfterMaxAttempts() {
+        switchMode(SeatLockMode.OPTIMISTIC);
+        Object executor = AopTestUtils.getTargetObject(bookingTransactionExecutor);
+        Object maxAttempts = ReflectionTestUtils.getField(executor, "maxAttempts");
+        ReflectionTestUtils.setField(executor, "maxAttempts", 3);
+        TransactionTemplate concurrent = new TransactionTemplate(transactionManager);
+        concurrent.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            // When - another booking changes the seat after every attempt read it
+            assertThatThrownBy(() -> bookingTransactionExecutor.execute(() -> {
+                attempts.incrementAndGet();
+                ShowSeat seat = showSeatRepository.findByIds(showDate, seats(0)).get(0);
+                concurrent.executeWithoutResult(other -> {
+                    ShowSeat changed = showSeatRepository.findByIds(showDate, seats(0)).get(0);
+                    changed.setPrice(changed.getPrice() + 1);
+                    showSeatRepository.save(changed);
+                });
+                seat.setStatus(SeatStatus.LOCKED);
+                return showSeatRepository.saveAndFlush(seat);
+            }))
+                    // Then
+                    .isInstanceOf(SeatsNotAvailable.class)
+                    .hasMessageContaining("being booked by other users");
+            assertThat(attempts.get()).isEqualTo(3);
+            assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.AVAILABLE);
+        } finally {
+            ReflectionTestUtils.setField(executor, "maxAttempts", maxAttempts);
+        }
+    }
+
+    @Test
+    void shouldLockReleaseBookAndCancelThroughMailbox() {
+        switchMode(SeatLockMode.MAILBOX);
+        Integer firstUser = USER_IDS.incrementAndGet();
+        Integer secondUser = USER_IDS.incrementAndGet();
+
+        seatMailbox.await(seatMailbox.lock(showId, seats(0, 1), firstUser));
+        assertThatThrownBy(() -> seatMailbox.await(seatMailbox.lock(showId, seats(1, 2), secondUser)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("1B")
+                .hasMessageContaining("LOCKED");
+
+        // Committed before the command completed, and the free seat was not taken
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.LOCKED)
+                .containsEntry(seatIds.get(1), SeatStatus.LOCKED)
+                .containsEntry(seatIds.get(2), SeatStatus.AVAILABLE);
+
+        // When
+        seatMailbox.await(seatMailbox.release(showId, seats(1), firstUser));
+        seatMailbox.await(seatMailbox.confirm(showId, seats(0), firstUser));
+
+        // Then
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(1), SeatStatus.AVAILABLE);
+        assertThat(seatLockingService.availableSeatIds(showId)).doesNotContain(seatIds.get(0)).contains(seatIds.get(1));
+
+        seatMailbox.await(seatMailbox.cancel(showId, seats(0)));
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.AVAILABLE);
+    }
+
+    @Test
+    void shouldRestoreHoldWhenMailboxBookingRollsBack() {
+        switchMode(SeatLockMode.MAILBOX);
+        Integer userId = USER_IDS.incrementAndGet();
+        seatMailbox.await(seatMailbox.lock(showId, seats(0, 1), userId));
+
+        // When - the ticket transaction fails after the show's writer booked the seats
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> {
+            seatLockingService.confirmBooking(showId, seats(0, 1), userId);
+            transaction.setRollbackOnly();
+        });
+
+        // Then - commands of a show run in order, so the hold is back once a later command completed
+        seatMailbox.await(seatMailbox.lock(showId, seats(2), USER_IDS.incrementAndGet()));
+        List<ShowSeat> held = showSeatRepository.findByShowId(showId).stream()
+                .filter(seat -> seats(0, 1).contains(seat.getId()))
+                .collect(Collectors.toList());
+        assertThat(held).allSatisfy(seat -> {
+            assertThat(seat.getStatus()).isEqualTo(SeatStatus.LOCKED);
+            assertThat(seat.getLockedByUserId()).isEqualTo(userId);
+        });
+
+        // Nobody else can take the seats, and the user can book them again
+        assertThatThrownBy(() -> seatMailbox.await(seatMailbox.lock(showId, seats(0), USER_IDS.incrementAndGet())))
+                .isInstanceOf(IllegalStateException.class);
+        seatMailbox.await(seatMailbox.confirm(showId, seats(0, 1), userId));
+        assertThat(statuses()).containsEntry(seatIds.get(0), SeatStatus.BOOKED)
+                .containsEntry(seatIds.get(1), SeatStatus.BOOKED);
+    }
+
+    @Test
+    void shouldResolveSeatsThroughDirectory() {
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+
+        assertThat(directory.getShowDate()).isEqualTo(showDate);
+        assertThat(directory.size()).isEqualTo(20);
+        assertThat(directory.seatIds(List.of("1A", "2C"))).containsExactly(seatIds.get(0), seatIds.get(12));
+        assertThat(directory.seatNo(seatIds.get(19))).isEqualTo("2J");
+        assertThat(directory.totalPrice(seats(0, 1, 2))).isEqualTo(600);
+    }
+
+    @Test
+    void shouldRejectSeatsOfUnknownShow() {
+        assertThatThrownBy(() -> seatDirectoryService.directory(Integer.MAX_VALUE))
+                .isInstanceOf(ShowDoesNotExists.class);
+        assertThatThrownBy(() -> ticketService.getTicketForSeat(Integer.MAX_VALUE, "1A"))
+                .isInstanceOf(ShowDoesNotExists.class);
+    }
+
+    @Test
+    void shouldReloadSeatMapInsteadOfApplyingPatchesOutOfOrder() {
+        Integer seatId = seatIds.get(0);
+        assertThat(seatMapCache.seatMap(showId).statusOf(seatId)).isEqualTo(SeatStatus.AVAILABLE);
+        TransactionTemplate earlier = new TransactionTemplate(transactionManager);
+        TransactionTemplate later = new TransactionTemplate(transactionManager);
+        later.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        // When - a hold that committed first is only recorded after the release that followed it
+        earlier.executeWithoutResult(first -> {
+            seatChangeLog.recordAfterCompletion(showId, List.of(seatId), id -> SeatStatus.LOCKED);
+            later.executeWithoutResult(second ->
+                    seatChangeLog.recordAfterCompletion(showId, List.of(seatId), id -> SeatStatus.AVAILABLE));
+        });
+
+        // Then - the stale hold is not patched in; the seat map is loaded from the seats again
+        assertThat(stringRedisTemplate.hasKey("seat-map:{" + showId + "}")).isFalse();
+        assertThat(seatMapCache.seatMap(showId).statusOf(seatId)).isEqualTo(SeatStatus.AVAILABLE);
+    }
+
+    @Test
+    void shouldNotRecordRolledBackSeatChanges() {
+        seatMapCache.seatMap(showId);
+        Long version = seatChangeLog.version(showId);
+
+        // When
+        new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> {
+            seatChangeLog.recordAfterCompletion(showId, seats(0), id -> SeatStatus.LOCKED);
+            transaction.setRollbackOnly();
+        });
+
+        // Then
+        assertThat(seatChangeLog.version(showId)).isEqualTo(version);
+        assertThat(seatMapCache.seatMap(showId).statusOf(seatIds.get(0))).isEqualTo(SeatStatus.AVAILABLE);
+    }
+
+    private Map<Integer, SeatStatus> statuses() {
+        return showSeatRepository.findByShowId(showId).stream()
+                .collect(Collectors.toMap(ShowSeat::getId, ShowSeat::getStatus));
+    }
+
+    private List<Integer> seats(int... indexes) {
+        List<Integer> seats = new ArrayList<>();
+        for (int index : indexes) {
+            seats.add(seatIds.get(index));
+        }
+        return seats;
+    }
+
+    private String seatKey(Integer seatId) {
+        return "seat-hold:{" + showId + "}:" + seatId;
+    }
+
+    private void switchMode(SeatLockMode mode) {
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(seatLockingService), "mode", mode);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(bookingTransactionExecutor), "mode", mode);
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(seatStateEngine), "mode", mode);
+    }
+
+    private Integer createShow(int seatCount) {
+        Show show = showRepository.save(Show.builder()
+                .date(showDate)
+                .time(Time.valueOf("18:00:00"))
+                .build());
+
+        List<ShowSeat> seats = new ArrayList<>();
+        for (int i = 0; i < seatCount; i++) {
+            ShowSeat seat = new ShowSeat();
+            seat.setSeatNo((i / 10 + 1) + String.valueOf((char) ('A' + i % 10)));
+            seat.setSeatType(SeatType.CLASSIC);
+            seat.setPrice(200);
+            seat.setStatus(SeatStatus.AVAILABLE);
+            seat.setShow(show);
+            seats.add(seat);
+        }
+        showSeatRepository.saveAll(seats);
+        return show.getShowId();
+    }
+}
@@ -0,0 +1,107 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.exceptions.SeatsNotAvailable;
+import com.sb.movie.services.SeatChangeLog;
+import com.sb.movie.services.SeatHold;
+import com.sb.movie.services.SeatMailbox;
+import com.sb.movie.services.SeatStateEngine;
+import com.sb.movie.services.ShowSeatState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatMailboxTest {
+
+    private SeatStateEngine seatStateEngine;
+    private SeatChangeLog seatChangeLog;
+    private PlatformTransactionManager transactionManager;
+    private SeatMailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        seatStateEngine = mock(SeatStateEngine.class);
+        seatChangeLog = mock(SeatChangeLog.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+
+        mailbox = new SeatMailbox(seatStateEngine, seatChangeLog, transactionManager);
+        ReflectionTestUtils.setField(mailbox, "partitionCount", 1);
+        ReflectionTestUtils.setField(mailbox, "batchSize", 16);
+        ReflectionTestUtils.setField(mailbox, "callbackThreads", 1);
+        ReflectionTestUtils.setField(mailbox, "awaitTimeoutMs", 200L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailbox.shutdown();
+    }
+
+    @Test
+    void shouldFailCommandWhenShowCannotBeReloadedAfterFailedCommit() throws Exception {
+        when(seatStateEngine.state(anyInt()))
+                .thenReturn(new ShowSeatState(1, seats(3)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+                .thenThrow(new CannotCreateTransactionException("database down"));
+
+        // When
+        CompletableFuture<SeatHold> hold = mailbox.lock(1, List.of(1, 2), 7);
+
+        // Then - the caller gets the commit failure instead of waiting forever
+        assertThatThrownBy(() -> hold.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(CannotCreateTransactionException.class);
+        verify(seatStateEngine).reload(1);
+        verify(seatChangeLog).reset(1);
+    }
+
+    @Test
+    void shouldGiveUpWaitingForCommandAfterTimeout() {
+        assertThatThrownBy(() -> mailbox.await(new CompletableFuture<>()))
+                .isInstanceOf(SeatsNotAvailable.class)
+                .hasMessageContaining("did not complete in time");
+    }
+
+    @Test
+    void shouldUnwrapFailureOfCommand() {
+        assertThatThrownBy(() -> mailbox.await(CompletableFuture.failedFuture(new IllegalStateException("Seat 1A is taken"))))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Seat 1A is taken");
+        assertThat(mailbox.await(CompletableFuture.completedFuture(3))).isEqualTo(3);
+    }
+
+    private static List<ShowSeat> seats(int count) {
+        List<ShowSeat> seats = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ShowSeat seat = new ShowSeat();
+            seat.setId(i);
+            seat.setSeatNo("1" + (char) ('A' + i - 1));
+            seat.setSeatType(SeatType.CLASSIC);
+            seat.setPrice(200);
+            seat.setStatus(SeatStatus.AVAILABLE);
+            seats.add(seat);
+        }
+        return seats;
+    }
+}
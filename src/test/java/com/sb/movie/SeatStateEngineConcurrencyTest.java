@@ -0,0 +1,128 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.services.ShowSeatState;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeatStateEngineConcurrencyTest {
+
+    private static final int SEAT_COUNT = 200;
+    private static final int REQUESTS = 5000;
+
+    @Test
+    void shouldNeverDoubleBookUnderThousandsOfParallelRequests() throws Exception {
+        ShowSeatState state = new ShowSeatState(1, seats(SEAT_COUNT));
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch startLatch = new CountDownLatch(1);
+
+        ConcurrentHashMap<Integer, Integer> bookedBy = new ConcurrentHashMap<>();
+        AtomicInteger doubleBookings = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - 5000 users race for random 1-4 seat groups; every fifth winner releases instead of booking
+        for (int i = 0; i < REQUESTS; i++) {
+            int userId = i + 1;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                List<Integer> wanted = randomSeatIds(1 + ThreadLocalRandom.current().nextInt(4));
+
+                try {
+                    state.lock(wanted, userId, LocalDateTime.now());
+                } catch (IllegalStateException e) {
+                    return null; // Lost the race
+                }
+
+                if (userId % 5 == 0) {
+                    state.release(wanted, userId);
+                    return null;
+                }
+
+                state.confirm(wanted, userId);
+                for (Integer seatId : wanted) {
+                    if (bookedBy.putIfAbsent(seatId, userId) != null) {
+                        doubleBookings.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then - no seat was confirmed twice and the bitsets agree with what was booked
+        assertThat(doubleBookings.get()).isZero();
+        assertThat(bookedBy).isNotEmpty();
+        assertThat(state.count(SeatStatus.BOOKED)).isEqualTo(bookedBy.size());
+        assertThat(state.count(SeatStatus.LOCKED)).isZero();
+        assertThat(state.count(SeatStatus.AVAILABLE)).isEqualTo(SEAT_COUNT - bookedBy.size());
+    }
+
+    @Test
+    void shouldGrantSameSeatsToExactlyOneUser() throws Exception {
+        ShowSeatState state = new ShowSeatState(1, seats(SEAT_COUNT));
+        ExecutorService executor = Executors.newFixedThreadPool(64);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        AtomicInteger successCount = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 2000; i++) {
+            int userId = i + 1;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                try {
+                    state.lock(List.of(7, 8), userId, LocalDateTime.now());
+                    successCount.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    // Expected for every user but one
+                }
+                return null;
+            }));
+        }
+
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(successCount.get()).isEqualTo(1);
+        assertThat(state.count(SeatStatus.LOCKED)).isEqualTo(2);
+    }
+
+    private static List<Integer> randomSeatIds(int count) {
+        return ThreadLocalRandom.current().ints(1, SEAT_COUNT + 1)
+                .distinct()
+                .limit(count)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+
+    private static List<ShowSeat> seats(int count) {
+        List<ShowSeat> seats = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ShowSeat seat = new ShowSeat();
+            seat.setId(i);
+            seat.setSeatNo(((i - 1) / 10 + 1) + String.valueOf((char) ('A' + (i - 1) % 10)));
+            seat.setSeatType(i <= count / 2 ? SeatType.CLASSIC : SeatType.PREMIUM);
+            seat.setPrice(i <= count / 2 ? 200 : 300);
+            seat.setStatus(SeatStatus.AVAILABLE);
+            seats.add(seat);
+        }
+        return seats;
+    }
+}
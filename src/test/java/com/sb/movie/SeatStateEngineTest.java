@@ -0,0 +1,194 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.enums.SeatLockMode;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.services.SeatDirectory;
+import com.sb.movie.services.SeatDirectoryService;
+import com.sb.movie.services.SeatStateEngine;
+import com.sb.movie.services.ShowSeatMaterializer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeatStateEngineTest {
+
+    private static final Date SHOW_DATE = Date.valueOf(LocalDate.now().plusDays(1));
+
+    private ShowSeatRepository showSeatRepository;
+    private ShowRepository showRepository;
+    private JdbcTemplate jdbcTemplate;
+    private SeatDirectoryService seatDirectoryService;
+    private ShowSeatMaterializer showSeatMaterializer;
+    private SeatStateEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        showSeatRepository = mock(ShowSeatRepository.class);
+        showRepository = mock(ShowRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        seatDirectoryService = mock(SeatDirectoryService.class);
+        showSeatMaterializer = mock(ShowSeatMaterializer.class);
+
+        when(seatDirectoryService.directory(anyInt())).thenAnswer(invocation ->
+                new SeatDirectory(invocation.getArgument(0), SHOW_DATE, List.of(), false));
+        when(showSeatRepository.findByShowId(anyInt(), eq(SHOW_DATE))).thenAnswer(invocation -> seats(10));
+
+        engine = new SeatStateEngine(showSeatRepository, showRepository, jdbcTemplate,
+                seatDirectoryService, showSeatMaterializer);
+        ReflectionTestUtils.setField(engine, "mode", SeatLockMode.MEMORY);
+    }
+
+    @Test
+    void shouldWriteHeldSeatsBehindInOneBatch() {
+        engine.lock(1, List.of(1, 2), 7);
+
+        engine.flush();
+
+        List<Object[]> batch = lastBatch();
+        assertThat(batch).hasSize(2);
+        assertThat(batch).allSatisfy(args -> {
+            assertThat(args[0]).isEqualTo(SeatStatus.LOCKED.name());
+            assertThat(args[2]).isEqualTo(7);
+            assertThat(args[4]).isEqualTo(SHOW_DATE);
+        });
+        assertThat(batch).extracting(args -> args[5]).containsExactlyInAnyOrder(1, 2);
+
+        // Nothing changed since
+        reset(jdbcTemplate);
+        engine.flush();
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), anyList(), any(int[].class));
+    }
+
+    @Test
+    void shouldWriteSeatsAgainAfterFailedFlush() {
+        engine.lock(1, List.of(3), 7);
+        doThrow(new DataAccessResourceFailureException("connection lost"))
+                .when(jdbcTemplate).batchUpdate(any(String.class), anyList(), any(int[].class));
+
+        engine.flush();
+
+        reset(jdbcTemplate);
+        engine.flush();
+
+        List<Object[]> batch = lastBatch();
+        assertThat(batch).hasSize(1);
+        assertThat(batch.get(0)[0]).isEqualTo(SeatStatus.LOCKED.name());
+        assertThat(batch.get(0)[5]).isEqualTo(3);
+    }
+
+    @Test
+    void shouldLeaveWritesToMailboxInMailboxMode() {
+        ReflectionTestUtils.setField(engine, "mode", SeatLockMode.MAILBOX);
+        engine.state(1).lock(List.of(1), 7, LocalDateTime.now());
+
+        engine.flush();
+
+        // The show's writer snapshots and commits the seat itself
+        verify(jdbcTemplate, never()).batchUpdate(any(String.class), anyList(), any(int[].class));
+    }
+
+    @Test
+    void shouldRecoverUpcomingShowsOnStartup() {
+        when(showRepository.findShowIdsFromDate(any(Date.class))).thenReturn(List.of(1, 2));
+
+        engine.recover();
+
+        verify(showSeatRepository).findByShowId(1, SHOW_DATE);
+        verify(showSeatRepository).findByShowId(2, SHOW_DATE);
+        assertThat(engine.findShowsWithHoldsBefore(LocalDateTime.now())).isEmpty();
+
+        // Already loaded
+        engine.lock(1, List.of(1), 7);
+        verify(showSeatRepository, times(1)).findByShowId(1, SHOW_DATE);
+    }
+
+    @Test
+    void shouldNotRecoverInDatabaseModes() {
+        ReflectionTestUtils.setField(engine, "mode", SeatLockMode.PESSIMISTIC);
+
+        engine.recover();
+
+        verify(showRepository, never()).findShowIdsFromDate(any(Date.class));
+    }
+
+    @Test
+    void shouldLoadShowOnceForConcurrentFirstAccesses() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        when(showSeatRepository.findByShowId(eq(1), eq(SHOW_DATE))).thenAnswer(invocation -> {
+            loads.incrementAndGet();
+            loading.await(5, TimeUnit.SECONDS);
+            return seats(10);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> engine.state(1)));
+        }
+
+        // Other shows load while show 1 is still loading
+        assertThat(engine.state(2).count(SeatStatus.AVAILABLE)).isEqualTo(10);
+
+        loading.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lastBatch() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(any(String.class), captor.capture(), any(int[].class));
+        return captor.getValue();
+    }
+
+    private static List<ShowSeat> seats(int count) {
+        List<ShowSeat> seats = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            ShowSeat seat = new ShowSeat();
+            seat.setId(i);
+            seat.setSeatNo("1" + (char) ('A' + i - 1));
+            seat.setSeatType(SeatType.CLASSIC);
+            seat.setPrice(200);
+            seat.setStatus(SeatStatus.AVAILABLE);
+            seats.add(seat);
+        }
+        return seats;
+    }
+}
@@ -0,0 +1,247 @@
+package com.sb.movie;
+
+import com.sb.movie.entities.Event;
+import com.sb.movie.entities.Show;
+import com.sb.movie.entities.ShowSeat;
+import com.sb.movie.entities.Theater;
+import com.sb.movie.entities.TheaterSeat;
+import com.sb.movie.entities.Venue;
+import com.sb.movie.enums.EventType;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.enums.ShowSeatStorage;
+import com.sb.movie.repositories.EventRepository;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.TheaterRepository;
+import com.sb.movie.repositories.VenueRepository;
+import com.sb.movie.request.ShowRequest;
+import com.sb.movie.request.ShowScheduleRequest;
+import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.services.SeatDirectoryService;
+import com.sb.movie.services.SeatLockingService;
+import com.sb.movie.services.ShowService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Show creation time by seat count: the per-entity IDENTITY inserts that show creation used to do
+ * against the single INSERT ... SELECT of ShowSeatMaterializer. Also compares FULL and SPARSE seat
+ * storage by SHOW_SEATS size and by availability and lock latency.
+ *
+ * Not part of the regular build. Run with:
+ * {@code mvn test -Dtest=ShowCreationBenchmark -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class ShowCreationBenchmark extends BaseIntegrationTest {
+
+    private static final int[] SEAT_COUNTS = {200, 5_000, 50_000};
+
+    private static final int STORAGE_SEATS = 5_000;
+    private static final int STORAGE_SHOWS = 20;
+    private static final int SEATS_HELD_PER_SHOW = 50;
+
+    private static final AtomicInteger SHOW_MINUTES = new AtomicInteger();
+
+    @Autowired
+    private ShowService showService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private VenueRepository venueRepository;
+
+    @Autowired
+    private TheaterRepository theaterRepository;
+
+    @Autowired
+    private ShowRepository showRepository;
+
+    @Autowired
+    private ShowSeatRepository showSeatRepository;
+
+    @Autowired
+    private SeatLockingService seatLockingService;
+
+    @Autowired
+    private SeatDirectoryService seatDirectoryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void compareShowCreationBySeatCount() {
+        Event event = eventRepository.save(Event.builder()
+                .name("Benchmark " + UUID.randomUUID())
+                .eventType(EventType.MOVIE)
+                .duration(120)
+                .build());
+
+        System.out.printf("%10s %14s %14s%n", "seats", "per-row(ms)", "bulk(ms)");
+
+        for (int seatCount : SEAT_COUNTS) {
+            Theater theater = createTheater(seatCount);
+            Show[] created = new Show[1];
+
+            long legacyMs = time(() -> createShowRowByRow(event, theater));
+            long bulkMs = time(() -> created[0] = showService.addShow(showRequest(event, theater)));
+
+            assertThat(showSeatRepository.countAvailableSeatsByShowId(created[0].getShowId())).isEqualTo(seatCount);
+            System.out.printf("%10d %14d %14d%n", seatCount, legacyMs, bulkMs);
+        }
+    }
+
+    @Test
+    void compareSeatStorageModes() {
+        Event event = eventRepository.save(Event.builder()
+                .name("Storage benchmark " + UUID.randomUUID())
+                .eventType(EventType.MOVIE)
+                .duration(120)
+                .build());
+
+        System.out.printf("%8s %12s %14s %18s %12s%n",
+                "storage", "rows", "table(kB)", "availability(ms)", "lock(ms)");
+
+        try {
+            for (ShowSeatStorage storage : ShowSeatStorage.values()) {
+                ReflectionTestUtils.setField(AopTestUtils.getTargetObject(showService), "seatStorage", storage);
+                Theater theater = createTheater(STORAGE_SEATS);
+                long sizeBefore = showSeatsTableSize();
+
+                ShowScheduleRequest request = new ShowScheduleRequest();
+                request.setEventId(event.getId());
+                request.setTheaterId(theater.getId());
+                request.setStartDate(Date.valueOf(LocalDate.now().plusDays(90)));
+                request.setEndDate(Date.valueOf(LocalDate.now().plusDays(90)));
+                request.setShowTimes(IntStream.range(0, STORAGE_SHOWS)
+                        .mapToObj(i -> Time.valueOf(String.format("%02d:%02d:00", i / 2, i % 2 * 30)))
+                        .collect(Collectors.toList()));
+                request.setPriceOfClassicSeat(200);
+                request.setPriceOfPremiumSeat(300);
+                List<Integer> showIds = showService.scheduleShows(request).getShowIds();
+
+                // Hold the first seats of every show, a typical share of a show's seats in use
+                long lockNanos = 0;
+                for (Integer showId : showIds) {
+                    List<Integer> seatIds = seatDirectoryService.directory(showId).allSeatIds()
+                            .subList(0, SEATS_HELD_PER_SHOW);
+                    long start = System.nanoTime();
+                    seatLockingService.lockSeats(showId, seatIds, 1);
+                    lockNanos += System.nanoTime() - start;
+                }
+
+                long availabilityNanos = 0;
+                for (Integer showId : showIds) {
+                    long start = System.nanoTime();
+                    SeatAvailabilityResponse availability = showService.getSeatAvailability(showId);
+                    availabilityNanos += System.nanoTime() - start;
+                    assertThat(availability.getTotalSeats()).isEqualTo(STORAGE_SEATS);
+                    assertThat(availability.getLockedSeats()).isEqualTo(SEATS_HELD_PER_SHOW);
+                }
+
+                Integer rows = jdbcTemplate.queryForObject(
+                        "SELECT COUNT(*) FROM show_seats ss JOIN shows s ON s.show_id = ss.show_show_id " +
+                        "WHERE s.theater_id = ?", Integer.class, theater.getId());
+                System.out.printf("%8s %12d %14d %18.2f %12.2f%n", storage, rows,
+                        (showSeatsTableSize() - sizeBefore) / 1024,
+                        availabilityNanos / 1e6 / showIds.size(), lockNanos / 1e6 / showIds.size());
+            }
+        } finally {
+            ReflectionTestUtils.setField(AopTestUtils.getTargetObject(showService), "seatStorage", ShowSeatStorage.FULL);
+        }
+    }
+
+    private long showSeatsTableSize() {
+        return jdbcTemplate.queryForObject("SELECT pg_total_relation_size('show_seats')", Long.class);
+    }
+
+    /**
+     * What addShow did before: one ShowSeat entity per theater seat, saved through IDENTITY inserts.
+     */
+    private void createShowRowByRow(Event event, Theater theater) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Show show = showRepository.save(Show.builder()
+                    .date(Date.valueOf(LocalDate.now().plusDays(60)))
+                    .time(nextShowTime())
+                    .event(event)
+                    .theater(theater)
+                    .build());
+
+            List<ShowSeat> seats = new ArrayList<>();
+            for (TheaterSeat theaterSeat : theaterRepository.findById(theater.getId()).orElseThrow().getTheaterSeatList()) {
+                ShowSeat seat = new ShowSeat();
+                seat.setSeatNo(theaterSeat.getSeatNo());
+                seat.setSeatType(theaterSeat.getSeatType());
+                seat.setPrice(theaterSeat.getSeatType() == SeatType.CLASSIC ? 200 : 300);
+                seat.setStatus(SeatStatus.AVAILABLE);
+                seat.setShow(show);
+                seats.add(seat);
+            }
+            showSeatRepository.saveAll(seats);
+        });
+    }
+
+    private ShowRequest showRequest(Event event, Theater theater) {
+        ShowRequest request = new ShowRequest();
+        request.setEventId(event.getId());
+        request.setTheaterId(theater.getId());
+        request.setShowDate(Date.valueOf(LocalDate.now().plusDays(60)));
+        request.setShowStartTime(nextShowTime());
+        request.setPriceOfClassicSeat(200);
+        request.setPriceOfPremiumSeat(300);
+        return request;
+    }
+
+    private Theater createTheater(int seatCount) {
+        Venue venue = venueRepository.save(Venue.builder()
+                .name("Arena " + seatCount)
+                .address("Benchmark Road " + UUID.randomUUID())
+                .city("Bangalore")
+                .build());
+        Theater theater = theaterRepository.save(Theater.builder()
+                .name("Hall " + seatCount)
+                .venue(venue)
+                .build());
+
+        // 50 seats per row, the last fifth PREMIUM
+        jdbcTemplate.update(
+                "INSERT INTO theater_seats (seat_no, seat_type, theater_id) " +
+                "SELECT (g / 50 + 1) || chr(65 + g % 26) || (g % 50 / 26), " +
+                "CASE WHEN g >= ? THEN 'PREMIUM' ELSE 'CLASSIC' END, ? FROM generate_series(0, ? - 1) g",
+                seatCount * 4 / 5, theater.getId(), seatCount);
+        return theater;
+    }
+
+    private Time nextShowTime() {
+        int minutes = SHOW_MINUTES.getAndIncrement();
+        return Time.valueOf(String.format("%02d:%02d:00", minutes / 60 % 24, minutes % 60));
+    }
+
+    private long time(Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -9,12 +9,15 @@ import com.sb.movie.enums.Language;
 import com.sb.movie.request.*;
 import com.sb.movie.response.AuthResponse;
 import com.sb.movie.response.ShowDetailsResponse;
+import com.sb.movie.response.ShowScheduleResponse;
 import com.sb.movie.response.TheaterResponse;
 import com.sb.movie.response.VenueResponse;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.*;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -22,6 +25,7 @@ import java.sql.Date;
 import java.sql.Time;
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -32,6 +36,9 @@ class ShowIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private CacheManager cacheManager;
+
     private String adminToken;
     private Integer venueId;
     private Integer theaterId;
@@ -223,6 +230,67 @@ class ShowIntegrationTest extends BaseIntegrationTest {
         assertThat(getDeletedResponse.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    void shouldScheduleShowsOverDateRange() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(adminToken);
+
+        ShowScheduleRequest scheduleRequest = new ShowScheduleRequest();
+        scheduleRequest.setEventId(eventId);
+        scheduleRequest.setTheaterId(theaterId);
+        scheduleRequest.setStartDate(Date.valueOf(LocalDate.now().plusDays(20)));
+        scheduleRequest.setEndDate(Date.valueOf(LocalDate.now().plusDays(22)));
+        scheduleRequest.setShowTimes(List.of(Time.valueOf(LocalTime.of(14, 0)), Time.valueOf(LocalTime.of(10, 0))));
+        scheduleRequest.setPriceOfClassicSeat(200);
+        scheduleRequest.setPriceOfPremiumSeat(400);
+
+        ResponseEntity<ShowScheduleResponse> scheduleResponse = restTemplate.exchange(
+                "/api/shows/schedule",
+                HttpMethod.POST,
+                new HttpEntity<>(scheduleRequest, headers),
+                ShowScheduleResponse.class
+        );
+
+        // 3 days x 2 times, 100 seats each
+        assertThat(scheduleResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(scheduleResponse.getBody().getShowsCreated()).isEqualTo(6);
+        assertThat(scheduleResponse.getBody().getSeatsCreated()).isEqualTo(600);
+
+        ResponseEntity<Show[]> searchResponse = restTemplate.getForEntity(
+                "/api/shows?eventId=" + eventId,
+                Show[].class
+        );
+        assertThat(searchResponse.getBody()).hasSize(6);
+
+        Integer firstShowId = scheduleResponse.getBody().getShowIds().get(0);
+        ResponseEntity<ShowDetailsResponse> detailsResponse = restTemplate.getForEntity(
+                "/api/shows/" + firstShowId,
+                ShowDetailsResponse.class
+        );
+        assertThat(detailsResponse.getBody().getTotalSeats()).isEqualTo(100);
+        assertThat(detailsResponse.getBody().getAvailableSeats()).isEqualTo(100);
+
+        // Overlapping schedule is rejected as a whole
+        scheduleRequest.setStartDate(Date.valueOf(LocalDate.now().plusDays(22)));
+        scheduleRequest.setEndDate(Date.valueOf(LocalDate.now().plusDays(23)));
+        scheduleRequest.setShowTimes(List.of(Time.valueOf(LocalTime.of(14, 0))));
+
+        ResponseEntity<String> conflictResponse = restTemplate.exchange(
+                "/api/shows/schedule",
+                HttpMethod.POST,
+                new HttpEntity<>(scheduleRequest, headers),
+                String.class
+        );
+        assertThat(conflictResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(conflictResponse.getBody()).contains("already exist");
+
+        ResponseEntity<Show[]> afterConflict = restTemplate.getForEntity(
+                "/api/shows?eventId=" + eventId,
+                Show[].class
+        );
+        assertThat(afterConflict.getBody()).hasSize(6);
+    }
+
     @Test
     void shouldRejectUpdateWithPastDateTime() {
         HttpHeaders headers = new HttpHeaders();
@@ -264,4 +332,39 @@ class ShowIntegrationTest extends BaseIntegrationTest {
         assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
         assertThat(updateResponse.getBody()).contains("past date");
     }
+
+    @Test
+    void shouldEvictOnlySearchesNewShowCanAppearIn() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(adminToken);
+        Date firstDay = Date.valueOf(LocalDate.now().plusDays(61));
+        Date secondDay = Date.valueOf(LocalDate.now().plusDays(62));
+
+        ShowRequest createRequest = new ShowRequest();
+        createRequest.setEventId(eventId);
+        createRequest.setTheaterId(theaterId);
+        createRequest.setShowDate(firstDay);
+        createRequest.setShowStartTime(Time.valueOf(LocalTime.of(18, 30, 0)));
+        createRequest.setPriceOfClassicSeat(250);
+        createRequest.setPriceOfPremiumSeat(450);
+        restTemplate.exchange("/api/shows/addNew", HttpMethod.POST, new HttpEntity<>(createRequest, headers), Show.class);
+
+        // Given - searches by the first day and by the event are cached
+        assertThat(restTemplate.getForEntity("/api/shows?date=" + firstDay, Show[].class).getBody()).isNotEmpty();
+        assertThat(restTemplate.getForEntity("/api/shows?eventId=" + eventId, Show[].class).getBody()).hasSize(1);
+        Cache showSearch = cacheManager.getCache("showSearch");
+        assertThat(showSearch.get("null_null_" + firstDay)).isNotNull();
+        assertThat(showSearch.get(eventId + "_null_null")).isNotNull();
+
+        // When - a show of the event on another day
+        createRequest.setShowDate(secondDay);
+        ResponseEntity<Show> createResponse = restTemplate.exchange(
+                "/api/shows/addNew", HttpMethod.POST, new HttpEntity<>(createRequest, headers), Show.class);
+        assertThat(createResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+
+        // Then - the first day is still cached, the event's shows are not
+        assertThat(showSearch.get("null_null_" + firstDay)).isNotNull();
+        assertThat(showSearch.get(eventId + "_null_null")).isNull();
+        assertThat(restTemplate.getForEntity("/api/shows?eventId=" + eventId, Show[].class).getBody()).hasSize(2);
+    }
 }
@@ -0,0 +1,165 @@
+package com.sb.movie;
+
+import com.sb.movie.services.ShowSeatPartitionManager;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Conversion of SHOW_SEATS into monthly partitions, on a database of its own so the shared test
+ * schema stays unpartitioned.
+ */
+class ShowSeatPartitionManagerTest {
+
+    private static final DateTimeFormatter MONTH_SUFFIX = DateTimeFormatter.ofPattern("uuuu_MM");
+
+    private static PostgreSQLContainer<?> postgres;
+    private static JdbcTemplate jdbcTemplate;
+    private static DataSourceTransactionManager transactionManager;
+
+    @BeforeAll
+    static void startDatabase() {
+        postgres = new PostgreSQLContainer<>(DockerImageName.parse("postgres:16-alpine"));
+        postgres.start();
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionManager = new DataSourceTransactionManager(dataSource);
+    }
+
+    @AfterAll
+    static void stopDatabase() {
+        postgres.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        // The columns of SHOW_SEATS the conversion touches, as Hibernate creates them
+        jdbcTemplate.execute("DROP TABLE IF EXISTS show_seats CASCADE");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS shows CASCADE");
+        jdbcTemplate.execute("CREATE TABLE shows (show_id SERIAL PRIMARY KEY, date DATE NOT NULL)");
+        jdbcTemplate.execute("CREATE TABLE show_seats (id SERIAL PRIMARY KEY, seat_no VARCHAR(255), " +
+                "status VARCHAR(255), locked_at TIMESTAMP, show_show_id INTEGER REFERENCES shows (show_id), " +
+                "show_date DATE)");
+
+        LocalDate today = LocalDate.now();
+        for (LocalDate date : List.of(today, today.plusMonths(1))) {
+            Integer showId = jdbcTemplate.queryForObject(
+                    "INSERT INTO shows (date) VALUES (?) RETURNING show_id", Integer.class, Date.valueOf(date));
+            for (String seatNo : List.of("1A", "1B", "1C")) {
+                // Seats from before SHOW_SEATS carried the show's date
+                jdbcTemplate.update("INSERT INTO show_seats (seat_no, status, show_show_id) VALUES (?, 'AVAILABLE', ?)",
+                        seatNo, showId);
+            }
+        }
+    }
+
+    @Test
+    void shouldConvertShowSeatsIntoMonthlyPartitions() {
+        List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM show_seats ORDER BY id", Integer.class);
+
+        // When
+        manager().initialize();
+
+        // Then - every seat kept its id, in a partition of its show's month
+        assertThat(isPartitioned()).isTrue();
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM show_seats ORDER BY id", Integer.class)).isEqualTo(ids);
+        assertThat(partitions()).contains(partition(YearMonth.now()), partition(YearMonth.now().plusMonths(3)));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition(YearMonth.now().plusMonths(1)),
+                Integer.class)).isEqualTo(3);
+
+        // New seats continue after the copied ids
+        Integer newId = jdbcTemplate.queryForObject("INSERT INTO show_seats (seat_no, status, show_show_id, show_date) " +
+                "SELECT '1D', 'AVAILABLE', show_id, date FROM shows ORDER BY show_id LIMIT 1 RETURNING id", Integer.class);
+        assertThat(newId).isGreaterThan(ids.get(ids.size() - 1));
+    }
+
+    @Test
+    void shouldConvertOnceWhenNodesStartTogether() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch startLatch = new CountDownLatch(1);
+        Callable<Void> startNode = () -> {
+            startLatch.await();
+            manager().initialize();
+            return null;
+        };
+        List<Future<Void>> futures = List.of(executor.submit(startNode), executor.submit(startNode));
+
+        // When
+        startLatch.countDown();
+        for (Future<Void> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        // Then - converted once, nothing copied twice or left behind
+        assertThat(isPartitioned()).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM show_seats", Integer.class)).isEqualTo(6);
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('show_seats_unpartitioned') IS NULL", Boolean.class))
+                .isTrue();
+    }
+
+    @Test
+    void shouldCreatePartitionForShowBeyondMonthsAhead() {
+        ShowSeatPartitionManager manager = manager();
+        manager.initialize();
+        LocalDate farAhead = LocalDate.now().plusMonths(12);
+        assertThat(partitions()).doesNotContain(partition(YearMonth.from(farAhead)));
+
+        // When
+        manager.ensurePartitions(List.of(Date.valueOf(farAhead)));
+
+        // Then - the seats of the show can be stored
+        assertThat(partitions()).contains(partition(YearMonth.from(farAhead)));
+        Integer showId = jdbcTemplate.queryForObject(
+                "INSERT INTO shows (date) VALUES (?) RETURNING show_id", Integer.class, Date.valueOf(farAhead));
+        jdbcTemplate.update("INSERT INTO show_seats (seat_no, status, show_show_id, show_date) VALUES ('1A', 'AVAILABLE', ?, ?)",
+                showId, Date.valueOf(farAhead));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition(YearMonth.from(farAhead)),
+                Integer.class)).isEqualTo(1);
+    }
+
+    // A node of its own: every manager only knows the partitions it saw
+    private ShowSeatPartitionManager manager() {
+        ShowSeatPartitionManager manager = new ShowSeatPartitionManager(jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(manager, "enabled", true);
+        ReflectionTestUtils.setField(manager, "monthsAhead", 3);
+        ReflectionTestUtils.setField(manager, "retentionMonths", 3);
+        return manager;
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT relkind = 'p' FROM pg_class WHERE oid = to_regclass('show_seats')", Boolean.class));
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = 'show_seats'::regclass", String.class);
+    }
+
+    private static String partition(YearMonth month) {
+        return "show_seats_p" + month.format(MONTH_SUFFIX);
+    }
+}
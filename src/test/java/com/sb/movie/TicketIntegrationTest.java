@@ -1,29 +1,65 @@
 package com.sb.movie;
 
+import com.sb.movie.config.KafkaConfig;
 import com.sb.movie.controllers.AuthRequest;
+import com.sb.movie.entities.OutboxEvent;
 import com.sb.movie.entities.Show;
+import com.sb.movie.entities.ShowSeat;
 import com.sb.movie.entities.Theater;
+import com.sb.movie.entities.Ticket;
 import com.sb.movie.entities.Venue;
 import com.sb.movie.enums.EventType;
 import com.sb.movie.enums.Gender;
 import com.sb.movie.enums.Language;
+import com.sb.movie.enums.SeatAvailabilityLevel;
+import com.sb.movie.enums.SeatStatus;
+import com.sb.movie.enums.SeatType;
+import com.sb.movie.enums.ShowSeatStorage;
+import com.sb.movie.repositories.OutboxEventRepository;
+import com.sb.movie.repositories.ShowRepository;
+import com.sb.movie.repositories.ShowSeatRepository;
+import com.sb.movie.repositories.TicketRepository;
 import com.sb.movie.request.*;
 import com.sb.movie.response.AuthResponse;
+import com.sb.movie.response.SeatSummaryResponse;
+import com.sb.movie.response.ShowDetailsResponse;
+import com.sb.movie.response.SeatAvailabilityResponse;
+import com.sb.movie.response.SeatChangesResponse;
+import com.sb.movie.response.SeatLockResponse;
+import com.sb.movie.response.TicketHistoryResponse;
+import com.sb.movie.response.TicketResponse;
+import com.sb.movie.services.SeatDirectory;
+import com.sb.movie.services.SeatDirectoryService;
+import com.sb.movie.services.SeatLockingService;
+import com.sb.movie.services.ShowSeatArchiver;
+import com.sb.movie.services.ShowService;
+import com.sb.movie.services.TicketSeatBackfill;
+import com.sb.movie.services.TicketService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.http.*;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Date;
 import java.sql.Time;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @Transactional
 class TicketIntegrationTest extends BaseIntegrationTest {
@@ -32,6 +68,42 @@ class TicketIntegrationTest extends BaseIntegrationTest {
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private TicketService ticketService;
+
+    @Autowired
+    private SeatLockingService seatLockingService;
+
+    @Autowired
+    private SeatDirectoryService seatDirectoryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ShowService showService;
+
+    @Autowired
+    private ShowRepository showRepository;
+
+    @Autowired
+    private ShowSeatRepository showSeatRepository;
+
+    @Autowired
+    private ShowSeatArchiver showSeatArchiver;
+
+    @Autowired
+    private TicketRepository ticketRepository;
+
+    @Autowired
+    private TicketSeatBackfill ticketSeatBackfill;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     private String userToken;
     private String adminToken;
     private Integer userId;
@@ -304,4 +376,415 @@ class TicketIntegrationTest extends BaseIntegrationTest {
         assertThat(successCount).isEqualTo(1); // Only ONE should lock successfully
         assertThat(failureCount).isEqualTo(numberOfUsers - 1); // Others should fail
     }
+
+    @Test
+    void shouldServeOnlyChangedSeatsSinceSeatVersion() {
+        // Given - the seat map of a show with two held seats
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(userToken);
+        lockSeatsOverHttp(headers, Arrays.asList("5A", "5B"));
+
+        ResponseEntity<SeatAvailabilityResponse> seatMap = restTemplate.getForEntity(
+                "/api/shows/" + showId + "/seats", SeatAvailabilityResponse.class);
+        Long seatVersion = seatMap.getBody().getSeatVersion();
+        assertThat(seatVersion).isPositive();
+        assertThat(seatMap.getHeaders().getETag()).isEqualTo("\"" + seatVersion + "\"");
+
+        // Then - nothing changed yet
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(seatMap.getHeaders().getETag());
+        ResponseEntity<String> notModified = restTemplate.exchange("/api/shows/" + showId + "/seats",
+                HttpMethod.GET, new HttpEntity<>(conditional), String.class);
+        assertThat(notModified.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+
+        // When
+        lockSeatsOverHttp(headers, List.of("6A"));
+
+        // Then - only the changed seat is returned
+        ResponseEntity<SeatChangesResponse> changes = restTemplate.getForEntity(
+                "/api/shows/" + showId + "/seats/changes?since=" + seatVersion, SeatChangesResponse.class);
+        assertThat(changes.getBody().isFullSnapshot()).isFalse();
+        assertThat(changes.getBody().getSeatVersion()).isGreaterThan(seatVersion);
+        assertThat(changes.getBody().getSeats()).singleElement().satisfies(seat -> {
+            assertThat(seat.getSeatNo()).isEqualTo("6A");
+            assertThat(seat.getStatus()).isEqualTo(SeatStatus.LOCKED);
+        });
+
+        // A client that never saw a version gets every seat
+        ResponseEntity<SeatChangesResponse> snapshot = restTemplate.getForEntity(
+                "/api/shows/" + showId + "/seats/changes?since=0", SeatChangesResponse.class);
+        assertThat(snapshot.getBody().isFullSnapshot()).isTrue();
+        assertThat(snapshot.getBody().getSeats()).hasSize(50);
+    }
+
+    @Test
+    void shouldChangeSeatMapETagWhenShowIsRescheduled() {
+        ResponseEntity<SeatAvailabilityResponse> seatMap = restTemplate.getForEntity(
+                "/api/shows/" + showId + "/seats", SeatAvailabilityResponse.class);
+
+        // When - the show moves without any seat changing
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(adminToken);
+        ShowUpdateRequest updateRequest = new ShowUpdateRequest();
+        updateRequest.setShowDate(Date.valueOf(LocalDate.now().plusDays(10)));
+        updateRequest.setShowStartTime(Time.valueOf("20:00:00"));
+        ResponseEntity<String> updateResponse = restTemplate.exchange("/api/shows/" + showId, HttpMethod.PUT,
+                new HttpEntity<>(updateRequest, headers), String.class);
+        assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        // Then - the old ETag no longer matches, and the new time is served
+        HttpHeaders conditional = new HttpHeaders();
+        conditional.setIfNoneMatch(seatMap.getHeaders().getETag());
+        ResponseEntity<SeatAvailabilityResponse> rescheduled = restTemplate.exchange("/api/shows/" + showId + "/seats",
+                HttpMethod.GET, new HttpEntity<>(conditional), SeatAvailabilityResponse.class);
+        assertThat(rescheduled.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(rescheduled.getHeaders().getETag()).isNotEqualTo(seatMap.getHeaders().getETag());
+        assertThat(rescheduled.getBody().getShowTime()).isEqualTo(Time.valueOf("20:00:00"));
+    }
+
+    @Test
+    void shouldPatchCachedSeatMapInsteadOfReloadingIt() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(userToken);
+
+        // Given - a seat map that was read once
+        SeatAvailabilityResponse before = restTemplate.getForObject(
+                "/api/shows/" + showId + "/seats", SeatAvailabilityResponse.class);
+        assertThat(before.getAvailableSeats()).isEqualTo(50);
+
+        // When
+        lockSeatsOverHttp(headers, Arrays.asList("2A", "2B"));
+        statistics.clear();
+        SeatAvailabilityResponse after = restTemplate.getForObject(
+                "/api/shows/" + showId + "/seats", SeatAvailabilityResponse.class);
+
+        // Then - the hold shows up without the seats being read from the database again
+        assertThat(after.getSeatVersion()).isGreaterThan(before.getSeatVersion());
+        assertThat(after.getLockedSeats()).isEqualTo(2);
+        assertThat(after.getAvailableSeats()).isEqualTo(48);
+        assertThat(after.getSeats())
+                .filteredOn(seat -> seat.getSeatNo().equals("2A"))
+                .singleElement()
+                .satisfies(seat -> assertThat(seat.getStatus()).isEqualTo(SeatStatus.LOCKED));
+        assertThat(Arrays.stream(statistics.getQueries()).filter(query -> query.contains("ShowSeat"))).isEmpty();
+
+        ShowDetailsResponse details = showService.getShowDetails(showId);
+        assertThat(details.getLockedSeats()).isEqualTo(2);
+        assertThat(details.getSeatSummary().get("CLASSIC").getAvailable()).isEqualTo(28);
+    }
+
+    private void lockSeatsOverHttp(HttpHeaders headers, List<String> seatNos) {
+        SeatLockRequest lockRequest = new SeatLockRequest();
+        lockRequest.setShowId(showId);
+        lockRequest.setUserId(userId);
+        lockRequest.setRequestSeats(seatNos);
+        ResponseEntity<String> response = restTemplate.exchange("/ticket/lock-seats", HttpMethod.POST,
+                new HttpEntity<>(lockRequest, headers), String.class);
+        assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+    }
+
+    @Test
+    void shouldLockBestAdjacentSeatsOfRequestedType() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(userToken);
+
+        // Premium seats are rows 4 and 5 of a 10-seat-wide theater
+        BestSeatsRequest bestSeatsRequest = new BestSeatsRequest();
+        bestSeatsRequest.setShowId(showId);
+        bestSeatsRequest.setUserId(userId);
+        bestSeatsRequest.setNumberOfSeats(4);
+        bestSeatsRequest.setSeatType(SeatType.PREMIUM);
+
+        HttpEntity<BestSeatsRequest> request = new HttpEntity<>(bestSeatsRequest, headers);
+
+        // When
+        ResponseEntity<SeatLockResponse> first = restTemplate.exchange(
+                "/ticket/lock-best-seats", HttpMethod.POST, request, SeatLockResponse.class);
+        ResponseEntity<SeatLockResponse> second = restTemplate.exchange(
+                "/ticket/lock-best-seats", HttpMethod.POST, request, SeatLockResponse.class);
+
+        // Then - centre of the first premium row, then the same window one row back
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(first.getBody().getLockedSeats()).containsExactly("4D", "4E", "4F", "4G");
+        assertThat(first.getBody().getTotalPrice()).isEqualTo(1200);
+
+        assertThat(second.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(second.getBody().getLockedSeats()).containsExactly("5D", "5E", "5F", "5G");
+    }
+
+    @Test
+    void shouldConfirmBookingWithSingleSeatStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(Arrays.asList("3A", "3B"));
+        seatLockingService.lockSeats(showId, seatIds, userId);
+        entityManager.flush();
+        entityManager.clear();
+
+        TicketRequest ticketRequest = new TicketRequest();
+        ticketRequest.setShowId(showId);
+        ticketRequest.setUserId(userId);
+        ticketRequest.setRequestSeats(Arrays.asList("3A", "3B"));
+
+        // When
+        statistics.clear();
+        TicketResponse response = ticketService.ticketBooking(ticketRequest);
+
+        // Then - no seat is loaded or re-locked; the hold is validated and booked by one UPDATE
+        assertThat(response.getTotalPrice()).isEqualTo(400);
+        assertThat(statistics.getEntityStatistics(ShowSeat.class.getName()).getLoadCount()).isZero();
+        assertThat(Arrays.stream(statistics.getQueries()).filter(query -> query.contains("ShowSeat"))).hasSize(1);
+        // Show (with event, theater and venue), user, seat UPDATE, ticket INSERT, TICKET_SEATS batch, outbox INSERT
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(7);
+    }
+
+    @Test
+    void shouldFindTicketHoldingSeat() {
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(Arrays.asList("5A", "5B"));
+        seatLockingService.lockSeats(showId, seatIds, userId);
+
+        TicketRequest ticketRequest = new TicketRequest();
+        ticketRequest.setShowId(showId);
+        ticketRequest.setUserId(userId);
+        ticketRequest.setRequestSeats(Arrays.asList("5A", "5B"));
+        ticketService.ticketBooking(ticketRequest);
+
+        // When
+        TicketHistoryResponse ticket = ticketService.getTicketForSeat(showId, "5B");
+
+        // Then
+        assertThat(ticket.getShowId()).isEqualTo(showId);
+        assertThat(ticket.getBookedSeats()).isEqualTo("5A, 5B");
+    }
+
+    @Test
+    void shouldLinkAndCancelExactlyTheSeatsOfTicketsBookedBeforeTicketSeats() {
+        // Given - a show far enough ahead to cancel its tickets
+        ShowUpdateRequest updateRequest = new ShowUpdateRequest();
+        updateRequest.setShowDate(Date.valueOf(LocalDate.now().plusDays(30)));
+        updateRequest.setShowStartTime(Time.valueOf("18:00:00"));
+        showService.updateShow(showId, updateRequest);
+        seatDirectoryService.evict(showId);
+
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        Integer firstTicketId = bookTicket(List.of("7A", "7B"));
+        Integer secondTicketId = bookTicket(List.of("7C"));
+        List<Integer> heldSeat = directory.seatIds(List.of("7D"));
+        seatLockingService.lockSeats(showId, heldSeat, userId + 1);
+
+        // Both tickets only carry their seat numbers, as if booked before TICKET_SEATS existed
+        unlinkSeats(firstTicketId);
+        unlinkSeats(secondTicketId);
+
+        // When
+        ticketSeatBackfill.backfill();
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then - each ticket is linked to its own seats
+        assertThat(ticketRepository.findById(firstTicketId).orElseThrow().getSeatIds())
+                .containsExactlyInAnyOrderElementsOf(directory.seatIds(List.of("7A", "7B")));
+        assertThat(ticketRepository.findById(secondTicketId).orElseThrow().getSeatIds())
+                .containsExactlyInAnyOrderElementsOf(directory.seatIds(List.of("7C")));
+
+        // When - a ticket the backfill has not reached yet is cancelled
+        unlinkSeats(firstTicketId);
+        String userEmail = ticketRepository.findById(firstTicketId).orElseThrow().getUser().getEmailId();
+        ticketService.cancelTicket(firstTicketId, userEmail);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Then - exactly its seats are free again
+        List<Integer> seatIds = directory.seatIds(List.of("7A", "7B", "7C", "7D"));
+        assertThat(showSeatRepository.findByIds(directory.getShowDate(), seatIds))
+                .extracting(ShowSeat::getSeatNo, ShowSeat::getStatus)
+                .containsExactlyInAnyOrder(
+                        tuple("7A", SeatStatus.AVAILABLE),
+                        tuple("7B", SeatStatus.AVAILABLE),
+                        tuple("7C", SeatStatus.BOOKED),
+                        tuple("7D", SeatStatus.LOCKED));
+        assertThat(ticketRepository.findById(firstTicketId)).isEmpty();
+        assertThat(ticketRepository.findById(secondTicketId)).isPresent();
+    }
+
+    private Integer bookTicket(List<String> seatNos) {
+        seatLockingService.lockSeats(showId, seatDirectoryService.directory(showId).seatIds(seatNos), userId);
+
+        TicketRequest ticketRequest = new TicketRequest();
+        ticketRequest.setShowId(showId);
+        ticketRequest.setUserId(userId);
+        ticketRequest.setRequestSeats(seatNos);
+        ticketService.ticketBooking(ticketRequest);
+        return ticketService.getTicketForSeat(showId, seatNos.get(0)).getTicketId();
+    }
+
+    private void unlinkSeats(Integer ticketId) {
+        Ticket ticket = ticketRepository.findById(ticketId).orElseThrow();
+        ticket.getSeatIds().clear();
+        ticketRepository.saveAndFlush(ticket);
+    }
+
+    @Test
+    void shouldPublishBookingEventThroughOutbox() {
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(Arrays.asList("6A", "6B"));
+        seatLockingService.lockSeats(showId, seatIds, userId);
+
+        TicketRequest ticketRequest = new TicketRequest();
+        ticketRequest.setShowId(showId);
+        ticketRequest.setUserId(userId);
+        ticketRequest.setRequestSeats(Arrays.asList("6A", "6B"));
+
+        // When
+        ticketService.ticketBooking(ticketRequest);
+
+        // Then - the event is an outbox row of the booking transaction; the relay may publish it any time
+        OutboxEvent queued = outboxEventRepository.findAll().stream()
+                .filter(event -> event.getPayload().contains("\"6A, 6B\""))
+                .findFirst()
+                .orElseThrow();
+        assertThat(queued.getTopic()).isEqualTo(KafkaConfig.BOOKING_CONFIRMED_TOPIC);
+    }
+
+    @Test
+    void shouldBookSeatsOfSparseShowLikeFullShow() {
+        Show fullShow = showRepository.findById(showId).orElseThrow();
+
+        ShowRequest showRequest = new ShowRequest();
+        showRequest.setShowStartTime(Time.valueOf("21:30:00"));
+        showRequest.setShowDate(fullShow.getDate());
+        showRequest.setEventId(fullShow.getEvent().getId());
+        showRequest.setTheaterId(fullShow.getTheater().getId());
+        showRequest.setPriceOfPremiumSeat(300);
+        showRequest.setPriceOfClassicSeat(200);
+
+        Integer sparseShowId;
+        ReflectionTestUtils.setField(AopTestUtils.getTargetObject(showService), "seatStorage", ShowSeatStorage.SPARSE);
+        try {
+            sparseShowId = showService.addShow(showRequest).getShowId();
+        } finally {
+            ReflectionTestUtils.setField(AopTestUtils.getTargetObject(showService), "seatStorage", ShowSeatStorage.FULL);
+        }
+
+        // Seats come from the theater layout; nothing is stored yet
+        SeatDirectory directory = seatDirectoryService.directory(sparseShowId);
+        assertThat(directory.isSparse()).isTrue();
+        assertThat(directory.size()).isEqualTo(50);
+        assertThat(showSeatRepository.findByShowId(sparseShowId)).isEmpty();
+
+        // When
+        List<Integer> seatIds = directory.seatIds(Arrays.asList("2A", "2B"));
+        seatLockingService.lockSeats(sparseShowId, seatIds, userId);
+
+        TicketRequest ticketRequest = new TicketRequest();
+        ticketRequest.setShowId(sparseShowId);
+        ticketRequest.setUserId(userId);
+        ticketRequest.setRequestSeats(Arrays.asList("2A", "2B"));
+        TicketResponse response = ticketService.ticketBooking(ticketRequest);
+
+        // Then - same prices and counts as a FULL show, with rows only for the booked seats
+        assertThat(response.getTotalPrice()).isEqualTo(400);
+        assertThat(showSeatRepository.findByShowId(sparseShowId)).hasSize(2);
+
+        SeatAvailabilityResponse availability = showService.getSeatAvailability(sparseShowId);
+        assertThat(availability.getTotalSeats()).isEqualTo(50);
+        assertThat(availability.getBookedSeats()).isEqualTo(2);
+        assertThat(availability.getAvailableSeats()).isEqualTo(48);
+        assertThat(seatLockingService.availableSeatIds(sparseShowId)).hasSize(48).doesNotContainAnyElementsOf(seatIds);
+
+        assertThatThrownBy(() -> seatLockingService.lockSeats(sparseShowId, seatIds, userId + 1))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("not available");
+    }
+
+    @Test
+    void shouldCountSeatsByTypeWithoutLoadingThem() {
+        // Given - one classic seat held and one booked
+        SeatDirectory directory = seatDirectoryService.directory(showId);
+        List<Integer> held = directory.seatIds(List.of("1A"));
+        List<Integer> booked = directory.seatIds(List.of("1B"));
+        seatLockingService.lockSeats(showId, held, userId);
+        seatLockingService.lockSeats(showId, booked, userId);
+        seatLockingService.confirmBooking(showId, booked, userId);
+
+        // When
+        ShowDetailsResponse details = showService.getShowDetails(showId);
+
+        // Then
+        assertThat(details.getTotalSeats()).isEqualTo(50);
+        assertThat(details.getAvailableSeats()).isEqualTo(48);
+        assertThat(details.getLockedSeats()).isEqualTo(1);
+        assertThat(details.getBookedSeats()).isEqualTo(1);
+        assertThat(details.getSeatSummary().get("CLASSIC").getTotal()).isEqualTo(30);
+        assertThat(details.getSeatSummary().get("CLASSIC").getAvailable()).isEqualTo(28);
+        assertThat(details.getSeatSummary().get("CLASSIC").getPrice()).isEqualTo(200);
+        assertThat(details.getSeatSummary().get("PREMIUM").getAvailable()).isEqualTo(20);
+        assertThat(details.getSeatSummary().get("PREMIUM").getPrice()).isEqualTo(300);
+    }
+
+    @Test
+    void shouldSummarizeSeatsOfManyShowsAtOnce() {
+        // Given
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(List.of("1A", "1B"));
+        seatLockingService.lockSeats(showId, seatIds, userId);
+
+        // When - an unknown show is asked for as well
+        List<SeatSummaryResponse> summaries = showService.getSeatSummaries(List.of(showId, Integer.MAX_VALUE));
+
+        // Then
+        assertThat(summaries).singleElement().satisfies(summary -> {
+            assertThat(summary.getShowId()).isEqualTo(showId);
+            assertThat(summary.getTotalSeats()).isEqualTo(50);
+            assertThat(summary.getLockedSeats()).isEqualTo(2);
+            assertThat(summary.getAvailableSeats()).isEqualTo(48);
+            assertThat(summary.getAvailability()).isEqualTo(SeatAvailabilityLevel.AVAILABLE);
+        });
+
+        // Served from Redis the second time
+        assertThat(showService.getSeatSummaries(List.of(showId)))
+                .singleElement()
+                .extracting(SeatSummaryResponse::getLockedSeats)
+                .isEqualTo(2);
+    }
+
+    @Test
+    void shouldServeSeatMapOfArchivedShowFromSnapshot() {
+        // Given - a booked show whose date has passed
+        List<Integer> seatIds = seatDirectoryService.directory(showId).seatIds(Arrays.asList("1A", "1B"));
+        seatLockingService.lockSeats(showId, seatIds, userId);
+        seatLockingService.confirmBooking(showId, seatIds, userId);
+
+        Date pastDate = Date.valueOf(LocalDate.now().minusDays(7));
+        Show show = showRepository.findById(showId).orElseThrow();
+        show.setDate(pastDate);
+        showRepository.saveAndFlush(show);
+        showSeatRepository.updateShowDate(showId, pastDate);
+        seatDirectoryService.evict(showId);
+
+        // When
+        int archivedRows = showSeatArchiver.archive(showId);
+
+        // Then - the rows are gone, but the seat maps read the same
+        assertThat(archivedRows).isEqualTo(50);
+        assertThat(showSeatRepository.findByShowId(showId)).isEmpty();
+
+        SeatAvailabilityResponse availability = showService.getSeatAvailability(showId);
+        assertThat(availability.getTotalSeats()).isEqualTo(50);
+        assertThat(availability.getBookedSeats()).isEqualTo(2);
+        assertThat(availability.getAvailableSeats()).isEqualTo(48);
+        assertThat(availability.getSeats())
+                .filteredOn(seat -> seat.getSeatNo().equals("1A"))
+                .singleElement()
+                .satisfies(seat -> {
+                    assertThat(seat.getStatus()).isEqualTo(SeatStatus.BOOKED);
+                    assertThat(seat.getPrice()).isEqualTo(200);
+                });
+
+        ShowDetailsResponse details = showService.getShowDetails(showId);
+        assertThat(details.getBookedSeats()).isEqualTo(2);
+        assertThat(details.getSeatSummary()).hasSize(2);
+
+        // Seat numbers still resolve to the ids the tickets refer to
+        assertThat(seatDirectoryService.directory(showId).seatIds(Arrays.asList("1A", "1B"))).isEqualTo(seatIds);
+    }
 }
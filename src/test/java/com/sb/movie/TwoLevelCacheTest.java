@@ -0,0 +1,183 @@
+package com.sb.movie;
+
+import com.sb.movie.config.SingleFlight;
+import com.sb.movie.config.TwoLevelCache;
+import com.sb.movie.config.TwoLevelCacheManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TwoLevelCacheTest {
+
+    private final List<String> published = new ArrayList<>();
+    private final Map<String, String> leases = new ConcurrentHashMap<>();
+    private ConcurrentMapCacheManager remote;
+    private StringRedisTemplate redis;
+    private TwoLevelCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Stands in for Redis: values are copied on the way in and out, like a serializing cache
+        remote = new ConcurrentMapCacheManager();
+        remote.setStoreByValue(true);
+        remote.setBeanClassLoader(getClass().getClassLoader());
+
+        redis = mock(StringRedisTemplate.class);
+        doAnswer(invocation -> {
+            published.add(invocation.getArgument(1));
+            return 1L;
+        }).when(redis).convertAndSend(eq(TwoLevelCacheManager.INVALIDATION_CHANNEL), anyString());
+
+        // Load leases, taken with SET NX and released by a compare-and-delete script
+        ValueOperations<String, String> values = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenAnswer(invocation ->
+                leases.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+        when(redis.hasKey(anyString())).thenAnswer(invocation -> leases.containsKey(invocation.getArgument(0)));
+        when(redis.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            return leases.remove(keys.get(0), invocation.getArgument(2)) ? 1L : 0L;
+        });
+
+        cacheManager = node();
+    }
+
+    // Another node: its own L1 and in-flight loads, the same Redis
+    private TwoLevelCacheManager node() {
+        return new TwoLevelCacheManager(remote, redis, null,
+                new TwoLevelCacheManager.L1Settings(100, Duration.ofMinutes(1)), Map.of(),
+                new SingleFlight(redis, Duration.ofSeconds(5), Duration.ofMillis(5)));
+    }
+
+    @Test
+    void shouldKeepOnlyValuesReadBackFromRemoteLocally() {
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("showDetails");
+        ArrayList<String> value = new ArrayList<>(List.of("1A"));
+
+        // When
+        cache.put(7, value);
+
+        // Then - the cached object itself never enters L1
+        assertThat(cache.getLocalCache().getIfPresent("7")).isNull();
+        assertThat(published).hasSize(1);
+
+        Object read = cache.get(7).get();
+        assertThat(read).isEqualTo(value).isNotSameAs(value);
+        assertThat(cache.getLocalCache().getIfPresent("7")).isSameAs(read);
+
+        // Served from L1 from now on
+        remote.getCache("showDetails").evict(7);
+        assertThat(cache.get(7).get()).isSameAs(read);
+    }
+
+    @Test
+    void shouldDropLocalEntryWhenAnotherNodeChangesIt() {
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("showDetails");
+        cache.put(7, "old");
+        cache.get(7);
+
+        // Own invalidations are ignored
+        cacheManager.onMessage(message(published.get(0)), null);
+        assertThat(cache.getLocalCache().getIfPresent("7")).isEqualTo("old");
+
+        // When
+        cacheManager.onMessage(message("other-node|showDetails|7"), null);
+
+        // Then
+        assertThat(cache.getLocalCache().getIfPresent("7")).isNull();
+
+        cache.get(7);
+        cacheManager.onMessage(message("other-node|showDetails"), null);
+        assertThat(cache.getLocalCache().estimatedSize()).isZero();
+    }
+
+    @Test
+    void shouldLoadOnceForConcurrentMissesOnAllNodes() throws Exception {
+        List<Cache> caches = List.of(cacheManager.getCache("showDetails"), node().getCache("showDetails"));
+        AtomicInteger loads = new AtomicInteger();
+        Callable<String> loader = () -> {
+            loads.incrementAndGet();
+            Thread.sleep(100);
+            return "show 7";
+        };
+
+        // When - 16 requests on two nodes miss the same key at once
+        int requests = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            Cache cache = caches.get(i % caches.size());
+            results.add(executor.submit(() -> {
+                start.await();
+                return cache.get(7, loader);
+            }));
+        }
+        start.countDown();
+
+        // Then
+        for (Future<String> result : results) {
+            assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("show 7");
+        }
+        executor.shutdown();
+        assertThat(loads).hasValue(1);
+        assertThat(leases).isEmpty();
+        assertThat(remote.getCache("showDetails").get(7).get()).isEqualTo("show 7");
+    }
+
+    @Test
+    void shouldLoadWhenLeaseHolderLeavesWithoutValue() throws Exception {
+        Cache cache = cacheManager.getCache("showDetails");
+        leases.put("cache-lease:showDetails::7", "other-node");
+        AtomicInteger loads = new AtomicInteger();
+
+        // When
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<String> result = executor.submit(() -> cache.get(7, () -> {
+            loads.incrementAndGet();
+            return "show 7";
+        }));
+
+        // Then - waits for the other node until its lease is gone
+        Thread.sleep(100);
+        assertThat(result.isDone()).isFalse();
+        leases.remove("cache-lease:showDetails::7");
+        assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo("show 7");
+        executor.shutdown();
+        assertThat(loads).hasValue(1);
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(TwoLevelCacheManager.INVALIDATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
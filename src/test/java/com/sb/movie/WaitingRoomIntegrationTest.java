@@ -0,0 +1,148 @@
+package com.sb.movie;
+
+import com.sb.movie.controllers.TicketController;
+import com.sb.movie.response.QueueStatusResponse;
+import com.sb.movie.services.WaitingRoomService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Admission through the per-show waiting room. Each show admits one user per second after a burst
+ * of one, so the third arrival is the first to queue.
+ */
+class WaitingRoomIntegrationTest extends BaseIntegrationTest {
+
+    // Shows only exist as waiting room keys here
+    private static final AtomicInteger SHOW_IDS = new AtomicInteger(3_000_000);
+
+    @Autowired
+    private WaitingRoomService waitingRoomService;
+
+    @Autowired
+    private TicketController ticketController;
+
+    private Integer showId;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(waitingRoomService, "enabled", true);
+        ReflectionTestUtils.setField(waitingRoomService, "admissionsPerSecond", 1);
+        ReflectionTestUtils.setField(waitingRoomService, "burst", 1);
+        ReflectionTestUtils.setField(waitingRoomService, "maxQueue", 10);
+        showId = SHOW_IDS.incrementAndGet();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.setField(waitingRoomService, "enabled", false);
+        ReflectionTestUtils.setField(waitingRoomService, "admissionsPerSecond", 50);
+        ReflectionTestUtils.setField(waitingRoomService, "burst", 100);
+        ReflectionTestUtils.setField(waitingRoomService, "maxQueue", 10000);
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void shouldAdmitBurstThenQueueUntilSlotIsDue() throws Exception {
+        assertThat(waitingRoomService.admit(showId, "a@test.com", null).isAdmitted()).isTrue();
+        assertThat(waitingRoomService.admit(showId, "b@test.com", null).isAdmitted()).isTrue();
+
+        // When
+        QueueStatusResponse queued = waitingRoomService.admit(showId, "c@test.com", null);
+
+        // Then
+        assertThat(queued.isAdmitted()).isFalse();
+        assertThat(queued.getQueueToken()).isNotBlank();
+        assertThat(queued.getPosition()).isPositive();
+        assertThat(queued.getRetryAfterSeconds()).isEqualTo(1);
+
+        // Polling with the token before the slot is due keeps the place, and admits once it is
+        assertThat(waitingRoomService.admit(showId, "c@test.com", queued.getQueueToken()).isAdmitted()).isFalse();
+        Thread.sleep(1100);
+        assertThat(waitingRoomService.admit(showId, "c@test.com", queued.getQueueToken()).isAdmitted()).isTrue();
+    }
+
+    @Test
+    void shouldAnswerQueuedRequestWithRetryAfter() {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("a@test.com", null));
+        waitingRoomService.admit(showId, "b@test.com", null);
+        waitingRoomService.admit(showId, "c@test.com", null);
+
+        // When
+        ResponseEntity<Object> response = ticketController.queueStatus(showId, null);
+
+        // Then
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getHeaders().getFirst(WaitingRoomService.QUEUE_TOKEN_HEADER)).isNotBlank();
+    }
+
+    @Test
+    void shouldShedArrivalsBeyondMaxQueue() {
+        ReflectionTestUtils.setField(waitingRoomService, "maxQueue", 0);
+        waitingRoomService.admit(showId, "a@test.com", null);
+        waitingRoomService.admit(showId, "b@test.com", null);
+
+        // When
+        QueueStatusResponse shed = waitingRoomService.admit(showId, "c@test.com", null);
+
+        // Then - no place in the queue
+        assertThat(shed.isAdmitted()).isFalse();
+        assertThat(shed.getQueueToken()).isNull();
+        assertThat(shed.getPosition()).isNull();
+        assertThat(shed.getRetryAfterSeconds()).isPositive();
+    }
+
+    @Test
+    void shouldReuseAdmittedTokenWithoutTakingAnotherSlot() {
+        String token = waitingRoomService.admit(showId, "a@test.com", null).getQueueToken();
+
+        // The booking step after locking
+        assertThat(waitingRoomService.admit(showId, "a@test.com", token).isAdmitted()).isTrue();
+        assertThat(waitingRoomService.admit(showId, "a@test.com", token).isAdmitted()).isTrue();
+
+        // Then - the second slot of the burst is still free
+        assertThat(waitingRoomService.admit(showId, "b@test.com", null).isAdmitted()).isTrue();
+    }
+
+    @Test
+    void shouldKeepOneSlotPerUserWhenCalledWithoutToken() {
+        waitingRoomService.admit(showId, "a@test.com", null);
+        waitingRoomService.admit(showId, "b@test.com", null);
+        QueueStatusResponse queued = waitingRoomService.admit(showId, "c@test.com", null);
+
+        // When - the same user arrives again and again without the token
+        QueueStatusResponse again = waitingRoomService.admit(showId, "c@test.com", null);
+        waitingRoomService.admit(showId, "c@test.com", null);
+
+        // Then - same place and token, and the next user only waits one slot longer
+        assertThat(again.isAdmitted()).isFalse();
+        assertThat(again.getQueueToken()).isEqualTo(queued.getQueueToken());
+        assertThat(again.getRetryAfterSeconds()).isEqualTo(1);
+        assertThat(waitingRoomService.admit(showId, "d@test.com", null).getRetryAfterSeconds()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotAdmitAnotherUserWithSomeoneElsesToken() {
+        String token = waitingRoomService.admit(showId, "a@test.com", null).getQueueToken();
+        waitingRoomService.admit(showId, "b@test.com", null);
+
+        // When - the admitted token is passed on once the burst is used up
+        QueueStatusResponse borrowed = waitingRoomService.admit(showId, "c@test.com", token);
+
+        // Then - it only joins the queue
+        assertThat(borrowed.isAdmitted()).isFalse();
+        assertThat(waitingRoomService.admit(showId, "a@test.com", token).isAdmitted()).isTrue();
+    }
+}